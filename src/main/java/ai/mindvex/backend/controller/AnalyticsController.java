@@ -7,9 +7,9 @@ import ai.mindvex.backend.entity.FileChurnStat;
 import ai.mindvex.backend.entity.IndexJob;
 import ai.mindvex.backend.entity.User;
 import ai.mindvex.backend.repository.FileChurnStatRepository;
-import ai.mindvex.backend.repository.IndexJobRepository;
 import ai.mindvex.backend.repository.UserRepository;
 import ai.mindvex.backend.service.JGitMiningService;
+import ai.mindvex.backend.service.JobQueueService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -41,13 +41,15 @@ public class AnalyticsController {
 
         private final JGitMiningService miningService;
         private final FileChurnStatRepository churnStatRepository;
-        private final IndexJobRepository indexJobRepository;
+        private final JobQueueService jobQueueService;
         private final UserRepository userRepository;
 
         // ─── POST /api/analytics/mine ─────────────────────────────────────────────
 
         /**
-         * Enqueue a git mining job. The IndexJobWorker picks it up within 5 seconds.
+         * Enqueue a git mining job, or attach to an identical pending one
+         * (coalesced=true). The IndexJobWorker is notified and picks it up as soon
+         * as a git_mine worker is free.
          * Returns the job ID for polling via GET /api/scip/jobs/{id}.
          */
         @PostMapping("/mine")
@@ -63,10 +65,13 @@ public class AnalyticsController {
                 job.setStatus("pending");
                 job.setJobType("git_mine");
                 job.setPayload("{\"days\":" + days + "}");
-                indexJobRepository.save(job);
+                // Short windows mine quickly; let them pass long backfills
+                job.setPriority(days <= 30 ? IndexJob.PRIORITY_HIGH : IndexJob.PRIORITY_NORMAL);
+                JobQueueService.Enqueued enqueued = jobQueueService.enqueue(job);
 
                 return ResponseEntity.accepted()
-                                .body(Map.of("jobId", job.getId(), "status", "pending"));
+                                .body(Map.of("jobId", enqueued.job().getId(), "status", enqueued.job().getStatus(),
+                                                "coalesced", enqueued.coalesced()));
         }
 
         // ─── GET /api/analytics/hotspots ─────────────────────────────────────────
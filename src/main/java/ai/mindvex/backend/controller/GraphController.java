@@ -1,26 +1,34 @@
 package ai.mindvex.backend.controller;
 
+import ai.mindvex.backend.dto.GraphNodeDto;
 import ai.mindvex.backend.dto.GraphResponse;
 import ai.mindvex.backend.dto.GraphResponse.CyEdge;
 import ai.mindvex.backend.dto.GraphResponse.CyEdge.CyEdgeData;
 import ai.mindvex.backend.dto.GraphResponse.CyNode;
 import ai.mindvex.backend.dto.GraphResponse.CyNode.CyNodeData;
+import ai.mindvex.backend.dto.ReferencePage;
 import ai.mindvex.backend.dto.ReferenceResult;
 import ai.mindvex.backend.entity.IndexJob;
 import ai.mindvex.backend.entity.User;
 import ai.mindvex.backend.entity.VectorEmbedding;
-import ai.mindvex.backend.repository.IndexJobRepository;
 import ai.mindvex.backend.repository.UserRepository;
 import ai.mindvex.backend.service.DependencyEngine;
 import ai.mindvex.backend.service.EmbeddingIngestionService;
+import ai.mindvex.backend.service.JobQueueService;
+import ai.mindvex.backend.service.ScipQueryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
@@ -31,6 +39,8 @@ import java.util.stream.Collectors;
  * POST /api/graph/build — async: extract file dependency edges from SCIP data
  * GET /api/graph/dependencies — returns Cytoscape.js-compatible graph
  * GET /api/graph/references — SCIP-powered Find All References
+ * GET /api/graph/references/page — keyset-paginated references grouped per file
+ * GET /api/graph/references/stream — NDJSON stream of references grouped per file
  */
 @RestController
 @RequestMapping("/api/graph")
@@ -39,17 +49,20 @@ import java.util.stream.Collectors;
 public class GraphController {
 
     private final DependencyEngine dependencyEngine;
-    private final IndexJobRepository indexJobRepository;
+    private final JobQueueService jobQueueService;
     private final UserRepository userRepository;
     private final EmbeddingIngestionService embeddingService;
-    private final JdbcTemplate jdbc;
+    private final ScipQueryService scipQueryService;
+    private final ObjectMapper objectMapper;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     // ─── POST /api/graph/build ────────────────────────────────────────────────
 
     /**
-     * Enqueue a dependency-graph-build job.
-     * The IndexJobWorker will call DependencyEngine.extractEdges() when it picks it
-     * up.
+     * Enqueue a dependency-graph-build job, or attach to an identical pending
+     * one (coalesced=true). The IndexJobWorker runs it through
+     * GraphBuildPipeline.
      */
     @PostMapping("/build")
     public ResponseEntity<Map<String, Object>> buildGraph(
@@ -64,11 +77,12 @@ public class GraphController {
         job.setStatus("pending");
         job.setJobType("graph_build");
         job.setPayload("{}");
-        indexJobRepository.save(job);
+        JobQueueService.Enqueued enqueued = jobQueueService.enqueue(job);
 
-        log.info("[GraphController] Enqueued graph_build job {} for {}", job.getId(), repoUrl);
+        log.info("[GraphController] Enqueued graph_build job {} for {}", enqueued.job().getId(), repoUrl);
         return ResponseEntity.accepted()
-                .body(Map.of("jobId", job.getId(), "status", "pending"));
+                .body(Map.of("jobId", enqueued.job().getId(), "status", enqueued.job().getStatus(),
+                        "coalesced", enqueued.coalesced()));
     }
 
     // ─── GET /api/graph/dependencies ─────────────────────────────────────────
@@ -154,6 +168,7 @@ public class GraphController {
     /**
      * Returns all occurrences of a SCIP symbol (references + definitions),
      * grouped by file. Powered by the SCIP semantic index — NOT a text grep.
+     * Served from the precomputed symbol → locations index.
      */
     @GetMapping("/references")
     public ResponseEntity<List<ReferenceResult>> getReferences(
@@ -163,34 +178,68 @@ public class GraphController {
 
         Long userId = extractUserId(authentication);
 
-        String sql = """
-                SELECT d.relative_uri AS filePath,
-                       o.start_line, o.start_char, o.end_line, o.end_char,
-                       o.symbol, o.role_flags
-                FROM code_intelligence.scip_occurrences o
-                JOIN code_intelligence.scip_documents d ON d.id = o.document_id
-                WHERE d.user_id  = ?
-                  AND d.repo_url = ?
-                  AND o.symbol   = ?
-                ORDER BY d.relative_uri, o.start_line
-                """;
-
-        List<ReferenceResult> refs = jdbc.query(
-                sql,
-                (rs, rowNum) -> new ReferenceResult(
-                        rs.getString("filePath"),
-                        rs.getInt("start_line"),
-                        rs.getInt("start_char"),
-                        rs.getInt("end_line"),
-                        rs.getInt("end_char"),
-                        rs.getString("symbol"),
-                        rs.getInt("role_flags")),
-                userId, repoUrl, symbol);
+        List<ReferenceResult> refs = scipQueryService.findReferences(userId, repoUrl, symbol);
 
         log.info("[GraphController] Found {} references for symbol '{}' in {}", refs.size(), symbol, repoUrl);
         return ResponseEntity.ok(refs);
     }
 
+    /**
+     * Keyset-paginated variant of /references: at most {@code limit}
+     * occurrences per page, grouped by file. Pass nextCursor back as
+     * {@code after} to fetch the next page.
+     */
+    @GetMapping("/references/page")
+    public ResponseEntity<ReferencePage> getReferencePage(
+            @RequestParam String repoUrl,
+            @RequestParam String symbol,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "500") int limit,
+            Authentication authentication) {
+
+        Long userId = extractUserId(authentication);
+
+        try {
+            return ResponseEntity.ok(scipQueryService.findReferencePage(
+                    userId, repoUrl, symbol, after, Math.min(limit, 5000)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Streaming variant of /references: one JSON object per line
+     * ({@code {"filePath":..., "occurrences":[[sl,sc,el,ec,roles],...]}}),
+     * flushed per file so the client can render the first files immediately.
+     */
+    @GetMapping("/references/stream")
+    public ResponseEntity<StreamingResponseBody> streamReferences(
+            @RequestParam String repoUrl,
+            @RequestParam String symbol,
+            Authentication authentication) {
+
+        Long userId = extractUserId(authentication);
+
+        StreamingResponseBody body = (OutputStream out) -> {
+            try {
+                scipQueryService.streamReferences(userId, repoUrl, symbol, group -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(group));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // Client went away mid-stream
+                log.debug("[GraphController] Reference stream for '{}' aborted: {}", symbol, e.getMessage());
+            }
+        };
+
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
     // ─── POST /api/graph/semantic-filter ─────────────────────────────────────
 
     /**
@@ -334,7 +383,7 @@ public class GraphController {
 
     /** Stable node ID: replace non-alphanumeric with underscore. */
     private String nodeId(String filePath) {
-        return filePath.replaceAll("[^a-zA-Z0-9]", "_");
+        return GraphNodeDto.idOf(filePath);
     }
 
     private String basename(String path) {
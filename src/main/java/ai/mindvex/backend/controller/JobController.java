@@ -0,0 +1,43 @@
+package ai.mindvex.backend.controller;
+
+import ai.mindvex.backend.dto.JobQueueStatsResponse;
+import ai.mindvex.backend.repository.IndexJobRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Operational view of the index_jobs queue shared by all job types.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+public class JobController {
+
+    private final IndexJobRepository indexJobRepository;
+
+    // ─── GET /api/jobs/queue ──────────────────────────────────────────────────
+
+    /**
+     * Per job type: pending and processing counts, age of the oldest pending
+     * job and the wait of jobs started in the last hour.
+     */
+    @GetMapping("/queue")
+    public ResponseEntity<List<JobQueueStatsResponse>> queueStats() {
+        List<JobQueueStatsResponse> stats = indexJobRepository.queueStats().stream()
+                .map(row -> JobQueueStatsResponse.builder()
+                        .jobType(row.getJobType())
+                        .pending(row.getPending())
+                        .running(row.getRunning())
+                        .oldestPendingSeconds(row.getOldestPendingSeconds())
+                        .avgWaitSeconds(row.getAvgWaitSeconds())
+                        .p95WaitSeconds(row.getP95WaitSeconds())
+                        .build())
+                .toList();
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -2,27 +2,29 @@ package ai.mindvex.backend.controller;
 
 import ai.mindvex.backend.entity.User;
 import ai.mindvex.backend.repository.UserRepository;
+import ai.mindvex.backend.service.GitRepositoryCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Stream;
 
 /**
  * Simple repository cloning endpoint
- * Clones a repo using JGit and returns all files for frontend WebContainer
+ * Opens the repo's mirror in GitRepositoryCache and returns all files of HEAD
+ * for frontend WebContainer
  */
 @RestController
 @RequestMapping("/api/repositories")
@@ -32,6 +34,7 @@ import java.util.stream.Stream;
 public class RepositoryCloneController {
 
     private final UserRepository userRepository;
+    private final GitRepositoryCache repositoryCache;
 
     @PostMapping("/clone")
     public ResponseEntity<CloneResponse> cloneRepository(
@@ -62,39 +65,21 @@ public class RepositoryCloneController {
                 log.warn("[Clone] No authentication provided. Only public repos accessible.");
             }
 
-            // Create temp directory for cloning
-            Path tempDir = Files.createTempDirectory("mindvex-clone-");
-            log.info("[Clone] Cloning into temporary directory: {}", tempDir);
+            try (GitRepositoryCache.Handle handle = repositoryCache.open(
+                    request.url(), githubToken, GitRepositoryCache.History.TIP)) {
+                log.info("[Clone] Repository ready at {}", handle.head().name());
 
-            try {
-                // Clone with retry logic
-                Git git = cloneWithRetry(request.url(), tempDir, githubToken, 3);
-                git.close();
-
-                log.info("[Clone] Repository cloned successfully");
-
-                // Read all files from the cloned repository
+                // Read all files of HEAD from the object database
                 Map<String, FileData> files = new HashMap<>();
-                readDirectory(tempDir, tempDir, files);
+                readTree(handle, files);
 
                 log.info("[Clone] Read {} files from repository", files.size());
 
-                // Clean up temp directory
-                deleteDirectory(tempDir.toFile());
-
                 return ResponseEntity.ok(new CloneResponse(
                         true,
                         "Repository cloned successfully",
-                        tempDir.getFileName().toString(),
+                        handle.name(),
                         files));
-
-            } catch (Exception e) {
-                // Clean up on error
-                try {
-                    deleteDirectory(tempDir.toFile());
-                } catch (IOException ignored) {
-                }
-                throw e;
             }
 
         } catch (Exception e) {
@@ -127,117 +112,38 @@ public class RepositoryCloneController {
     }
 
     /**
-     * Clone repository with retry logic and exponential backoff.
+     * Read every regular file of the handle's HEAD tree
      */
-    private Git cloneWithRetry(String repoUrl, Path targetDir, String accessToken, int maxAttempts)
-            throws IOException {
-        int attempt = 0;
-        Exception lastException = null;
-
-        while (attempt < maxAttempts) {
-            attempt++;
-            try {
-                log.info("[Clone] Attempt {}/{} for {}", attempt, maxAttempts, repoUrl);
-
-                var cloneCmd = Git.cloneRepository()
-                        .setURI(repoUrl)
-                        .setDirectory(targetDir.toFile())
-                        .setDepth(1)
-                        .setTimeout(300); // 5 minutes timeout
-
-                if (accessToken != null && !accessToken.isBlank()) {
-                    log.info("[Clone] Using GitHub authentication");
-                    cloneCmd.setCredentialsProvider(
-                            new UsernamePasswordCredentialsProvider("oauth2", accessToken));
+    private void readTree(GitRepositoryCache.Handle handle, Map<String, FileData> files) throws IOException {
+        Repository repo = handle.repository();
+        try (RevWalk revWalk = new RevWalk(repo); TreeWalk walk = new TreeWalk(repo)) {
+            walk.addTree(revWalk.parseCommit(handle.head()).getTree());
+            walk.setRecursive(true);
+            while (walk.next()) {
+                // Skip symlinks and submodules
+                if ((walk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE) {
+                    continue;
                 }
-
-                Git git = cloneCmd.call();
-                log.info("[Clone] Successfully cloned {} on attempt {}", repoUrl, attempt);
-                return git;
-
-            } catch (GitAPIException e) {
-                lastException = e;
-                log.warn("[Clone] Attempt {}/{} failed: {}", attempt, maxAttempts, e.getMessage());
-
-                if (attempt < maxAttempts) {
-                    long waitTime = (long) Math.pow(2, attempt) * 1000;
-                    log.info("[Clone] Waiting {}ms before retry...", waitTime);
-                    try {
-                        Thread.sleep(waitTime);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Clone interrupted", ie);
-                    }
-                }
-            }
-        }
-
-        // All attempts failed
-        log.error("[Clone] All {} attempts failed for {}", maxAttempts, repoUrl);
-        if (lastException != null) {
-            throw new IOException("Clone failed after " + maxAttempts + " attempts: " + lastException.getMessage(),
-                    lastException);
-        } else {
-            throw new IOException("Clone failed after " + maxAttempts + " attempts");
-        }
-    }
-
-    /**
-     * Recursively read all files from a directory
-     */
-    private void readDirectory(Path baseDir, Path currentDir, Map<String, FileData> files) throws IOException {
-        try (Stream<Path> paths = Files.list(currentDir)) {
-            paths.forEach(path -> {
+                String relativePath = walk.getPathString();
                 try {
-                    // Skip .git directory
-                    if (path.getFileName().toString().equals(".git")) {
-                        return;
-                    }
-
-                    if (Files.isDirectory(path)) {
-                        readDirectory(baseDir, path, files);
-                    } else if (Files.isRegularFile(path)) {
-                        String relativePath = baseDir.relativize(path)
-                                .toString()
-                                .replace('\\', '/');
+                    byte[] bytes = repo.open(walk.getObjectId(0), Constants.OBJ_BLOB).getBytes();
 
-                        // Try to read as text, fallback to base64 for binary files
-                        try {
-                            String content = Files.readString(path, StandardCharsets.UTF_8);
-                            files.put(relativePath, new FileData(content, "utf-8", false));
-                        } catch (Exception e) {
-                            // Binary file - encode as base64
-                            byte[] bytes = Files.readAllBytes(path);
-                            String base64 = Base64.getEncoder().encodeToString(bytes);
-                            files.put(relativePath, new FileData(base64, "base64", true));
-                        }
+                    // Try to read as text, fallback to base64 for binary files
+                    try {
+                        String content = StandardCharsets.UTF_8.newDecoder()
+                                .decode(ByteBuffer.wrap(bytes))
+                                .toString();
+                        files.put(relativePath, new FileData(content, "utf-8", false));
+                    } catch (CharacterCodingException e) {
+                        // Binary file - encode as base64
+                        String base64 = Base64.getEncoder().encodeToString(bytes);
+                        files.put(relativePath, new FileData(base64, "base64", true));
                     }
                 } catch (IOException e) {
-                    log.warn("[Clone] Failed to read file {}: {}", path, e.getMessage());
-                }
-            });
-        }
-    }
-
-    /**
-     * Delete directory and all contents
-     */
-    private void deleteDirectory(File directory) throws IOException {
-        if (!directory.exists()) {
-            return;
-        }
-
-        File[] files = directory.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    deleteDirectory(file);
-                } else {
-                    file.delete();
+                    log.warn("[Clone] Failed to read file {}: {}", relativePath, e.getMessage());
                 }
             }
         }
-        directory.delete();
     }
 
     // Request/Response DTOs
@@ -2,6 +2,8 @@ package ai.mindvex.backend.controller;
 
 import ai.mindvex.backend.dto.HoverResponse;
 import ai.mindvex.backend.dto.IndexJobResponse;
+import ai.mindvex.backend.dto.ReferenceResult;
+import ai.mindvex.backend.dto.SemanticTokensResponse;
 import ai.mindvex.backend.entity.IndexJob;
 import ai.mindvex.backend.entity.User;
 import ai.mindvex.backend.exception.ResourceNotFoundException;
@@ -19,6 +21,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -32,6 +35,13 @@ import java.util.Optional;
  * GET /api/scip/hover?repoUrl=<url>&filePath=<path>&line=<n>&character=<n>
  * Returns hover data for the given cursor position.
  *
+ * GET /api/scip/tokens?repoUrl=<url>&filePath=<path>[&startLine=<n>&endLine=<n>]
+ * Returns every occurrence of a file (or line range) with its symbol
+ * metadata, packed like LSP semantic tokens.
+ *
+ * GET /api/scip/definition?repoUrl=<url>&filePath=<path>&line=<n>&character=<n>
+ * Returns the definition locations of the symbol at the cursor position.
+ *
  * GET /api/scip/jobs/{id}
  * Returns the status of an index job.
  */
@@ -91,6 +101,47 @@ public class ScipController {
                 .orElseGet(() -> ResponseEntity.noContent().build());
     }
 
+    // ─── Definition ───────────────────────────────────────────────────────────
+
+    @GetMapping("/definition")
+    public ResponseEntity<List<ReferenceResult>> definition(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam("repoUrl") String repoUrl,
+            @RequestParam("filePath") String filePath,
+            @RequestParam("line") int line,
+            @RequestParam("character") int character) {
+
+        User user = resolveUser(userDetails);
+
+        List<ReferenceResult> definitions = scipQueryService.findDefinitions(
+                user.getId(), repoUrl, filePath, line, character);
+
+        if (definitions.isEmpty()) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(definitions);
+    }
+
+    // ─── Semantic Tokens ──────────────────────────────────────────────────────
+
+    @GetMapping("/tokens")
+    public ResponseEntity<SemanticTokensResponse> tokens(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam("repoUrl") String repoUrl,
+            @RequestParam("filePath") String filePath,
+            @RequestParam(value = "startLine", required = false) Integer startLine,
+            @RequestParam(value = "endLine", required = false) Integer endLine) {
+
+        User user = resolveUser(userDetails);
+
+        Optional<SemanticTokensResponse> result = scipQueryService.getTokens(
+                user.getId(), repoUrl, filePath, startLine, endLine);
+
+        return result
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
     // ─── Job Status ───────────────────────────────────────────────────────────
 
     @GetMapping("/jobs/{id}")
@@ -1,6 +1,7 @@
 package ai.mindvex.backend.controller;
 
 import ai.mindvex.backend.dto.GraphUpdateMessage;
+import ai.mindvex.backend.dto.JobProgressMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
@@ -16,7 +17,7 @@ import org.springframework.web.bind.annotation.CrossOrigin;
  * Handles WebSocket connections and messaging for live dependency graph
  * streaming.
  * Clients can subscribe to /topic/graph-updates/{repoId} to receive real-time
- * updates.
+ * updates, and to /topic/jobs/{jobId} for the progress of any index job.
  */
 @Controller
 @RequiredArgsConstructor
@@ -63,7 +64,7 @@ public class WebSocketGraphController {
 
         /**
          * Broadcast graph update to all subscribers of a specific repository
-         * This method is called by GraphJobWorker or other services
+         * This method is called by GraphBuildPipeline or other services
          * 
          * @param repoId  Repository identifier
          * @param message Update message containing nodes/edges
@@ -79,6 +80,20 @@ public class WebSocketGraphController {
                 messagingTemplate.convertAndSend(destination, message);
         }
 
+        /**
+         * Broadcast the progress of an index job to its subscribers
+         * This method is called by JobProgressPublisher
+         *
+         * @param message Progress of the job named by message.jobId
+         */
+        public void broadcastJobProgress(JobProgressMessage message) {
+                String destination = "/topic/jobs/" + message.getJobId();
+                log.debug("Broadcasting job progress to {}: status={}, stage={}, processed={}",
+                                destination, message.getStatus(), message.getStage(), message.getProcessed());
+
+                messagingTemplate.convertAndSend(destination, message);
+        }
+
         /**
          * Broadcast heartbeat to all connected clients
          */
@@ -97,8 +112,9 @@ public class WebSocketGraphController {
          * @param repoId     Repository identifier
          * @param totalNodes Total number of nodes in the graph
          * @param totalEdges Total number of edges in the graph
+         * @param sequence   Sequence number of the last graph delta sent
          */
-        public void sendCompletionNotification(String repoId, int totalNodes, int totalEdges) {
+        public void sendCompletionNotification(String repoId, int totalNodes, int totalEdges, long sequence) {
                 GraphUpdateMessage completion = GraphUpdateMessage.builder()
                                 .type("complete")
                                 .repoId(repoId)
@@ -106,6 +122,7 @@ public class WebSocketGraphController {
                                 .metadata(GraphUpdateMessage.UpdateMetadata.builder()
                                                 .totalNodes(totalNodes)
                                                 .totalEdges(totalEdges)
+                                                .sequence(sequence)
                                                 .status("completed")
                                                 .message("Graph building completed successfully")
                                                 .build())
@@ -19,6 +19,11 @@ public class GraphNodeDto {
      */
     private String id;
 
+    /** Node id of a file path, as used by /api/graph/dependencies and graph updates. */
+    public static String idOf(String filePath) {
+        return filePath.replaceAll("[^a-zA-Z0-9]", "_");
+    }
+
     /**
      * Display label for the node
      */
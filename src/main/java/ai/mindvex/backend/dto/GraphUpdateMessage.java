@@ -17,8 +17,8 @@ import java.util.List;
 public class GraphUpdateMessage {
 
     /**
-     * Type of update: 'node_added', 'edge_added', 'batch_update', 'complete',
-     * 'heartbeat'
+     * Type of update: 'node_added', 'edge_added', 'batch_update', 'graph_reset',
+     * 'job_started', 'job_progress', 'complete', 'error', 'heartbeat'
      */
     private String type;
 
@@ -37,6 +37,11 @@ public class GraphUpdateMessage {
      */
     private List<GraphEdgeDto> edges;
 
+    /**
+     * List of edges/links to remove (if type is batch_update)
+     */
+    private List<GraphEdgeDto> removedEdges;
+
     /**
      * Optional metadata about the update
      */
@@ -57,5 +62,12 @@ public class GraphUpdateMessage {
         private int processedFiles;
         private String status;
         private String message;
+        /** Pipeline stage of a graph build: clone, extract, embed or notify */
+        private String stage;
+        /**
+         * Position of a graph_reset or batch_update in its build, from 1; on
+         * 'complete', the last one sent. A gap means a delta was missed.
+         */
+        private long sequence;
     }
 }
@@ -0,0 +1,48 @@
+package ai.mindvex.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of one index job, sent via WebSocket to /topic/jobs/{jobId}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobProgressMessage {
+
+    private Long jobId;
+
+    /** scip_index, graph_build or git_mine */
+    private String jobType;
+
+    private String repoUrl;
+
+    /** processing, retrying, pending (returned to the queue), done or failed */
+    private String status;
+
+    /** Stage of the job, e.g. 'embed'; null before the first stage */
+    private String stage;
+
+    /** What processed and total count: files, documents or commits */
+    private String unit;
+
+    /** Units processed so far in this stage */
+    private long processed;
+
+    /** Units in the stage, or null if not known up front */
+    private Long total;
+
+    /** Units processed per second since the stage started */
+    private double ratePerSecond;
+
+    /** Estimated seconds until the stage is done, or null if unknown */
+    private Long etaSeconds;
+
+    private String message;
+
+    private long timestamp;
+}
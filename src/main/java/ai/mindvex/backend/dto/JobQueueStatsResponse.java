@@ -0,0 +1,20 @@
+package ai.mindvex.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * One row of GET /api/jobs/queue: queue depth and wait times of a job type.
+ */
+@Data
+@Builder
+public class JobQueueStatsResponse {
+    private String jobType;
+    private long pending;
+    private long running;
+    /** Age of the oldest pending job. */
+    private double oldestPendingSeconds;
+    /** Enqueue-to-start wait of jobs started in the last hour. */
+    private double avgWaitSeconds;
+    private double p95WaitSeconds;
+}
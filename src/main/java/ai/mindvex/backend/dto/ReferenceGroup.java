@@ -0,0 +1,14 @@
+package ai.mindvex.backend.dto;
+
+import java.util.List;
+
+/**
+ * Occurrences of a symbol within one file — used by the paginated and
+ * streamed /api/graph/references endpoints.
+ *
+ * Each occurrence is [startLine, startChar, endLine, endChar, roleFlags].
+ */
+public record ReferenceGroup(
+        String filePath,
+        List<int[]> occurrences) {
+}
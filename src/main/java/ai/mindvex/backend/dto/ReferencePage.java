@@ -0,0 +1,13 @@
+package ai.mindvex.backend.dto;
+
+import java.util.List;
+
+/**
+ * One page of /api/graph/references/page. nextCursor is null on the last
+ * page; otherwise pass it back as the "after" parameter.
+ */
+public record ReferencePage(
+        String symbol,
+        List<ReferenceGroup> files,
+        String nextCursor) {
+}
@@ -0,0 +1,38 @@
+package ai.mindvex.backend.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Response payload for the GET /api/scip/tokens endpoint.
+ *
+ * data holds every occurrence of the file (or line range) as 6 ints, in
+ * start order, encoded relative to the previous occurrence like LSP
+ * semantic tokens:
+ *
+ * [deltaLine, deltaStartChar, lineSpan, endChar, symbolIndex, roleFlags]
+ *
+ * deltaStartChar is relative to the previous start character when
+ * deltaLine is 0, absolute otherwise. lineSpan is endLine - startLine and
+ * endChar is absolute. symbolIndex points into symbols.
+ */
+@Data
+@Builder
+public class SemanticTokensResponse {
+
+    public static final int STRIDE = 6;
+
+    private String filePath;
+    private int[] data;
+    private List<Symbol> symbols;
+
+    /** Symbol metadata, shared by every occurrence that references it. */
+    public record Symbol(
+            String symbol,
+            String displayName,
+            String signatureDoc,
+            String documentation) {
+    }
+}
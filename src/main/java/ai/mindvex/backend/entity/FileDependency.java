@@ -35,6 +35,10 @@ public class FileDependency {
     @Column(name = "dep_type", nullable = false, length = 50)
     private String depType = "reference"; // 'import' | 'reference'
 
+    /** Number of references that produced this edge. */
+    @Column(name = "weight", nullable = false)
+    private int weight = 1;
+
     public FileDependency(Long userId, String repoUrl, String sourceFile, String targetFile, String depType) {
         this.userId = userId;
         this.repoUrl = repoUrl;
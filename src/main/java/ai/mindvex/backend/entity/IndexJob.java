@@ -5,12 +5,13 @@ import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 /**
- * Represents an async background job (SCIP indexing or git mining).
- * Workers poll this table using SELECT ... FOR UPDATE SKIP LOCKED.
- * jobType: 'scip_index' | 'git_mine'
+ * Represents an async background job (SCIP indexing, graph build or git
+ * mining). Workers poll this table using SELECT ... FOR UPDATE SKIP LOCKED.
+ * jobType: 'scip_index' | 'graph_build' | 'git_mine'
  */
 @Entity
 @Table(name = "index_jobs")
@@ -35,9 +36,25 @@ public class IndexJob {
     @Builder.Default
     private String status = "pending";
 
-    /** Discriminator: 'scip_index' or 'git_mine' */
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+
+    /** Discriminator: 'scip_index', 'graph_build' or 'git_mine' */
     @Column(name = "job_type", length = 30)
-    private String jobType;
+    @Builder.Default
+    private String jobType = "scip_index";
+
+    /** Higher runs first among a user's pending jobs of the same type. */
+    @Column(name = "priority", nullable = false)
+    @Builder.Default
+    private int priority = PRIORITY_NORMAL;
+
+    /**
+     * What the job computes (type, user, repo, parameters), hashed; at most
+     * one pending job per key. Null for jobs that are never coalesced.
+     */
+    @Column(name = "dedup_key", length = 64)
+    private String dedupKey;
 
     /** Temp file path where the uploaded .scip binary is stored. */
     @Column(name = "payload_path", columnDefinition = "TEXT")
@@ -59,4 +76,21 @@ public class IndexJob {
 
     @Column(name = "finished_at")
     private LocalDateTime finishedAt;
+
+    /** Worker currently running the job; set together with status 'processing'. */
+    @Column(name = "lease_owner", length = 200)
+    private String leaseOwner;
+
+    /** When the worker's lease runs out unless its heartbeat renews it (database clock). */
+    @Column(name = "lease_expires_at")
+    private Instant leaseExpiresAt;
+
+    /** Times the job has been claimed; a job released on shutdown does not count. */
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    /** A job retried after a transient failure is not claimed before this (database clock). */
+    @Column(name = "run_after")
+    private Instant runAfter;
 }
@@ -36,6 +36,10 @@ public class ScipDocument {
     @Column(name = "language", length = 50)
     private String language;
 
+    /** SHA-256 of the raw Document protobuf; unchanged hashes are skipped on re-index. */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @CreatedDate
     @Column(name = "indexed_at", nullable = false, updatable = false)
     private LocalDateTime indexedAt;
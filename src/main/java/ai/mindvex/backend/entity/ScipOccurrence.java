@@ -22,8 +22,9 @@ public class ScipOccurrence {
     @Column(name = "document_id", nullable = false)
     private Long documentId;
 
-    @Column(name = "symbol", nullable = false, columnDefinition = "TEXT")
-    private String symbol;
+    /** Id of the symbol string in scip_symbol_ids. */
+    @Column(name = "symbol_id", nullable = false)
+    private Long symbolId;
 
     @Column(name = "start_line", nullable = false)
     private int startLine;
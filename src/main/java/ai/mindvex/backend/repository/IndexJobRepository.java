@@ -1,40 +1,191 @@
 package ai.mindvex.backend.repository;
 
 import ai.mindvex.backend.entity.IndexJob;
-import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface IndexJobRepository extends JpaRepository<IndexJob, Long> {
 
     /**
-     * Atomically claim the oldest pending job.
+     * Atomically claim the next pending job of a type, fairly across users.
+     *
+     * Only each user's head job (highest priority, then oldest) is a
+     * candidate, among jobs not waiting out a retry backoff (run_after), and users already running maxPerUser jobs (any type) are
+     * skipped. Among candidates the highest priority wins, then the user with
+     * the fewest jobs processing, then the oldest job - a round-robin over
+     * users, so one user's backlog cannot starve everyone else. The per-user
+     * cap is soft: concurrent claims may briefly exceed it by one.
      * SKIP LOCKED ensures concurrent workers don't double-process the same job.
      */
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")) // SKIP_LOCKED
-    @Query("""
-            SELECT j FROM IndexJob j
-            WHERE j.status = 'pending'
-            ORDER BY j.createdAt ASC
+    @Query(value = """
+            SELECT j.* FROM public.index_jobs j
+            JOIN (
+                SELECT DISTINCT ON (p.user_id) p.id
+                FROM public.index_jobs p
+                WHERE p.status = 'pending' AND p.job_type = :jobType
+                  AND (p.run_after IS NULL OR p.run_after <= NOW())
+                ORDER BY p.user_id, p.priority DESC, p.created_at
+            ) head ON head.id = j.id
+            LEFT JOIN (
+                SELECT r.user_id, COUNT(*) AS running
+                FROM public.index_jobs r
+                WHERE r.status = 'processing'
+                GROUP BY r.user_id
+            ) busy ON busy.user_id = j.user_id
+            WHERE j.status = 'pending' AND COALESCE(busy.running, 0) < :maxPerUser
+            ORDER BY j.priority DESC, COALESCE(busy.running, 0), j.created_at
             LIMIT 1
-            """)
-    Optional<IndexJob> claimNextPendingJob();
-
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2")) // SKIP_LOCKED
-    @Query("""
-            SELECT j FROM IndexJob j
-            WHERE j.status = 'pending' AND j.jobType = :jobType
-            ORDER BY j.createdAt ASC
-            LIMIT 1
-            """)
-    Optional<IndexJob> claimNextPendingJobType(@org.springframework.data.repository.query.Param("jobType") String jobType);
+            FOR UPDATE OF j SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<IndexJob> claimNextFairJob(@Param("jobType") String jobType, @Param("maxPerUser") int maxPerUser);
+
+    /** The pending job with this dedup key, if any. */
+    Optional<IndexJob> findFirstByDedupKeyAndStatus(String dedupKey, String status);
+
+    // ─── Queue Metrics ────────────────────────────────────────────────────────
+
+    /** Depth and wait times of one job type. */
+    interface QueueStats {
+        String getJobType();
+
+        long getPending();
+
+        long getRunning();
+
+        /** Age of the oldest pending job. */
+        double getOldestPendingSeconds();
+
+        /** Mean and 95th percentile enqueue-to-start wait of jobs started in the last hour. */
+        double getAvgWaitSeconds();
+
+        double getP95WaitSeconds();
+    }
+
+    @Query(value = """
+            SELECT job_type AS jobType,
+                   COUNT(*) FILTER (WHERE status = 'pending') AS pending,
+                   COUNT(*) FILTER (WHERE status = 'processing') AS running,
+                   COALESCE(EXTRACT(EPOCH FROM LOCALTIMESTAMP
+                       - MIN(created_at) FILTER (WHERE status = 'pending')), 0) AS oldestPendingSeconds,
+                   COALESCE(AVG(EXTRACT(EPOCH FROM started_at - created_at))
+                       FILTER (WHERE started_at >= LOCALTIMESTAMP - INTERVAL '1 hour'), 0) AS avgWaitSeconds,
+                   COALESCE(PERCENTILE_CONT(0.95) WITHIN GROUP (ORDER BY EXTRACT(EPOCH FROM started_at - created_at))
+                       FILTER (WHERE started_at >= LOCALTIMESTAMP - INTERVAL '1 hour'), 0) AS p95WaitSeconds
+            FROM public.index_jobs
+            WHERE status IN ('pending', 'processing') OR started_at >= LOCALTIMESTAMP - INTERVAL '1 hour'
+            GROUP BY job_type
+            ORDER BY job_type
+            """, nativeQuery = true)
+    List<QueueStats> queueStats();
+
+    // ─── Leases ───────────────────────────────────────────────────────────────
+
+    /**
+     * Mark a job claimed by the caller as processing, count the attempt and
+     * lease it to owner for leaseSeconds. Call in the claiming transaction.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE public.index_jobs
+            SET status = 'processing', started_at = :startedAt, lease_owner = :owner,
+                lease_expires_at = NOW() + make_interval(secs => :leaseSeconds),
+                attempts = attempts + 1, run_after = NULL
+            WHERE id = :id
+            """, nativeQuery = true)
+    int startLease(@Param("id") Long id, @Param("owner") String owner,
+            @Param("startedAt") LocalDateTime startedAt, @Param("leaseSeconds") int leaseSeconds);
+
+    /** Heartbeat: extend owner's lease; 0 if the lease was lost. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE public.index_jobs
+            SET lease_expires_at = NOW() + make_interval(secs => :leaseSeconds)
+            WHERE id = :id AND lease_owner = :owner AND status = 'processing'
+            """, nativeQuery = true)
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseSeconds") int leaseSeconds);
+
+    /** Record the outcome of a leased job; 0 if owner no longer holds the lease. */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE public.index_jobs
+            SET status = :status, error_msg = CAST(:errorMsg AS TEXT), payload = CAST(:payload AS TEXT),
+                finished_at = :finishedAt, lease_owner = NULL, lease_expires_at = NULL
+            WHERE id = :id AND lease_owner = :owner AND status = 'processing'
+            """, nativeQuery = true)
+    int finishLease(@Param("id") Long id, @Param("owner") String owner, @Param("status") String status,
+            @Param("errorMsg") String errorMsg, @Param("payload") String payload,
+            @Param("finishedAt") LocalDateTime finishedAt);
+
+    /**
+     * Hand a leased job back to the queue unfinished (e.g. on shutdown),
+     * without counting the attempt. The dedup key is dropped: an identical
+     * job may have been queued meanwhile.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE public.index_jobs
+            SET status = 'pending', started_at = NULL, lease_owner = NULL, lease_expires_at = NULL,
+                dedup_key = NULL, attempts = GREATEST(attempts - 1, 0)
+            WHERE id = :id AND lease_owner = :owner AND status = 'processing'
+            """, nativeQuery = true)
+    int releaseLease(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * Put a leased job that failed transiently back to pending, not to be
+     * claimed for delaySeconds. Its checkpoints are kept, so the next attempt
+     * resumes; the dedup key is dropped as in releaseLease.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE public.index_jobs
+            SET status = 'pending', error_msg = CAST(:errorMsg AS TEXT), started_at = NULL,
+                lease_owner = NULL, lease_expires_at = NULL, dedup_key = NULL,
+                run_after = NOW() + make_interval(secs => :delaySeconds)
+            WHERE id = :id AND lease_owner = :owner AND status = 'processing'
+            """, nativeQuery = true)
+    int retryLease(@Param("id") Long id, @Param("owner") String owner, @Param("errorMsg") String errorMsg,
+            @Param("delaySeconds") long delaySeconds);
+
+    /**
+     * Recovery sweep, first step: fail processing jobs whose lease expired
+     * after maxAttempts claims - most likely the job itself kills its node.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE public.index_jobs
+            SET status = 'failed', error_msg = 'Lease expired on attempt ' || attempts || '; giving up',
+                finished_at = LOCALTIMESTAMP, lease_owner = NULL, lease_expires_at = NULL
+            WHERE status = 'processing' AND (lease_expires_at IS NULL OR lease_expires_at < NOW())
+              AND attempts >= :maxAttempts
+            """, nativeQuery = true)
+    int failExhaustedLeases(@Param("maxAttempts") int maxAttempts);
+
+    /**
+     * Recovery sweep: put processing jobs whose lease expired (or that were
+     * never leased) back to pending, without their dedup key (see releaseLease).
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE public.index_jobs
+            SET status = 'pending', started_at = NULL, lease_owner = NULL, lease_expires_at = NULL,
+                dedup_key = NULL
+            WHERE status = 'processing' AND (lease_expires_at IS NULL OR lease_expires_at < NOW())
+            """, nativeQuery = true)
+    int requeueExpiredLeases();
 }
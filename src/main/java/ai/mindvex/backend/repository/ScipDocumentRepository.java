@@ -2,8 +2,11 @@ package ai.mindvex.backend.repository;
 
 import ai.mindvex.backend.entity.ScipDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +14,15 @@ public interface ScipDocumentRepository extends JpaRepository<ScipDocument, Long
 
     Optional<ScipDocument> findByUserIdAndRepoUrlAndRelativeUri(
             Long userId, String repoUrl, String relativeUri);
+
+    /**
+     * Current index state for a repo, used by incremental re-indexing.
+     *
+     * Result columns: id, relativeUri, contentHash
+     */
+    @Query("""
+            SELECT d.id, d.relativeUri, d.contentHash FROM ScipDocument d
+            WHERE d.userId = :uid AND d.repoUrl = :repo
+            """)
+    List<Object[]> findIndexState(@Param("uid") Long userId, @Param("repo") String repoUrl);
 }
@@ -4,6 +4,8 @@ import ai.mindvex.backend.entity.ScipSymbolInfo;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +13,7 @@ public interface ScipSymbolInfoRepository extends JpaRepository<ScipSymbolInfo,
 
     Optional<ScipSymbolInfo> findByUserIdAndRepoUrlAndSymbol(
             Long userId, String repoUrl, String symbol);
+
+    List<ScipSymbolInfo> findByUserIdAndRepoUrlAndSymbolIn(
+            Long userId, String repoUrl, Collection<String> symbols);
 }
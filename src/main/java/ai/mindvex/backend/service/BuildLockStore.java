@@ -0,0 +1,108 @@
+package ai.mindvex.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Named build leases in public.build_locks (see V28). They serialise graph
+ * and embedding builds of the same user and repo across nodes without
+ * holding a transaction, and so a pooled connection, for the length of the
+ * build.
+ *
+ * acquire() commits on its own; the build then commits its work in short
+ * batches and calls Lease.renew() from them. A lease not renewed for
+ * app.builds.lock-lease-seconds is taken over by the next build that asks
+ * for it, so a build on a node that died does not block its repo forever.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BuildLockStore {
+
+    private static final String ACQUIRE_SQL = """
+            INSERT INTO public.build_locks (lock_key, owner, expires_at)
+            VALUES (?, ?, NOW() + make_interval(secs => ?))
+            ON CONFLICT (lock_key) DO UPDATE
+                SET owner = EXCLUDED.owner, expires_at = EXCLUDED.expires_at
+                WHERE build_locks.expires_at < NOW()
+            """;
+
+    private static final long POLL_MILLIS = 500;
+
+    private final JdbcTemplate jdbc;
+
+    @Value("${app.builds.lock-lease-seconds:600}")
+    private int leaseSeconds;
+
+    /**
+     * Block until the lease on key is free (or expired) and take it.
+     *
+     * @throws IOException if the thread is interrupted while waiting
+     */
+    public Lease acquire(String key) throws IOException {
+        String owner = UUID.randomUUID().toString();
+        boolean waiting = false;
+        while (jdbc.update(ACQUIRE_SQL, key, owner, leaseSeconds) == 0) {
+            if (!waiting) {
+                log.info("[BuildLock] Waiting for {}", key);
+                waiting = true;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for build lock " + key, e);
+            }
+        }
+        return new Lease(key, owner);
+    }
+
+    /**
+     * Whether any build holds key, including one whose lease expired without
+     * being released. Joins the caller's transaction, so a REPEATABLE READ
+     * caller sees the lease as of its snapshot.
+     */
+    public boolean isHeld(String key) {
+        Boolean held = jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM public.build_locks WHERE lock_key = ?)", Boolean.class, key);
+        return Boolean.TRUE.equals(held);
+    }
+
+    /** A taken lease; close() releases it. */
+    public final class Lease implements AutoCloseable {
+
+        private final String key;
+        private final String owner;
+
+        private Lease(String key, String owner) {
+            this.key = key;
+            this.owner = owner;
+        }
+
+        /**
+         * Push the expiry out by another lease period. Joins the caller's
+         * transaction, so call it from the batch transactions of the build.
+         *
+         * @throws IllegalStateException if the lease expired and was taken over
+         */
+        public void renew() {
+            int renewed = jdbc.update("""
+                    UPDATE public.build_locks SET expires_at = NOW() + make_interval(secs => ?)
+                    WHERE lock_key = ? AND owner = ?
+                    """, leaseSeconds, key, owner);
+            if (renewed == 0)
+                throw new IllegalStateException("Build lock " + key + " was taken over by another build");
+        }
+
+        @Override
+        public void close() {
+            jdbc.update("DELETE FROM public.build_locks WHERE lock_key = ? AND owner = ?", key, owner);
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package ai.mindvex.backend.service;
 
-import ai.mindvex.backend.entity.FileDependency;
 import ai.mindvex.backend.repository.FileDependencyRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -40,51 +39,56 @@ public class DependencyEngine {
 
     /**
      * Derive file→file edges from SCIP data and persist them.
-     * Clears existing edges for the repo before rebuilding.
+     * Clears the repo's existing 'reference' edges before rebuilding; the
+     * 'import' edges of graph_build are left alone.
+     *
+     * Runs entirely inside PostgreSQL as one INSERT ... SELECT: a definitions
+     * CTE pre-aggregates the (symbol, defining document) pairs of the repo,
+     * then every reference occurrence is joined against it by symbol id and
+     * grouped per (source, target) file pair. weight is the number of
+     * references that produced the edge.
+     *
+     * SCIP local symbols ("local N") are only unique within a document and are
+     * excluded, otherwise every pair of files with locals would be linked.
      */
     @Transactional
     public int extractEdges(Long userId, String repoUrl) {
         log.info("[DependencyEngine] Extracting edges for user={} repo={}", userId, repoUrl);
 
         // Delete stale edges
-        depRepo.deleteByUserIdAndRepoUrl(userId, repoUrl);
+        jdbc.update("DELETE FROM code_graph.file_dependencies "
+                + "WHERE user_id = ? AND repo_url = ? AND dep_type = 'reference'", userId, repoUrl);
 
-        // Cross-join occurrences: find symbols defined in one doc, referenced in
-        // another
         // role_flags & 1 = definition; role_flags & 2 = reference
         String sql = """
-                SELECT DISTINCT
-                    ref_doc.relative_uri  AS source_file,
-                    def_doc.relative_uri  AS target_file,
-                    'reference'           AS dep_type
+                INSERT INTO code_graph.file_dependencies
+                    (user_id, repo_url, source_file, target_file, dep_type, weight)
+                WITH repo_docs AS (
+                    SELECT id, relative_uri
+                    FROM code_intelligence.scip_documents
+                    WHERE user_id = ? AND repo_url = ?
+                ),
+                definitions AS (
+                    SELECT DISTINCT o.symbol_id, o.document_id
+                    FROM code_intelligence.scip_occurrences o
+                    JOIN repo_docs d                         ON d.id = o.document_id
+                    JOIN code_intelligence.scip_symbol_ids s ON s.id = o.symbol_id
+                    WHERE (o.role_flags & ?) > 0             -- definition
+                      AND s.symbol NOT LIKE 'local %'
+                )
+                SELECT ?, ?, ref_doc.relative_uri, def_doc.relative_uri, 'reference', COUNT(*)
                 FROM code_intelligence.scip_occurrences ref_occ
-                JOIN code_intelligence.scip_documents   ref_doc ON ref_doc.id = ref_occ.document_id
-                JOIN code_intelligence.scip_occurrences def_occ ON def_occ.symbol = ref_occ.symbol
-                JOIN code_intelligence.scip_documents   def_doc ON def_doc.id = def_occ.document_id
-                WHERE ref_doc.user_id = ?
-                  AND ref_doc.repo_url = ?
-                  AND def_doc.user_id  = ?
-                  AND def_doc.repo_url = ?
-                  AND (ref_occ.role_flags & ?) > 0   -- reference
-                  AND (def_occ.role_flags & ?) > 0   -- definition
-                  AND ref_doc.id <> def_doc.id        -- cross-file only
+                JOIN repo_docs   ref_doc ON ref_doc.id = ref_occ.document_id
+                JOIN definitions def     ON def.symbol_id = ref_occ.symbol_id
+                                        AND def.document_id <> ref_occ.document_id  -- cross-file only
+                JOIN repo_docs   def_doc ON def_doc.id = def.document_id
+                WHERE (ref_occ.role_flags & ?) > 0   -- reference
+                GROUP BY ref_doc.relative_uri, def_doc.relative_uri
                 """;
 
-        List<FileDependency> edges = new ArrayList<>();
-        jdbc.query(sql,
-                rs -> {
-                    edges.add(new FileDependency(
-                            userId,
-                            repoUrl,
-                            rs.getString("source_file"),
-                            rs.getString("target_file"),
-                            rs.getString("dep_type")));
-                },
-                userId, repoUrl, userId, repoUrl, ROLE_REFERENCE, ROLE_DEFINITION);
-
-        depRepo.saveAll(edges);
-        log.info("[DependencyEngine] Saved {} edges for {}", edges.size(), repoUrl);
-        return edges.size();
+        int edges = jdbc.update(sql, userId, repoUrl, ROLE_DEFINITION, userId, repoUrl, ROLE_REFERENCE);
+        log.info("[DependencyEngine] Saved {} edges for {}", edges, repoUrl);
+        return edges;
     }
 
     // ─── Transitive Dependency Tree ───────────────────────────────────────────
@@ -0,0 +1,104 @@
+package ai.mindvex.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Commit each repo's vector embeddings were last built from
+ * (code_intelligence.embedding_builds, see V26), so EmbeddingIngestionService
+ * can skip a repo whose head has not moved and copy the embeddings of a
+ * public repo another user already built at the same commit.
+ *
+ * All methods except lock() join the caller's transaction. lock() takes a
+ * BuildLockStore lease that serialises ingestion of the same user and repo
+ * until it is closed, without holding a transaction open.
+ */
+@Component
+@RequiredArgsConstructor
+public class EmbeddingBuildStore {
+
+    private static final String UPSERT_BUILD_SQL = """
+            INSERT INTO code_intelligence.embedding_builds (user_id, repo_url, commit_sha, chunks, built_at)
+            VALUES (?, ?, ?, ?, NOW())
+            ON CONFLICT (user_id, repo_url)
+            DO UPDATE SET commit_sha = EXCLUDED.commit_sha, chunks = EXCLUDED.chunks, built_at = EXCLUDED.built_at
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final BuildLockStore locks;
+
+    /** One recorded build. */
+    public record Build(String commitSha, int chunks) {
+    }
+
+    /** Block until no other build is ingesting this repo and take its lease. */
+    public BuildLockStore.Lease lock(Long userId, String repoUrl) throws IOException {
+        return locks.acquire(lockKey(userId, repoUrl));
+    }
+
+    private static String lockKey(Long userId, String repoUrl) {
+        return "embeddings:" + userId + ":" + repoUrl;
+    }
+
+    /** Last build of the repo, or null. */
+    public Build lastBuild(Long userId, String repoUrl) {
+        List<Build> rows = jdbc.query(
+                "SELECT commit_sha, chunks FROM code_intelligence.embedding_builds WHERE user_id = ? AND repo_url = ?",
+                (rs, i) -> new Build(rs.getString("commit_sha"), rs.getInt("chunks")), userId, repoUrl);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public void recordBuild(Long userId, String repoUrl, String commitSha, int chunks) {
+        jdbc.update(UPSERT_BUILD_SQL, userId, repoUrl, commitSha, chunks);
+    }
+
+    /** Drop the build marker; call whenever the repo's embeddings are replaced outside a recorded build. */
+    public void forget(Long userId, String repoUrl) {
+        jdbc.update("DELETE FROM code_intelligence.embedding_builds WHERE user_id = ? AND repo_url = ?",
+                userId, repoUrl);
+    }
+
+    /**
+     * Replace the repo's embeddings with another user's build of the same
+     * repo at commitSha. Only for public repos; call under lock(userId,
+     * repoUrl) in a REPEATABLE READ transaction, so the donor's lease, build
+     * marker and rows are all read from one snapshot. A donor that is being
+     * ingested as of that snapshot is skipped.
+     *
+     * @return chunks copied, or -1 if there was no usable donor
+     */
+    public int copyFromOtherUser(Long userId, String repoUrl, String commitSha) {
+        List<Map<String, Object>> donors = jdbc.queryForList("""
+                SELECT user_id, repo_url FROM code_intelligence.embedding_builds
+                WHERE public.canonical_repo_url(repo_url) = public.canonical_repo_url(?)
+                  AND commit_sha = ? AND user_id <> ?
+                """, repoUrl, commitSha, userId);
+        for (Map<String, Object> donor : donors) {
+            Long donorUser = ((Number) donor.get("user_id")).longValue();
+            String donorRepo = (String) donor.get("repo_url");
+            if (locks.isHeld(lockKey(donorUser, donorRepo)))
+                continue;
+            Build build = lastBuild(donorUser, donorRepo);
+            if (build == null || !commitSha.equals(build.commitSha()))
+                continue;
+
+            jdbc.update("DELETE FROM code_intelligence.vector_embeddings WHERE user_id = ? AND repo_url = ?",
+                    userId, repoUrl);
+            int chunks = jdbc.update("""
+                    INSERT INTO code_intelligence.vector_embeddings
+                        (user_id, repo_url, file_path, chunk_index, chunk_text, embedding)
+                    SELECT ?, ?, file_path, chunk_index, chunk_text, embedding
+                    FROM code_intelligence.vector_embeddings
+                    WHERE user_id = ? AND repo_url = ?
+                    """, userId, repoUrl, donorUser, donorRepo);
+            recordBuild(userId, repoUrl, commitSha, chunks);
+            return chunks;
+        }
+        return -1;
+    }
+}
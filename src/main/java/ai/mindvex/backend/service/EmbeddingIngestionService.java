@@ -2,19 +2,20 @@ package ai.mindvex.backend.service;
 
 import ai.mindvex.backend.entity.VectorEmbedding;
 import ai.mindvex.backend.repository.VectorEmbeddingRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -22,11 +23,17 @@ import java.util.stream.Collectors;
  * Ingests source code files as chunked vector embeddings into PostgreSQL.
  *
  * Workflow:
- * 1. Walk the cloned repo directory for source files
+ * 1. Read source files of the repo's HEAD as a SourceTree over its
+ * GitRepositoryCache mirror (no checkout)
  * 2. Chunk each file into ~50 line segments
  * 3. Call Gemini embedding API to generate 768-dim vectors
  * 4. Store (file_path, chunk_index, chunk_text, embedding) in vector_embeddings
  * table
+ *
+ * Chunks are committed in batches that end on a file boundary, each together
+ * with an "embed" job checkpoint (commit, chunks so far, last file). A job
+ * retried at the same commit keeps the committed rows and continues after
+ * the last file instead of calling the embedding API for the whole repo again.
  */
 @Service
 @RequiredArgsConstructor
@@ -34,6 +41,9 @@ import java.util.stream.Collectors;
 public class EmbeddingIngestionService {
 
     private final VectorEmbeddingRepository embeddingRepo;
+    private final GitRepositoryCache repositoryCache;
+    private final EmbeddingBuildStore buildStore;
+    private final PlatformTransactionManager transactionManager;
     private final RestTemplate restTemplate = new RestTemplate();
 
     @Value("${gemini.api-key:#{null}}")
@@ -48,53 +58,77 @@ public class EmbeddingIngestionService {
             ".rs", ".cs", ".cpp", ".c", ".h", ".rb", ".swift", ".md");
     private static final Set<String> SKIP_DIRS = Set.of(
             "node_modules", ".git", "dist", "build", "target", "__pycache__", "vendor");
+    private static final SourceTree.Filter TREE_FILTER = SourceTree.Filter.extensions(SOURCE_EXTENSIONS)
+            .skippingDirs(SKIP_DIRS)
+            .withMaxFileBytes(499_999);
+
+    /** Job checkpoint stage of an embedding run. */
+    static final String CHECKPOINT_STAGE = "embed";
+    /** Chunks per committed batch; a batch only ends after a whole file. */
+    private static final int BATCH_CHUNKS = 50;
+
+    private TransactionTemplate batchTx;
+    private TransactionTemplate copyTx;
+
+    @PostConstruct
+    void init() {
+        batchTx = new TransactionTemplate(transactionManager);
+        batchTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        copyTx = new TransactionTemplate(transactionManager);
+        copyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        copyTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
 
     /**
-     * Ingest a cloned repo directory into vector embeddings.
+     * Ingest the source files of a tree into vector embeddings. Every batch
+     * commits in its own transaction and renews the build lease.
      *
-     * @param userId  the owning user
-     * @param repoUrl the repo URL (used as key)
-     * @param repoDir the local path to the cloned repo
+     * @param userId      the owning user
+     * @param repoUrl     the repo URL (used as key)
+     * @param tree        files to embed, read lazily from the object database
+     * @param checkpoints where to resume from and record progress
+     * @param lease       the repo's build lease, see EmbeddingBuildStore.lock()
+     * @param progress    progress of the job running this, or NONE
      * @return number of chunks embedded
      */
-    @Transactional
-    public int ingestRepo(Long userId, String repoUrl, Path repoDir) throws IOException {
+    private int ingestRepo(Long userId, String repoUrl, SourceTree tree, JobCheckpointStore.Checkpoints checkpoints,
+            BuildLockStore.Lease lease, JobProgressPublisher.Tracker progress) throws IOException {
         log.info("[EmbeddingIngestion] Starting for user={} repo={}", userId, repoUrl);
+        String commitSha = tree.commitId().name();
+
+        Progress resumed = Progress.parse(checkpoints.load(CHECKPOINT_STAGE));
+        Collection<SourceTree.SourceFile> files;
+        int chunksBefore;
+        if (resumed != null && resumed.commitSha().equals(commitSha)) {
+            files = tree.filesAfter(resumed.lastPath());
+            chunksBefore = resumed.chunks();
+            log.info("[EmbeddingIngestion] Resuming {} after '{}' ({} chunks already stored)", repoUrl,
+                    resumed.lastPath(), chunksBefore);
+        } else {
+            // Clear stale embeddings
+            batchTx.executeWithoutResult(status -> {
+                lease.renew();
+                embeddingRepo.deleteByUserIdAndRepoUrl(userId, repoUrl);
+                buildStore.forget(userId, repoUrl);
+                checkpoints.save(CHECKPOINT_STAGE, new Progress(commitSha, 0, "").format());
+            });
+            files = tree.files();
+            chunksBefore = 0;
+        }
 
-        // Clear stale embeddings
-        embeddingRepo.deleteByUserIdAndRepoUrl(userId, repoUrl);
-
-        // Collect source files
-        List<Path> sourceFiles = new ArrayList<>();
-        Files.walkFileTree(repoDir, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                if (SKIP_DIRS.contains(dir.getFileName().toString())) {
-                    return FileVisitResult.SKIP_SUBTREE;
-                }
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                String name = file.getFileName().toString();
-                String ext = name.contains(".") ? name.substring(name.lastIndexOf('.')) : "";
-                if (SOURCE_EXTENSIONS.contains(ext.toLowerCase()) && attrs.size() < 500_000) {
-                    sourceFiles.add(file);
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
-
-        log.info("[EmbeddingIngestion] Found {} source files", sourceFiles.size());
+        log.info("[EmbeddingIngestion] Found {} source files, {} left to embed", tree.size(), files.size());
+        progress.stage(CHECKPOINT_STAGE, "files", files.size(), "Embedding " + files.size() + " files");
 
-        int totalChunks = 0;
+        int totalChunks = chunksBefore;
         List<VectorEmbedding> batch = new ArrayList<>();
 
-        for (Path file : sourceFiles) {
-            String relativePath = repoDir.relativize(file).toString().replace('\\', '/');
+        for (SourceTree.SourceFile file : files) {
+            String relativePath = file.path();
             try {
-                String content = Files.readString(file);
+                // Strict decoding: files that are not valid UTF-8 are skipped
+                String content = StandardCharsets.UTF_8.newDecoder()
+                        .decode(ByteBuffer.wrap(file.bytes()))
+                        .toString();
                 String extension = relativePath.substring(relativePath.lastIndexOf('.'));
                 List<String> chunks = semanticChunkCode(content, extension);
 
@@ -112,20 +146,20 @@ public class EmbeddingIngestionService {
                             .build());
 
                     totalChunks++;
-
-                    // Batch save every 50 chunks
-                    if (batch.size() >= 50) {
-                        embeddingRepo.saveAll(batch);
-                        batch.clear();
-                    }
                 }
             } catch (Exception e) {
                 log.debug("[EmbeddingIngestion] Skipping {}: {}", relativePath, e.getMessage());
             }
+
+            if (batch.size() >= BATCH_CHUNKS) {
+                saveBatch(batch, checkpoints, lease, new Progress(commitSha, totalChunks, relativePath));
+            }
+            progress.advance(1);
         }
 
         if (!batch.isEmpty()) {
-            embeddingRepo.saveAll(batch);
+            String lastPath = batch.get(batch.size() - 1).getFilePath();
+            saveBatch(batch, checkpoints, lease, new Progress(commitSha, totalChunks, lastPath));
         }
 
         log.info("[EmbeddingIngestion] Ingested {} chunks for {}", totalChunks, repoUrl);
@@ -133,47 +167,107 @@ public class EmbeddingIngestionService {
     }
 
     /**
-     * Clone a repository and ingest embeddings.
-     * Handles cloning with authentication and cleanup.
+     * Open the repo's cached mirror and ingest embeddings from its HEAD.
      *
      * @param userId      the owning user
      * @param repoUrl     repository URL
      * @param accessToken GitHub access token (may be null for public repos)
      * @return number of chunks embedded
      */
-    @Transactional
     public int extractAndIngestRepo(Long userId, String repoUrl, String accessToken) throws IOException {
-        log.info("[EmbeddingIngestion] Cloning and ingesting embeddings for user={} repo={}", userId, repoUrl);
-
-        Path tempDir = Files.createTempDirectory("mindvex-embeddings-");
+        log.info("[EmbeddingIngestion] Ingesting embeddings for user={} repo={}", userId, repoUrl);
 
         try {
             // Normalize repo URL
             String normalizedUrl = normalizeRepoUrl(repoUrl);
-            log.info("[EmbeddingIngestion] Cloning {} into {}", normalizedUrl, tempDir);
 
-            var cloneCmd = Git.cloneRepository()
-                    .setURI(normalizedUrl)
-                    .setDirectory(tempDir.toFile())
-                    .setDepth(1); // shallow clone for speed
+            try (GitRepositoryCache.Handle handle = repositoryCache.open(
+                    normalizedUrl, accessToken, GitRepositoryCache.History.TIP)) {
+                return ingestRepo(userId, repoUrl, handle, false, JobCheckpointStore.Checkpoints.NONE,
+                        JobProgressPublisher.Tracker.NONE);
+            }
 
-            // Add GitHub authentication if access token is provided
-            if (accessToken != null && !accessToken.isBlank()) {
-                log.info("[EmbeddingIngestion] Using GitHub authentication for private repository");
-                cloneCmd.setCredentialsProvider(new UsernamePasswordCredentialsProvider("oauth2", accessToken));
+        } catch (Exception e) {
+            log.error("[EmbeddingIngestion] Failed to ingest {}: {}", repoUrl, e.getMessage(), e);
+            throw new IOException("Failed to generate embeddings: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ingest embeddings from the head of an already opened mirror. Nothing is
+     * re-embedded if the repo was last embedded at that commit; a public repo
+     * another user already embedded at that commit is copied from their rows.
+     *
+     * Runs without an enclosing transaction: the repo's build lease is taken
+     * in its own short statement and the embeddings are committed in batches.
+     *
+     * @param userId      the owning user
+     * @param repoUrl     the repo URL (used as key)
+     * @param handle      open mirror, e.g. shared with SourceCodeDependencyExtractor
+     * @param publicRepo  whether the repo is public, so results may be shared
+     * @param checkpoints checkpoints of the job running this, or NONE
+     * @param progress    progress of the job running this, or NONE
+     * @return number of chunks embedded
+     */
+    public int ingestRepo(Long userId, String repoUrl, GitRepositoryCache.Handle handle, boolean publicRepo,
+            JobCheckpointStore.Checkpoints checkpoints, JobProgressPublisher.Tracker progress) throws IOException {
+        String head = handle.head().name();
+        try (BuildLockStore.Lease lease = buildStore.lock(userId, repoUrl)) {
+            EmbeddingBuildStore.Build last = buildStore.lastBuild(userId, repoUrl);
+            if (last != null && head.equals(last.commitSha())) {
+                log.info("[EmbeddingIngestion] {} already embedded at {}", repoUrl, head);
+                return last.chunks();
             }
+            if (publicRepo) {
+                Integer copied = copyTx.execute(status -> buildStore.copyFromOtherUser(userId, repoUrl, head));
+                if (copied != null && copied >= 0) {
+                    log.info("[EmbeddingIngestion] Reused another user's {} chunks of {} at {}", copied, repoUrl,
+                            head);
+                    return copied;
+                }
+            }
+
+            int chunks = ingestRepo(userId, repoUrl,
+                    SourceTree.read(handle.repository(), handle.head(), TREE_FILTER), checkpoints, lease, progress);
+            buildStore.recordBuild(userId, repoUrl, head, chunks);
+            return chunks;
+        }
+    }
 
-            cloneCmd.call();
+    // ─── Batches ──────────────────────────────────────────────────────────────
 
-            // Ingest embeddings from the cloned repository
-            return ingestRepo(userId, repoUrl, tempDir);
+    /** Commit a batch of chunks together with the checkpoint it reaches. */
+    private void saveBatch(List<VectorEmbedding> batch, JobCheckpointStore.Checkpoints checkpoints,
+            BuildLockStore.Lease lease, Progress progress) {
+        batchTx.executeWithoutResult(status -> {
+            lease.renew();
+            embeddingRepo.saveAll(batch);
+            checkpoints.save(CHECKPOINT_STAGE, progress.format());
+        });
+        batch.clear();
+    }
 
-        } catch (Exception e) {
-            log.error("[EmbeddingIngestion] Failed to clone and ingest {}: {}", repoUrl, e.getMessage(), e);
-            throw new IOException("Failed to generate embeddings: " + e.getMessage(), e);
-        } finally {
-            // Clean up temp directory
-            deleteRecursively(tempDir);
+    /**
+     * Checkpoint of an embedding run: every file up to and including lastPath
+     * (path order) of commitSha is stored, chunks chunks in total.
+     */
+    private record Progress(String commitSha, int chunks, String lastPath) {
+
+        String format() {
+            return commitSha + " " + chunks + " " + lastPath;
+        }
+
+        static Progress parse(String state) {
+            if (state == null)
+                return null;
+            String[] parts = state.split(" ", 3);
+            if (parts.length < 3)
+                return null;
+            try {
+                return new Progress(parts[0], Integer.parseInt(parts[1]), parts[2]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
         }
     }
 
@@ -208,27 +302,6 @@ public class EmbeddingIngestionService {
         return repoUrl;
     }
 
-    /**
-     * Delete directory recursively.
-     */
-    private void deleteRecursively(Path path) {
-        try {
-            if (Files.exists(path)) {
-                Files.walk(path)
-                        .sorted(Comparator.reverseOrder())
-                        .forEach(p -> {
-                            try {
-                                Files.delete(p);
-                            } catch (IOException e) {
-                                log.warn("[EmbeddingIngestion] Failed to delete {}: {}", p, e.getMessage());
-                            }
-                        });
-            }
-        } catch (IOException e) {
-            log.warn("[EmbeddingIngestion] Failed to clean up {}: {}", path, e.getMessage());
-        }
-    }
-
     /**
      * Search for code chunks semantically similar to a query.
      */
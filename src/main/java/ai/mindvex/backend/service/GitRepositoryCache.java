@@ -0,0 +1,521 @@
+package ai.mindvex.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.NoRemoteRepositoryException;
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.FetchResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Shared, persistent cache of bare repository mirrors.
+ *
+ * Every clone site (graph extraction, embeddings, history mining, the clone
+ * endpoint) opens repositories through here, so a repo is cloned once and
+ * later uses only fetch new objects. Mirrors live in
+ * <repoBaseDir>/<sha256(canonicalUrl)[0..16]>/ and are read straight from the object
+ * database with TreeWalk / ObjectReader; nothing is ever checked out.
+ *
+ * Mirrors are cloned shallow (depth 1) for callers that only need the tip
+ * and deepened to full history the first time a caller asks for
+ * History.FULL; full mirrors stay full. Auto-gc is disabled so commits a
+ * caller built from earlier stay readable after later fetches.
+ *
+ * Concurrency: clone and fetch of a mirror are serialised by a per-mirror
+ * mutex. An open Handle holds the mirror's read lock until it is closed;
+ * eviction needs the write lock and skips mirrors in use, so a mirror is
+ * never deleted under a reader. Eviction removes a mirror inside
+ * mirrors.compute() for its key and renames its directory aside there, a
+ * single rename, so a concurrent open() of the same repo never sees the old
+ * directory; the renamed directory is deleted after compute() returns, so
+ * the map's lock is never held for a recursive delete.
+ *
+ * Eviction is LRU: after each open, least recently used mirrors are deleted
+ * until the cache is within app.git.cache.max-bytes and
+ * app.git.cache.max-repos. A mirror's size is measured after a clone or a
+ * fetch that received objects, not on every open.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GitRepositoryCache {
+
+    /** How much history a caller needs. */
+    public enum History {
+        /** Only the tip of the default branch. */
+        TIP,
+        /** The whole history of the default branch. */
+        FULL
+    }
+
+    private static final int CLONE_ATTEMPTS = 3;
+    /** Suffix of mirror directories renamed aside for deletion. */
+    private static final String EVICTED_SUFFIX = ".evicted-";
+    private static final int TIMEOUT_SECONDS = 300;
+
+    @Value("${app.git.repo-base-dir:${java.io.tmpdir}/mindvex-repos}")
+    private String repoBaseDir;
+
+    /** Disk quota for all mirrors together. */
+    @Value("${app.git.cache.max-bytes:10737418240}")
+    private long maxBytes;
+
+    /** Mirrors kept on disk. */
+    @Value("${app.git.cache.max-repos:100}")
+    private int maxRepos;
+
+    private static final class Mirror {
+        final File dir;
+        final ReentrantReadWriteLock useLock = new ReentrantReadWriteLock();
+        final Object fetchLock = new Object();
+        volatile long lastUsed;
+        volatile long sizeBytes;
+        volatile boolean evicted;
+
+        Mirror(File dir) {
+            this.dir = dir;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Mirror> mirrors = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Index mirrors left on disk by a previous run, oldest first, and finish
+     * deleting mirrors it evicted.
+     */
+    @PostConstruct
+    void init() {
+        File base = new File(repoBaseDir);
+        File[] evicted = base.listFiles(dir -> dir.isDirectory() && dir.getName().contains(EVICTED_SUFFIX));
+        if (evicted != null) {
+            for (File dir : evicted)
+                deleteRecursively(dir.toPath());
+        }
+        File[] dirs = base.listFiles(dir -> dir.isDirectory() && new File(dir, "HEAD").exists());
+        if (dirs == null)
+            return;
+        List<File> ordered = new ArrayList<>(List.of(dirs));
+        ordered.sort(Comparator.comparingLong(File::lastModified));
+        for (File dir : ordered) {
+            Mirror mirror = new Mirror(dir);
+            mirror.lastUsed = clock.incrementAndGet();
+            mirror.sizeBytes = sizeOf(dir);
+            mirrors.put(dir.getName(), mirror);
+        }
+        log.info("[GitCache] Found {} cached mirrors in {}", mirrors.size(), base);
+    }
+
+    // ─── Open ─────────────────────────────────────────────────────────────────
+
+    /**
+     * Open the mirror of a repo, cloning it on first use and fetching the
+     * default branch otherwise. A failed fetch fails the call: the caller's
+     * credentials must be able to read the repo even when it is cached.
+     *
+     * @param repoUrl     repository URL (https, git@ or with/without .git)
+     * @param accessToken GitHub access token (may be null for public repos)
+     * @return handle to close when done reading
+     */
+    public Handle open(String repoUrl, String accessToken, History history) throws IOException {
+        String url = normalizeUrl(repoUrl);
+        String key = mirrorKey(canonicalUrl(repoUrl));
+
+        Mirror mirror;
+        while (true) {
+            mirror = mirrors.computeIfAbsent(key, k -> new Mirror(new File(repoBaseDir, k)));
+            mirror.useLock.readLock().lock();
+            if (!mirror.evicted)
+                break;
+            mirror.useLock.readLock().unlock();
+        }
+
+        try {
+            Git git;
+            synchronized (mirror.fetchLock) {
+                Fetched fetched = cloneOrFetch(url, mirror.dir, accessToken, history);
+                git = fetched.git();
+                if (fetched.changed() || mirror.sizeBytes == 0)
+                    mirror.sizeBytes = sizeOf(mirror.dir);
+            }
+            mirror.lastUsed = clock.incrementAndGet();
+
+            ObjectId head = git.getRepository().resolve(Constants.HEAD);
+            if (head == null) {
+                git.close();
+                throw new IOException("Repository has no commits: " + url);
+            }
+            evictIfNeeded();
+            return new Handle(mirror, git, head);
+        } catch (IOException | RuntimeException e) {
+            mirror.useLock.readLock().unlock();
+            throw e;
+        }
+    }
+
+    /** An open mirror; reads are safe from any thread, close on the opening thread. */
+    public static final class Handle implements AutoCloseable {
+
+        private final Mirror mirror;
+        private final Git git;
+        private final ObjectId head;
+
+        private Handle(Mirror mirror, Git git, ObjectId head) {
+            this.mirror = mirror;
+            this.git = git;
+            this.head = head;
+        }
+
+        public Git git() {
+            return git;
+        }
+
+        public Repository repository() {
+            return git.getRepository();
+        }
+
+        /** Tip of the default branch as of the fetch made by open(). */
+        public ObjectId head() {
+            return head;
+        }
+
+        /** Mirror directory name, stable per repo. */
+        public String name() {
+            return mirror.dir.getName();
+        }
+
+        @Override
+        public void close() {
+            git.close();
+            mirror.useLock.readLock().unlock();
+        }
+    }
+
+    // ─── Clone / Fetch ────────────────────────────────────────────────────────
+
+    /** An opened mirror, and whether the clone or fetch wrote anything to it. */
+    private record Fetched(Git git, boolean changed) {
+    }
+
+    private Fetched cloneOrFetch(String url, File dir, String accessToken, History history) throws IOException {
+        if (new File(dir, "HEAD").exists()) {
+            Git git;
+            try {
+                git = Git.open(dir);
+            } catch (IOException e) {
+                log.warn("[GitCache] Discarding unreadable mirror {}: {}", dir, e.getMessage());
+                deleteRecursively(dir.toPath());
+                return new Fetched(cloneWithRetry(url, dir, accessToken, history), true);
+            }
+            try {
+                return new Fetched(git, fetch(git, accessToken, history));
+            } catch (GitAPIException | IOException e) {
+                git.close();
+                throw new IOException("Fetch failed for " + url + ": " + e.getMessage(), e);
+            }
+        }
+        // Leftovers of an interrupted clone
+        deleteRecursively(dir.toPath());
+        return new Fetched(cloneWithRetry(url, dir, accessToken, history), true);
+    }
+
+    /**
+     * Fetch the mirror's default branch. Shallow mirrors stay at depth 1
+     * unless full history is needed, which deepens them for good.
+     *
+     * @return whether objects were received: the branch moved or the mirror
+     *         was deepened
+     */
+    private boolean fetch(Git git, String accessToken, History history) throws GitAPIException, IOException {
+        Repository repo = git.getRepository();
+        String branch = repo.getFullBranch();
+        boolean shallow = !repo.getObjectDatabase().getShallowCommits().isEmpty();
+
+        var fetchCmd = git.fetch()
+                .setRefSpecs(new RefSpec("+" + branch + ":" + branch))
+                .setTimeout(TIMEOUT_SECONDS);
+        if (shallow && history == History.FULL)
+            fetchCmd.setUnshallow(true);
+        else if (shallow)
+            fetchCmd.setDepth(1);
+        if (accessToken != null && !accessToken.isBlank())
+            fetchCmd.setCredentialsProvider(credentials(accessToken));
+
+        log.info("[GitCache] Fetching {} into {}{}", branch, repo.getDirectory(),
+                shallow && history == History.FULL ? " (unshallow)" : "");
+        FetchResult result = fetchCmd.call();
+        return (shallow && history == History.FULL) || !result.getTrackingRefUpdates().isEmpty();
+    }
+
+    /**
+     * Clone repository with retry logic and exponential backoff.
+     */
+    private Git cloneWithRetry(String url, File dir, String accessToken, History history) throws IOException {
+        IOException lastException = null;
+
+        for (int attempt = 1; attempt <= CLONE_ATTEMPTS; attempt++) {
+            try {
+                log.info("[GitCache] Clone attempt {}/{} for {} into {}", attempt, CLONE_ATTEMPTS, url, dir);
+                dir.mkdirs();
+
+                var cloneCmd = Git.cloneRepository()
+                        .setURI(url)
+                        .setDirectory(dir)
+                        .setBare(true) // objects only; readers use the object database
+                        .setTimeout(TIMEOUT_SECONDS);
+                if (history == History.TIP)
+                    cloneCmd.setDepth(1);
+                if (accessToken != null && !accessToken.isBlank())
+                    cloneCmd.setCredentialsProvider(credentials(accessToken));
+
+                Git git = cloneCmd.call();
+
+                StoredConfig config = git.getRepository().getConfig();
+                config.setInt("gc", null, "auto", 0);
+                config.save();
+
+                log.info("[GitCache] Cloned {} on attempt {}", url, attempt);
+                return git;
+
+            } catch (GitAPIException e) {
+                lastException = new IOException("Clone failed on attempt " + attempt + ": " + e.getMessage(), e);
+                log.warn("[GitCache] Attempt {}/{} failed: {}", attempt, CLONE_ATTEMPTS, e.getMessage());
+                deleteRecursively(dir.toPath());
+                if (isAccessDenied(e))
+                    throw lastException; // the same credentials will be refused again
+
+                if (attempt < CLONE_ATTEMPTS) {
+                    // Exponential backoff: 2, 4 seconds
+                    long waitTime = (long) Math.pow(2, attempt) * 1000;
+                    try {
+                        Thread.sleep(waitTime);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Clone interrupted", ie);
+                    }
+                }
+            }
+        }
+
+        log.error("[GitCache] All {} clone attempts failed for {}", CLONE_ATTEMPTS, url);
+        throw lastException;
+    }
+
+    /**
+     * Whether a clone or fetch failed because the remote refused the
+     * credentials or has no such repository (bad or missing token, private
+     * or deleted repo), anywhere in the cause chain. Retrying cannot help.
+     */
+    static boolean isAccessDenied(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof NoRemoteRepositoryException)
+                return true;
+            if ((e instanceof TransportException || e instanceof org.eclipse.jgit.api.errors.TransportException)
+                    && e.getMessage() != null) {
+                String message = e.getMessage().toLowerCase(Locale.ROOT);
+                if (message.contains("not authorized")
+                        || message.contains("authentication is required")
+                        || message.contains("authentication not supported"))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private UsernamePasswordCredentialsProvider credentials(String token) {
+        return new UsernamePasswordCredentialsProvider("oauth2", token);
+    }
+
+    // ─── Visibility ───────────────────────────────────────────────────────────
+
+    private record Visibility(boolean isPublic, long checkedAt) {
+    }
+
+    private static final long VISIBILITY_TTL_MILLIS = 3_600_000;
+
+    private final ConcurrentHashMap<String, Visibility> visibility = new ConcurrentHashMap<>();
+
+    /**
+     * Whether anyone can read the repo: its refs can be listed without
+     * credentials. Answers are cached for an hour; any error counts as
+     * private.
+     */
+    public boolean isPublic(String repoUrl) {
+        String url = normalizeUrl(repoUrl);
+        String key = canonicalUrl(repoUrl);
+        Visibility cached = visibility.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.checkedAt() < VISIBILITY_TTL_MILLIS)
+            return cached.isPublic();
+
+        boolean isPublic;
+        try {
+            Git.lsRemoteRepository().setRemote(url).setHeads(true).setTimeout(30).call();
+            isPublic = true;
+        } catch (GitAPIException | RuntimeException e) {
+            isPublic = false;
+        }
+        visibility.put(key, new Visibility(isPublic, System.currentTimeMillis()));
+        return isPublic;
+    }
+
+    // ─── Eviction ─────────────────────────────────────────────────────────────
+
+    /** Delete least recently used idle mirrors until the cache fits its limits. */
+    private void evictIfNeeded() {
+        long totalBytes = 0;
+        for (Mirror mirror : mirrors.values())
+            totalBytes += mirror.sizeBytes;
+        if (totalBytes <= maxBytes && mirrors.size() <= maxRepos)
+            return;
+
+        List<Mirror> byAge = new ArrayList<>(mirrors.values());
+        byAge.sort(Comparator.comparingLong(mirror -> mirror.lastUsed));
+        int count = byAge.size();
+        for (Mirror mirror : byAge) {
+            if (totalBytes <= maxBytes && count <= maxRepos)
+                break;
+            if (!evict(mirror))
+                continue;
+            totalBytes -= mirror.sizeBytes;
+            count--;
+            log.info("[GitCache] Evicted {} ({} bytes)", mirror.dir, mirror.sizeBytes);
+        }
+    }
+
+    /**
+     * Remove a mirror from the cache and delete its directory, unless it has
+     * open handles (including the caller's) or was replaced meanwhile.
+     *
+     * Inside compute() for the mirror's key the mirror is only marked evicted,
+     * dropped from the map and its directory renamed aside, so a concurrent
+     * open() of the same repo clones into a fresh directory. The renamed
+     * directory is deleted afterwards, outside the map's lock.
+     */
+    private boolean evict(Mirror mirror) {
+        Path graveyard = new File(mirror.dir.getParentFile(),
+                mirror.dir.getName() + EVICTED_SUFFIX + clock.incrementAndGet()).toPath();
+        mirrors.compute(mirror.dir.getName(), (key, current) -> {
+            if (current != mirror || !mirror.useLock.writeLock().tryLock())
+                return current;
+            try {
+                if (mirror.dir.exists())
+                    Files.move(mirror.dir.toPath(), graveyard, StandardCopyOption.ATOMIC_MOVE);
+                mirror.evicted = true;
+                return null;
+            } catch (IOException e) {
+                log.warn("[GitCache] Cannot move {} aside for eviction: {}", mirror.dir, e.getMessage());
+                return current;
+            } finally {
+                mirror.useLock.writeLock().unlock();
+            }
+        });
+        if (mirror.evicted)
+            deleteRecursively(graveyard);
+        return mirror.evicted;
+    }
+
+    // ─── Helpers ──────────────────────────────────────────────────────────────
+
+    /**
+     * One spelling per repo, so every caller shares the same mirror: the
+     * normalized URL in lower case. Matches public.canonical_repo_url (V26).
+     */
+    static String canonicalUrl(String repoUrl) {
+        return normalizeUrl(repoUrl).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * URL to clone and fetch from: https, no trailing slash, no .git suffix.
+     * Case is kept, since not every host treats paths case-insensitively.
+     */
+    private static String normalizeUrl(String repoUrl) {
+        if (repoUrl == null || repoUrl.isBlank())
+            throw new IllegalArgumentException("Repository URL cannot be null or empty");
+        String u = repoUrl.trim();
+        while (u.endsWith("/"))
+            u = u.substring(0, u.length() - 1);
+        if (u.startsWith("git@github.com:"))
+            u = "https://github.com/" + u.substring("git@github.com:".length());
+        if (u.endsWith(".git"))
+            u = u.substring(0, u.length() - 4);
+        return u;
+    }
+
+    private static String mirrorKey(String url) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long sizeOf(File dir) {
+        try (Stream<Path> files = Files.walk(dir.toPath())) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    private void deleteRecursively(Path dir) {
+        if (!Files.exists(dir))
+            return;
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("[GitCache] Failed to delete {}: {}", dir, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.controller.WebSocketGraphController;
+import ai.mindvex.backend.dto.GraphEdgeDto;
+import ai.mindvex.backend.dto.GraphNodeDto;
+import ai.mindvex.backend.dto.GraphUpdateMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The graph_build job, run by IndexJobWorker as a fixed sequence of stages:
+ *
+ * - clone : open the repo's cached mirror, fetched to the default branch tip,
+ * and check whether the repo is public
+ * - extract: bring the import graph up to date (SourceCodeDependencyExtractor)
+ * - embed : re-embed source files for semantic search (EmbeddingIngestionService)
+ * - notify : tell subscribers the graph is complete
+ *
+ * extract and embed read the same mirror handle, so the repo is fetched once
+ * per build. Both skip a commit they already built, and for public repos
+ * copy another user's results at the same commit instead of recomputing
+ * them; the fetch with the requesting user's token still runs first, so
+ * access is checked as usual. Each stage announces itself on /topic/graph-updates/{repoId} as
+ * a 'job_progress' message; a failure is broadcast as 'error' naming the
+ * stage it happened in, then rethrown so the job is marked failed. Stages and
+ * per-file embedding progress also go to the job's /topic/jobs/{jobId}
+ * stream (JobProgressPublisher).
+ *
+ * The extract stage streams the graph as it is built: a full build first
+ * sends 'graph_reset' (drop the graph shown so far), then every slice of
+ * edges the extractor saves goes out as a 'batch_update' delta with the
+ * edges added and removed and the nodes not sent before in this build, at
+ * most MAX_EDGES_PER_DELTA edges per message. Deltas carry metadata.sequence
+ * numbered from 1, and 'complete' repeats the last one, so a client that
+ * sees a gap refetches /api/graph/dependencies. Each delta is sent once the
+ * slice it describes has committed; after an 'error' the stored graph may be
+ * partly updated, so clients should refetch too.
+ *
+ * A retried build resumes the embed stage from the job's checkpoint. The
+ * extract stage records the head commit only after its last slice, so a
+ * retry repeats it from the previous build (skipping it once head is built)
+ * and converges on the same graph.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GraphBuildPipeline {
+
+    private final SourceCodeDependencyExtractor sourceCodeExtractor;
+    private final EmbeddingIngestionService embeddingIngestionService;
+    private final WebSocketGraphController webSocketController;
+    private final GitRepositoryCache repositoryCache;
+
+    /** Edges (added plus removed) per graph delta message. */
+    static final int MAX_EDGES_PER_DELTA = 500;
+
+    public enum Stage {
+        CLONE, EXTRACT, EMBED, NOTIFY;
+
+        public String label() {
+            return name().toLowerCase();
+        }
+    }
+
+    /** What one build produced; stored as the job's payload. */
+    public record Result(int edges, int chunks) {
+    }
+
+    /**
+     * Run every stage for one repo.
+     *
+     * @param accessToken GitHub access token (may be null for public repos)
+     * @param checkpoints checkpoints of the job, for resuming a retried build
+     * @param progress    progress of the job, published per stage and per file embedded
+     */
+    public Result run(Long userId, String repoUrl, String accessToken, JobCheckpointStore.Checkpoints checkpoints,
+            JobProgressPublisher.Tracker progress) throws Exception {
+        String repoId = repoId(repoUrl);
+        DeltaStream deltas = new DeltaStream(webSocketController, repoId);
+        Stage stage = Stage.CLONE;
+        broadcast(repoId, "job_started", stage, "processing", "Graph extraction started");
+
+        try {
+            progress(repoId, progress, stage, "Fetching repository");
+            try (GitRepositoryCache.Handle handle = sourceCodeExtractor.openRepo(repoUrl, accessToken)) {
+                boolean publicRepo = repositoryCache.isPublic(repoUrl);
+
+                stage = Stage.EXTRACT;
+                progress(repoId, progress, stage, "Extracting imports at " + handle.head().abbreviate(7).name());
+                int edges = sourceCodeExtractor.extractFromRepo(userId, repoUrl, handle, publicRepo, deltas);
+                log.info("[GraphBuildPipeline] {} edges extracted for {}", edges, repoUrl);
+
+                stage = Stage.EMBED;
+                progress(repoId, progress, stage, "Generating embeddings");
+                int chunks = embeddingIngestionService.ingestRepo(userId, repoUrl, handle, publicRepo, checkpoints,
+                        progress);
+                log.info("[GraphBuildPipeline] {} chunks embedded for {}", chunks, repoUrl);
+
+                stage = Stage.NOTIFY;
+                webSocketController.sendCompletionNotification(repoId, 0, edges, deltas.sequence());
+                return new Result(edges, chunks);
+            }
+        } catch (Exception e) {
+            log.error("[GraphBuildPipeline] {} failed at stage {}: {}", repoUrl, stage.label(), e.getMessage());
+            broadcast(repoId, "error", stage, "failed", e.getMessage());
+            throw e;
+        }
+    }
+
+    // ─── Messages ─────────────────────────────────────────────────────────────
+
+    private void progress(String repoId, Stage stage, String message) {
+        broadcast(repoId, "job_progress", stage, "processing", message);
+    }
+
+    /** Announce a stage on both the repo topic and the job's progress topic. */
+    private void progress(String repoId, JobProgressPublisher.Tracker progress, Stage stage, String message) {
+        progress.stage(stage.label(), null, -1, message);
+        progress(repoId, stage, message);
+    }
+
+    private void broadcast(String repoId, String type, Stage stage, String status, String message) {
+        GraphUpdateMessage update = GraphUpdateMessage.builder()
+                .type(type)
+                .repoId(repoId)
+                .timestamp(System.currentTimeMillis())
+                .metadata(GraphUpdateMessage.UpdateMetadata.builder()
+                        .stage(stage.label())
+                        .status(status)
+                        .message(message)
+                        .build())
+                .build();
+
+        webSocketController.broadcastGraphUpdate(repoId, update);
+    }
+
+    // ─── Graph Deltas ─────────────────────────────────────────────────────────
+
+    /** Turns the extractor's edge batches into numbered graph delta messages. */
+    static final class DeltaStream implements SourceCodeDependencyExtractor.EdgeListener {
+
+        private final WebSocketGraphController webSocketController;
+        private final String repoId;
+        /** Node ids already sent in this build. */
+        private final Set<String> sentNodes = new HashSet<>();
+        private long sequence;
+
+        DeltaStream(WebSocketGraphController webSocketController, String repoId) {
+            this.webSocketController = webSocketController;
+            this.repoId = repoId;
+        }
+
+        /** Sequence number of the last message sent; 0 before the first. */
+        long sequence() {
+            return sequence;
+        }
+
+        @Override
+        public void fullBuild() {
+            sentNodes.clear();
+            send(GraphUpdateMessage.builder().type("graph_reset"), "Full rebuild; graph follows");
+        }
+
+        @Override
+        public void edges(List<ImportGraphStore.Edge> added, List<ImportGraphStore.Edge> removed) {
+            int addedFrom = 0;
+            int removedFrom = 0;
+            while (addedFrom < added.size() || removedFrom < removed.size()) {
+                int removedTo = Math.min(removed.size(), removedFrom + MAX_EDGES_PER_DELTA);
+                int addedTo = Math.min(added.size(), addedFrom + MAX_EDGES_PER_DELTA - (removedTo - removedFrom));
+
+                List<GraphNodeDto> nodes = new ArrayList<>();
+                List<GraphEdgeDto> addedEdges = new ArrayList<>();
+                for (ImportGraphStore.Edge edge : added.subList(addedFrom, addedTo)) {
+                    addNode(nodes, edge.sourceFile());
+                    addNode(nodes, edge.targetFile());
+                    addedEdges.add(edgeDto(edge));
+                }
+                List<GraphEdgeDto> removedEdges = new ArrayList<>();
+                for (ImportGraphStore.Edge edge : removed.subList(removedFrom, removedTo)) {
+                    removedEdges.add(edgeDto(edge));
+                }
+
+                send(GraphUpdateMessage.builder()
+                        .type("batch_update")
+                        .nodes(nodes)
+                        .edges(addedEdges)
+                        .removedEdges(removedEdges),
+                        addedEdges.size() + " edges added, " + removedEdges.size() + " removed");
+                addedFrom = addedTo;
+                removedFrom = removedTo;
+            }
+        }
+
+        private void send(GraphUpdateMessage.GraphUpdateMessageBuilder message, String text) {
+            sequence++;
+            webSocketController.broadcastGraphUpdate(repoId, message
+                    .repoId(repoId)
+                    .timestamp(System.currentTimeMillis())
+                    .metadata(GraphUpdateMessage.UpdateMetadata.builder()
+                            .stage(Stage.EXTRACT.label())
+                            .status("processing")
+                            .sequence(sequence)
+                            .message(text)
+                            .build())
+                    .build());
+        }
+
+        private void addNode(List<GraphNodeDto> nodes, String path) {
+            String id = GraphNodeDto.idOf(path);
+            if (!sentNodes.add(id))
+                return;
+            int slash = path.lastIndexOf('/');
+            int dot = path.lastIndexOf('.');
+            nodes.add(GraphNodeDto.builder()
+                    .id(id)
+                    .label(path.substring(slash + 1))
+                    .fileType(dot > slash ? path.substring(dot + 1) : null)
+                    .metadata(GraphNodeDto.NodeMetadata.builder().fullPath(path).build())
+                    .build());
+        }
+
+        private GraphEdgeDto edgeDto(ImportGraphStore.Edge edge) {
+            return GraphEdgeDto.builder()
+                    .source(GraphNodeDto.idOf(edge.sourceFile()))
+                    .target(GraphNodeDto.idOf(edge.targetFile()))
+                    .type(ImportGraphStore.DEP_TYPE)
+                    .weight(1)
+                    .build();
+        }
+    }
+
+    /**
+     * Repository ID used as the WebSocket topic,
+     * e.g. "https://github.com/user/repo" -> "user-repo".
+     */
+    static String repoId(String repoUrl) {
+        String[] parts = repoUrl.replaceAll("\\.git$", "").split("/");
+        if (parts.length >= 2) {
+            return parts[parts.length - 2] + "-" + parts[parts.length - 1];
+        }
+        return repoUrl.replaceAll("[^a-zA-Z0-9-]", "-");
+    }
+}
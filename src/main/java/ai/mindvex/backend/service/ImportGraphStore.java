@@ -0,0 +1,235 @@
+package ai.mindvex.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Persisted state of the import graph built by SourceCodeDependencyExtractor:
+ * the commit it was built from (code_graph.graph_builds), the raw import
+ * specifiers of every scanned file (code_graph.file_imports, see V22) and
+ * the 'import' edges in code_graph.file_dependencies.
+ *
+ * All methods except lock() join the caller's transaction. lock() takes a
+ * BuildLockStore lease that serialises builds of the same user and repo
+ * until it is closed, without holding a transaction open.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImportGraphStore {
+
+    static final String DEP_TYPE = "import";
+
+    private static final String UPSERT_BUILD_SQL = """
+            INSERT INTO code_graph.graph_builds (user_id, repo_url, commit_sha, built_at)
+            VALUES (?, ?, ?, NOW())
+            ON CONFLICT (user_id, repo_url)
+            DO UPDATE SET commit_sha = EXCLUDED.commit_sha, built_at = EXCLUDED.built_at
+            """;
+
+    private static final String INSERT_IMPORTS_SQL = """
+            INSERT INTO code_graph.file_imports (user_id, repo_url, source_file, imports)
+            VALUES (?, ?, ?, ?)
+            """;
+
+    private static final String INSERT_EDGE_SQL = """
+            INSERT INTO code_graph.file_dependencies (user_id, repo_url, source_file, target_file, dep_type)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT DO NOTHING
+            """;
+
+    private final JdbcTemplate jdbc;
+    private final BuildLockStore locks;
+
+    /** One resolved import edge. */
+    public record Edge(String sourceFile, String targetFile) {
+    }
+
+    /** Block until no other build is building the graph of this repo and take its lease. */
+    public BuildLockStore.Lease lock(Long userId, String repoUrl) throws IOException {
+        return locks.acquire(lockKey(userId, repoUrl));
+    }
+
+    private static String lockKey(Long userId, String repoUrl) {
+        return "graph_build:" + userId + ":" + repoUrl;
+    }
+
+    // ─── Build Marker ─────────────────────────────────────────────────────────
+
+    /** Commit the repo's import graph was last built from, or null. */
+    public String lastCommit(Long userId, String repoUrl) {
+        List<String> rows = jdbc.queryForList(
+                "SELECT commit_sha FROM code_graph.graph_builds WHERE user_id = ? AND repo_url = ?",
+                String.class, userId, repoUrl);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public void recordBuild(Long userId, String repoUrl, String commitSha) {
+        jdbc.update(UPSERT_BUILD_SQL, userId, repoUrl, commitSha);
+    }
+
+    /**
+     * Drop the build marker and stored imports of a repo, so its next build
+     * starts from scratch. Call whenever the repo's import edges are removed
+     * by something other than the extractor.
+     */
+    public void forget(Long userId, String repoUrl) {
+        jdbc.update("DELETE FROM code_graph.graph_builds WHERE user_id = ? AND repo_url = ?", userId, repoUrl);
+        jdbc.update("DELETE FROM code_graph.file_imports WHERE user_id = ? AND repo_url = ?", userId, repoUrl);
+    }
+
+    // ─── Shared Builds ────────────────────────────────────────────────────────
+
+    /**
+     * Replace the repo's import graph with another user's build of the same
+     * repo (any URL spelling, see V26) at commitSha. Only for public repos;
+     * call under lock(userId, repoUrl) in a REPEATABLE READ transaction, so
+     * the donor's lease, build marker and rows are all read from one
+     * snapshot. A donor that is being rebuilt as of that snapshot (its
+     * marker still names the old commit while its edges change) is skipped
+     * rather than waited for.
+     *
+     * @return whether a donor was found and copied
+     */
+    public boolean copyFromOtherUser(Long userId, String repoUrl, String commitSha) {
+        List<Map<String, Object>> donors = jdbc.queryForList("""
+                SELECT user_id, repo_url FROM code_graph.graph_builds
+                WHERE public.canonical_repo_url(repo_url) = public.canonical_repo_url(?)
+                  AND commit_sha = ? AND user_id <> ?
+                """, repoUrl, commitSha, userId);
+        for (Map<String, Object> donor : donors) {
+            Long donorUser = ((Number) donor.get("user_id")).longValue();
+            String donorRepo = (String) donor.get("repo_url");
+            if (locks.isHeld(lockKey(donorUser, donorRepo)) || !commitSha.equals(lastCommit(donorUser, donorRepo)))
+                continue;
+
+            deleteAllEdges(userId, repoUrl);
+            forget(userId, repoUrl);
+            jdbc.update("""
+                    INSERT INTO code_graph.file_dependencies
+                        (user_id, repo_url, source_file, target_file, dep_type, weight)
+                    SELECT ?, ?, source_file, target_file, dep_type, weight FROM code_graph.file_dependencies
+                    WHERE user_id = ? AND repo_url = ? AND dep_type = ?
+                    ON CONFLICT DO NOTHING
+                    """, userId, repoUrl, donorUser, donorRepo, DEP_TYPE);
+            jdbc.update("""
+                    INSERT INTO code_graph.file_imports (user_id, repo_url, source_file, imports)
+                    SELECT ?, ?, source_file, imports FROM code_graph.file_imports
+                    WHERE user_id = ? AND repo_url = ?
+                    """, userId, repoUrl, donorUser, donorRepo);
+            recordBuild(userId, repoUrl, commitSha);
+            return true;
+        }
+        return false;
+    }
+
+    // ─── File Imports ─────────────────────────────────────────────────────────
+
+    /** Raw import specifiers of every stored file, in path order. */
+    public Map<String, List<String>> loadImports(Long userId, String repoUrl) {
+        Map<String, List<String>> imports = new TreeMap<>();
+        jdbc.query("SELECT source_file, imports FROM code_graph.file_imports WHERE user_id = ? AND repo_url = ?",
+                rs -> {
+                    String joined = rs.getString("imports");
+                    imports.put(rs.getString("source_file"),
+                            joined.isEmpty() ? List.of() : Arrays.asList(joined.split("\n")));
+                }, userId, repoUrl);
+        return imports;
+    }
+
+    /**
+     * Insert the imports of files that have no stored row yet. Files without
+     * imports are not stored.
+     */
+    public void saveImports(Long userId, String repoUrl, Map<String, List<String>> importsByFile) {
+        List<Object[]> args = new ArrayList<>(importsByFile.size());
+        for (Map.Entry<String, List<String>> entry : importsByFile.entrySet()) {
+            if (!entry.getValue().isEmpty())
+                args.add(new Object[] { userId, repoUrl, entry.getKey(), String.join("\n", entry.getValue()) });
+        }
+        jdbc.batchUpdate(INSERT_IMPORTS_SQL, args);
+    }
+
+    public void deleteImports(Long userId, String repoUrl, Collection<String> sourceFiles) {
+        List<Object[]> args = new ArrayList<>(sourceFiles.size());
+        for (String sourceFile : sourceFiles) {
+            args.add(new Object[] { userId, repoUrl, sourceFile });
+        }
+        jdbc.batchUpdate("DELETE FROM code_graph.file_imports WHERE user_id = ? AND repo_url = ? AND source_file = ?",
+                args);
+    }
+
+    // ─── Import Edges ─────────────────────────────────────────────────────────
+
+    /** Stored import edges whose source is one of sourceFiles, or all of them if null. */
+    public Set<Edge> loadEdges(Long userId, String repoUrl, Collection<String> sourceFiles) {
+        Set<Edge> edges = new HashSet<>();
+        String sql = """
+                SELECT source_file, target_file FROM code_graph.file_dependencies
+                WHERE user_id = ? AND repo_url = ? AND dep_type = ?
+                """;
+        if (sourceFiles == null) {
+            jdbc.query(sql, rs -> {
+                edges.add(new Edge(rs.getString("source_file"), rs.getString("target_file")));
+            }, userId, repoUrl, DEP_TYPE);
+        } else if (!sourceFiles.isEmpty()) {
+            jdbc.query(con -> {
+                var ps = con.prepareStatement(sql + " AND source_file = ANY(?::text[])");
+                ps.setLong(1, userId);
+                ps.setString(2, repoUrl);
+                ps.setString(3, DEP_TYPE);
+                ps.setArray(4, con.createArrayOf("text", sourceFiles.toArray()));
+                return ps;
+            }, rs -> {
+                edges.add(new Edge(rs.getString("source_file"), rs.getString("target_file")));
+            });
+        }
+        return edges;
+    }
+
+    public int countEdges(Long userId, String repoUrl) {
+        Integer count = jdbc.queryForObject("""
+                SELECT COUNT(*) FROM code_graph.file_dependencies
+                WHERE user_id = ? AND repo_url = ? AND dep_type = ?
+                """, Integer.class, userId, repoUrl, DEP_TYPE);
+        return count != null ? count : 0;
+    }
+
+    public void insertEdges(Long userId, String repoUrl, Collection<Edge> edges) {
+        List<Object[]> args = new ArrayList<>(edges.size());
+        for (Edge edge : edges) {
+            args.add(new Object[] { userId, repoUrl, edge.sourceFile(), edge.targetFile(), DEP_TYPE });
+        }
+        jdbc.batchUpdate(INSERT_EDGE_SQL, args);
+    }
+
+    /**
+     * Drop every import edge of the repo in one statement. Edges of other
+     * types (e.g. SCIP 'reference' edges written by DependencyEngine) stay.
+     */
+    public void deleteAllEdges(Long userId, String repoUrl) {
+        jdbc.update("DELETE FROM code_graph.file_dependencies WHERE user_id = ? AND repo_url = ? AND dep_type = ?",
+                userId, repoUrl, DEP_TYPE);
+    }
+
+    public void deleteEdges(Long userId, String repoUrl, Collection<Edge> edges) {
+        List<Object[]> args = new ArrayList<>(edges.size());
+        for (Edge edge : edges) {
+            args.add(new Object[] { userId, repoUrl, edge.sourceFile(), edge.targetFile(), DEP_TYPE });
+        }
+        jdbc.batchUpdate("""
+                DELETE FROM code_graph.file_dependencies
+                WHERE user_id = ? AND repo_url = ? AND source_file = ? AND target_file = ? AND dep_type = ?
+                """, args);
+    }
+}
@@ -0,0 +1,467 @@
+package ai.mindvex.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Hand-written ImportScanner implementations.
+ *
+ * All lexers walk the byte array once with an index. Non-ASCII bytes are
+ * treated as identifier characters, which is enough to step over UTF-8
+ * identifiers and string contents without decoding them. A leading UTF-8
+ * byte order mark is skipped first, so it does not merge with the first
+ * keyword.
+ */
+final class ImportLexers {
+
+    static final ImportScanner JS = ImportLexers::scanJs;
+    static final ImportScanner PYTHON = ImportLexers::scanPython;
+    static final ImportScanner JVM = ImportLexers::scanJvm;
+    static final ImportScanner GO = ImportLexers::scanGo;
+
+    private ImportLexers() {
+    }
+
+    // ─── JavaScript / TypeScript ──────────────────────────────────────────────
+
+    /**
+     * Imports may appear anywhere (dynamic import(), require()), so the whole
+     * file is scanned. Recognizes import ... from 'x', import 'x',
+     * import('x'), export ... from 'x' and require('x').
+     */
+    private static void scanJs(byte[] b, List<String> out) {
+        int n = b.length;
+        int i = skipBom(b);
+        while (i < n) {
+            byte c = b[i];
+            if (c == '/' && i + 1 < n && (b[i + 1] == '/' || b[i + 1] == '*')) {
+                i = skipCComment(b, i);
+            } else if (c == '"' || c == '\'' || c == '`') {
+                i = skipQuoted(b, i);
+            } else if (isIdentStart(c)) {
+                int start = i;
+                i = identEnd(b, i);
+                // Skip member accesses such as foo.require(...)
+                if (start > 0 && b[start - 1] == '.')
+                    continue;
+                if (isWord(b, start, i, "import"))
+                    i = jsAfterImport(b, i, out);
+                else if (isWord(b, start, i, "export"))
+                    i = jsClause(b, i, out);
+                else if (isWord(b, start, i, "require"))
+                    i = jsCall(b, i, out);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static int jsAfterImport(byte[] b, int i, List<String> out) {
+        int j = skipSpaceAndCComments(b, i);
+        if (j >= b.length)
+            return j;
+        byte c = b[j];
+        if (c == '(')
+            return jsCall(b, i, out); // dynamic import('x')
+        if (c == '"' || c == '\'')
+            return addString(b, j, out); // side-effect import 'x'
+        if (c == '.')
+            return j; // import.meta
+        return jsClause(b, j, out);
+    }
+
+    /**
+     * Walk an import/export clause ({ a, b as c }, * as ns, default names)
+     * up to "from 'x'". Anything else hands control back to the main loop.
+     */
+    private static int jsClause(byte[] b, int i, List<String> out) {
+        int n = b.length;
+        int j = i;
+        while (true) {
+            j = skipSpaceAndCComments(b, j);
+            if (j >= n)
+                return j;
+            byte c = b[j];
+            if (isIdentStart(c)) {
+                int start = j;
+                j = identEnd(b, j);
+                if (isWord(b, start, j, "from")) {
+                    int k = skipSpaceAndCComments(b, j);
+                    if (k < n && (b[k] == '"' || b[k] == '\''))
+                        return addString(b, k, out);
+                }
+            } else if (c == '{' || c == '}' || c == ',' || c == '*') {
+                j++;
+            } else {
+                return j;
+            }
+        }
+    }
+
+    /** ( 'x' ) after require / import. */
+    private static int jsCall(byte[] b, int i, List<String> out) {
+        int j = skipSpaceAndCComments(b, i);
+        if (j >= b.length || b[j] != '(')
+            return j;
+        j = skipSpaceAndCComments(b, j + 1);
+        if (j < b.length && (b[j] == '"' || b[j] == '\''))
+            return addString(b, j, out);
+        return j;
+    }
+
+    // ─── Python ───────────────────────────────────────────────────────────────
+
+    /**
+     * Reads logical lines until the first top-level def, class or decorator;
+     * imports below that point are rare and usually local workarounds.
+     */
+    private static void scanPython(byte[] b, List<String> out) {
+        int n = b.length;
+        int i = skipBom(b);
+        while (i < n) {
+            int lineStart = i;
+            while (i < n && (b[i] == ' ' || b[i] == '\t' || b[i] == '\f'))
+                i++;
+            if (i >= n)
+                return;
+            boolean topLevel = i == lineStart;
+            byte c = b[i];
+            if (c == '\n' || c == '\r') {
+                i++;
+                continue;
+            }
+            if (c == '#') {
+                i = skipLine(b, i);
+                continue;
+            }
+            if (c == '@' && topLevel)
+                return;
+            if (isIdentStart(c)) {
+                int start = i;
+                int end = identEnd(b, i);
+                if (isWord(b, start, end, "import")) {
+                    i = pyImport(b, end, out);
+                } else if (isWord(b, start, end, "from")) {
+                    i = pyFrom(b, end, out);
+                } else if (topLevel && (isWord(b, start, end, "def") || isWord(b, start, end, "class")
+                        || isWord(b, start, end, "async"))) {
+                    return;
+                }
+            }
+            i = skipPythonLogicalLine(b, i);
+        }
+    }
+
+    /** import a.b [as c], d */
+    private static int pyImport(byte[] b, int i, List<String> out) {
+        int j = i;
+        while (true) {
+            j = skipInlineSpace(b, j);
+            int start = j;
+            while (j < b.length && (isIdentPart(b[j]) || b[j] == '.'))
+                j++;
+            if (j == start)
+                return j;
+            out.add(ascii(b, start, j));
+            j = skipInlineSpace(b, j);
+            int aliasStart = j;
+            int aliasEnd = identEnd(b, j);
+            if (isWord(b, aliasStart, aliasEnd, "as"))
+                j = identEnd(b, skipInlineSpace(b, aliasEnd));
+            j = skipInlineSpace(b, j);
+            if (j >= b.length || b[j] != ',')
+                return j;
+            j++;
+        }
+    }
+
+    /** from [.]a.b import ... — only the module is recorded. */
+    private static int pyFrom(byte[] b, int i, List<String> out) {
+        int j = skipInlineSpace(b, i);
+        int start = j;
+        while (j < b.length && (isIdentPart(b[j]) || b[j] == '.'))
+            j++;
+        if (j == start)
+            return j;
+        int end = j;
+        j = skipInlineSpace(b, j);
+        int kwEnd = identEnd(b, j);
+        if (isWord(b, j, kwEnd, "import"))
+            out.add(ascii(b, start, end));
+        return kwEnd;
+    }
+
+    /**
+     * Advance past the end of the current logical line: brackets, string
+     * literals (including triple-quoted) and backslash continuations may
+     * span physical lines.
+     */
+    private static int skipPythonLogicalLine(byte[] b, int i) {
+        int n = b.length;
+        int depth = 0;
+        while (i < n) {
+            byte c = b[i];
+            if (c == '#') {
+                i = skipLine(b, i);
+            } else if (c == '"' || c == '\'') {
+                if (i + 2 < n && b[i + 1] == c && b[i + 2] == c)
+                    i = skipTripleQuoted(b, i + 3, c);
+                else
+                    i = skipQuoted(b, i);
+            } else if (c == '(' || c == '[' || c == '{') {
+                depth++;
+                i++;
+            } else if (c == ')' || c == ']' || c == '}') {
+                depth = Math.max(0, depth - 1);
+                i++;
+            } else if (c == '\\' && i + 1 < n && (b[i + 1] == '\n' || b[i + 1] == '\r')) {
+                i += 2;
+            } else if (c == '\n') {
+                i++;
+                if (depth == 0)
+                    return i;
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    private static int skipTripleQuoted(byte[] b, int i, byte quote) {
+        int n = b.length;
+        while (i < n) {
+            if (b[i] == '\\') {
+                i += 2;
+            } else if (b[i] == quote && i + 2 < n && b[i + 1] == quote && b[i + 2] == quote) {
+                return i + 3;
+            } else {
+                i++;
+            }
+        }
+        return n;
+    }
+
+    // ─── Java / Kotlin ────────────────────────────────────────────────────────
+
+    /**
+     * package and import statements come first; the lexer stops at the first
+     * other token (a modifier, annotation or type declaration). Kotlin file
+     * annotations (@file:...) before the package are skipped.
+     */
+    private static void scanJvm(byte[] b, List<String> out) {
+        int n = b.length;
+        int i = skipBom(b);
+        while (true) {
+            i = skipSpaceAndCComments(b, i);
+            if (i >= n)
+                return;
+            byte c = b[i];
+            if (c == ';') {
+                i++;
+                continue;
+            }
+            if (c == '@' && startsWith(b, i + 1, "file:")) {
+                i = skipLine(b, i);
+                continue;
+            }
+            if (!isIdentStart(c))
+                return;
+
+            int start = i;
+            i = identEnd(b, i);
+            if (isWord(b, start, i, "package")) {
+                i = skipStatement(b, i);
+            } else if (isWord(b, start, i, "import")) {
+                i = skipSpaceAndCComments(b, i);
+                int staticEnd = identEnd(b, i);
+                if (isWord(b, i, staticEnd, "static"))
+                    i = skipSpaceAndCComments(b, staticEnd);
+                int nameStart = i;
+                while (i < n && (isIdentPart(b[i]) || b[i] == '.' || b[i] == '*'))
+                    i++;
+                if (i > nameStart)
+                    out.add(ascii(b, nameStart, i).replace('.', '/'));
+                // Kotlin aliases: import a.b.C as D
+                i = skipStatement(b, i);
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Up to and including ';', or up to the end of the line (Kotlin). */
+    private static int skipStatement(byte[] b, int i) {
+        while (i < b.length && b[i] != ';' && b[i] != '\n')
+            i++;
+        return i < b.length ? i + 1 : i;
+    }
+
+    // ─── Go ───────────────────────────────────────────────────────────────────
+
+    /** package clause, then single or grouped imports; stops at the first declaration. */
+    private static void scanGo(byte[] b, List<String> out) {
+        int n = b.length;
+        int i = skipBom(b);
+        while (true) {
+            i = skipSpaceAndCComments(b, i);
+            if (i >= n)
+                return;
+            if (b[i] == ';') {
+                i++;
+                continue;
+            }
+            if (!isIdentStart(b[i]))
+                return;
+
+            int start = i;
+            i = identEnd(b, i);
+            if (isWord(b, start, i, "package")) {
+                i = skipLine(b, i);
+            } else if (isWord(b, start, i, "import")) {
+                i = skipSpaceAndCComments(b, i);
+                if (i < n && b[i] == '(') {
+                    i++;
+                    while (true) {
+                        i = skipSpaceAndCComments(b, i);
+                        if (i >= n)
+                            return;
+                        if (b[i] == ')') {
+                            i++;
+                            break;
+                        }
+                        int next = goImportSpec(b, i, out);
+                        // Never stall on unexpected input
+                        i = next > i ? next : i + 1;
+                    }
+                } else {
+                    i = goImportSpec(b, i, out);
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** [alias | _ | .] "path" */
+    private static int goImportSpec(byte[] b, int i, List<String> out) {
+        int j = i;
+        if (j < b.length && b[j] == '.')
+            j++;
+        else if (j < b.length && isIdentStart(b[j]))
+            j = identEnd(b, j);
+        j = skipSpaceAndCComments(b, j);
+        if (j < b.length && (b[j] == '"' || b[j] == '`'))
+            return addString(b, j, out);
+        return j;
+    }
+
+    // ─── Shared helpers ───────────────────────────────────────────────────────
+
+    /** Index after a leading UTF-8 byte order mark (EF BB BF), or 0. */
+    private static int skipBom(byte[] b) {
+        return b.length >= 3 && b[0] == (byte) 0xEF && b[1] == (byte) 0xBB && b[2] == (byte) 0xBF ? 3 : 0;
+    }
+
+    private static boolean isIdentStart(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c < 0;
+    }
+
+    private static boolean isIdentPart(byte c) {
+        return isIdentStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private static int identEnd(byte[] b, int i) {
+        while (i < b.length && isIdentPart(b[i]))
+            i++;
+        return i;
+    }
+
+    /** True if b[start, end) is exactly the ASCII word. */
+    private static boolean isWord(byte[] b, int start, int end, String word) {
+        return end - start == word.length() && startsWith(b, start, word);
+    }
+
+    private static boolean startsWith(byte[] b, int i, String prefix) {
+        if (i + prefix.length() > b.length)
+            return false;
+        for (int k = 0; k < prefix.length(); k++) {
+            if (b[i + k] != prefix.charAt(k))
+                return false;
+        }
+        return true;
+    }
+
+    private static int skipLine(byte[] b, int i) {
+        while (i < b.length && b[i] != '\n')
+            i++;
+        return i;
+    }
+
+    private static int skipInlineSpace(byte[] b, int i) {
+        while (i < b.length && (b[i] == ' ' || b[i] == '\t'))
+            i++;
+        return i;
+    }
+
+    /** i is at a // or /* comment; returns the index after it. */
+    private static int skipCComment(byte[] b, int i) {
+        if (b[i + 1] == '/')
+            return skipLine(b, i);
+        i += 2;
+        while (i + 1 < b.length && !(b[i] == '*' && b[i + 1] == '/'))
+            i++;
+        return Math.min(i + 2, b.length);
+    }
+
+    private static int skipSpaceAndCComments(byte[] b, int i) {
+        int n = b.length;
+        while (i < n) {
+            byte c = b[i];
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                i++;
+            } else if (c == '/' && i + 1 < n && (b[i + 1] == '/' || b[i + 1] == '*')) {
+                i = skipCComment(b, i);
+            } else {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * i is at an opening quote; returns the index after the closing one.
+     * Single- and double-quoted literals end at a newline if unterminated,
+     * which limits the damage of misreading e.g. a JS regex literal.
+     */
+    private static int skipQuoted(byte[] b, int i) {
+        byte quote = b[i];
+        boolean multiline = quote == '`';
+        i++;
+        while (i < b.length) {
+            byte c = b[i];
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' && !multiline) {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return b.length;
+    }
+
+    /** Record the contents of the string literal at i; returns the index after it. */
+    private static int addString(byte[] b, int i, List<String> out) {
+        int end = skipQuoted(b, i);
+        int contentEnd = end - 1;
+        if (contentEnd > i + 1 && end <= b.length && b[contentEnd] == b[i])
+            out.add(new String(b, i + 1, contentEnd - i - 1, StandardCharsets.UTF_8));
+        return end;
+    }
+
+    private static String ascii(byte[] b, int start, int end) {
+        return new String(b, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,430 @@
+package ai.mindvex.backend.service;
+
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves import specifiers to files of one repository.
+ *
+ * Built once per repo from the list of source files, so resolving an import
+ * is a handful of hash lookups instead of a scan over every file:
+ *
+ * - stem index: path without extension → file, for exact module paths;
+ * - directory modules: dir/index.(ts|tsx|js|jsx) and dir/__init__.py;
+ * - suffix index: basename without extension → files, used to match module
+ * paths whose root is unknown (e.g. com/acme/Foo → x/src/com/acme/Foo.java).
+ *
+ * Module roots are detected per language:
+ *
+ * - TypeScript / JavaScript: compilerOptions.baseUrl and paths of every
+ * tsconfig.json / jsconfig.json; a file uses the nearest config above it;
+ * - Python: the parent directory of every top-level package (a directory
+ * with __init__.py whose parent has none), plus the repo root;
+ * - Java / Kotlin: src/(main|test)/(java|kotlin) directories;
+ * - Go: module paths declared in go.mod files.
+ *
+ * Bare specifiers that match none of the above (npm packages, the JDK,
+ * third-party Go modules) resolve to null rather than to an unrelated file
+ * that happens to share a basename.
+ */
+@Slf4j
+public final class ImportResolver {
+
+    /** Reads a repo file by relative path; returns null if it does not exist. */
+    @FunctionalInterface
+    public interface FileReader {
+        String read(String relativePath) throws IOException;
+    }
+
+    /** Non-source files the resolver reads module roots from. */
+    public static final Set<String> CONFIG_FILE_NAMES = Set.of("tsconfig.json", "jsconfig.json", "go.mod");
+
+    private static final List<String> JS_EXTENSIONS = List.of(".ts", ".tsx", ".js", ".jsx", ".mjs", ".cjs");
+    private static final List<String> JS_INDEX_FILES = List.of("index.ts", "index.tsx", "index.js", "index.jsx");
+    private static final List<String> JVM_EXTENSIONS = List.of(".java", ".kt");
+    private static final List<String> PYTHON_EXTENSIONS = List.of(".py");
+    private static final List<String> JVM_ROOT_MARKERS = List.of(
+            "src/main/java", "src/main/kotlin", "src/test/java", "src/test/kotlin");
+
+    private static final Pattern GO_MODULE = Pattern.compile("(?m)^\\s*module\\s+(\\S+)");
+
+    private static final ObjectMapper LENIENT_JSON = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .build();
+
+    private final Set<String> files;
+    private final Map<String, List<String>> byStem = new HashMap<>();
+    private final Map<String, List<String>> byName = new HashMap<>();
+    private final Map<String, List<String>> goFilesByDir = new HashMap<>();
+    private final List<String> pythonRoots = new ArrayList<>();
+    private final List<String> jvmRoots = new ArrayList<>();
+    private final Map<String, TsConfig> tsConfigs = new HashMap<>();
+    private final Map<String, String> goModules = new LinkedHashMap<>();
+
+    /** compilerOptions of one tsconfig/jsconfig; baseDir is where paths resolve from. */
+    private record TsConfig(String baseUrl, String baseDir, List<PathMapping> paths) {
+    }
+
+    /** One "paths" entry: pattern with at most one '*', and its substitutions. */
+    private record PathMapping(String prefix, String suffix, boolean wildcard, List<String> targets) {
+    }
+
+    private ImportResolver(Collection<String> sourceFiles) {
+        this.files = new HashSet<>(sourceFiles);
+    }
+
+    /**
+     * Index the repo's source files and read module roots.
+     *
+     * @param sourceFiles relative paths of every source file
+     * @param configFiles relative paths of files named in CONFIG_FILE_NAMES
+     * @param reader      reads config file contents
+     */
+    public static ImportResolver build(Collection<String> sourceFiles, Collection<String> configFiles,
+            FileReader reader) {
+        ImportResolver resolver = new ImportResolver(sourceFiles);
+        resolver.indexFiles(sourceFiles);
+        for (String config : new TreeSet<>(configFiles)) {
+            try {
+                String content = reader.read(config);
+                if (content == null)
+                    continue;
+                if (baseName(config).equals("go.mod"))
+                    resolver.readGoMod(config, content);
+                else
+                    resolver.readTsConfig(config, content);
+            } catch (Exception e) {
+                log.debug("[ImportResolver] Ignoring unreadable config {}: {}", config, e.getMessage());
+            }
+        }
+        return resolver;
+    }
+
+    private void indexFiles(Collection<String> sourceFiles) {
+        Set<String> jvmRootSet = new TreeSet<>();
+        Set<String> packageDirs = new HashSet<>();
+
+        for (String file : new TreeSet<>(sourceFiles)) {
+            String stem = stripExtension(file);
+            byStem.computeIfAbsent(stem, k -> new ArrayList<>(1)).add(file);
+            byName.computeIfAbsent(baseName(stem), k -> new ArrayList<>(1)).add(file);
+
+            if (file.endsWith(".go") && !file.endsWith("_test.go"))
+                goFilesByDir.computeIfAbsent(dirName(file), k -> new ArrayList<>()).add(file);
+            if (baseName(file).equals("__init__.py"))
+                packageDirs.add(dirName(file));
+            if (file.endsWith(".java") || file.endsWith(".kt")) {
+                for (String marker : JVM_ROOT_MARKERS) {
+                    int at = file.startsWith(marker + "/") ? 0 : file.indexOf("/" + marker + "/");
+                    if (at >= 0)
+                        jvmRootSet.add(file.substring(0, at == 0 ? marker.length() : at + 1 + marker.length()));
+                }
+            }
+        }
+        jvmRoots.addAll(jvmRootSet);
+
+        // A top-level package is a package whose parent is not one
+        Set<String> pythonRootSet = new TreeSet<>();
+        pythonRootSet.add("");
+        for (String dir : packageDirs) {
+            String parent = dirName(dir);
+            if (!packageDirs.contains(parent))
+                pythonRootSet.add(parent);
+        }
+        pythonRoots.addAll(pythonRootSet);
+    }
+
+    private void readGoMod(String path, String content) {
+        Matcher m = GO_MODULE.matcher(content);
+        if (m.find())
+            goModules.put(m.group(1), dirName(path));
+    }
+
+    private void readTsConfig(String path, String content) throws IOException {
+        JsonNode options = LENIENT_JSON.readTree(content).path("compilerOptions");
+        String configDir = dirName(path);
+        String baseUrl = options.hasNonNull("baseUrl")
+                ? normalize(join(configDir, options.get("baseUrl").asText()))
+                : null;
+
+        List<PathMapping> mappings = new ArrayList<>();
+        options.path("paths").fields().forEachRemaining(entry -> {
+            String pattern = entry.getKey();
+            List<String> targets = new ArrayList<>();
+            entry.getValue().forEach(t -> targets.add(t.asText()));
+            int star = pattern.indexOf('*');
+            mappings.add(star >= 0
+                    ? new PathMapping(pattern.substring(0, star), pattern.substring(star + 1), true, targets)
+                    : new PathMapping(pattern, "", false, targets));
+        });
+        // Longest prefix wins, as in the TypeScript compiler
+        mappings.sort(Comparator.comparingInt((PathMapping p) -> p.prefix().length()).reversed());
+
+        tsConfigs.put(configDir, new TsConfig(baseUrl, baseUrl != null ? baseUrl : configDir, mappings));
+    }
+
+    // ─── Resolution ───────────────────────────────────────────────────────────
+
+    /**
+     * Resolve an import found in sourceFile to a repo file, or null if it
+     * points outside the repo or cannot be matched.
+     *
+     * Import formats are those produced by the extractor: JS/TS specifiers
+     * as written, dotted Python modules (leading dots for relative imports),
+     * slash-separated JVM class paths and Go import paths.
+     */
+    public String resolve(String sourceFile, String importPath) {
+        if (importPath == null || importPath.isBlank())
+            return null;
+        String ext = extension(sourceFile);
+        return switch (ext) {
+            case ".ts", ".tsx", ".js", ".jsx", ".mjs", ".cjs" -> resolveJs(sourceFile, importPath);
+            case ".py" -> resolvePython(sourceFile, importPath);
+            case ".java", ".kt" -> resolveJvm(sourceFile, importPath);
+            case ".go" -> resolveGo(importPath);
+            default -> null;
+        };
+    }
+
+    private String resolveJs(String sourceFile, String specifier) {
+        if (specifier.startsWith("./") || specifier.startsWith("../") || specifier.equals(".")) {
+            String target = normalize(join(dirName(sourceFile), specifier));
+            return target != null ? jsFile(target) : null;
+        }
+
+        TsConfig config = nearestTsConfig(sourceFile);
+        if (config == null)
+            return null;
+
+        for (PathMapping mapping : config.paths()) {
+            String captured = match(mapping, specifier);
+            if (captured == null)
+                continue;
+            for (String target : mapping.targets()) {
+                String substituted = normalize(join(config.baseDir(), target.replace("*", captured)));
+                String file = substituted != null ? jsFile(substituted) : null;
+                if (file != null)
+                    return file;
+            }
+        }
+        if (config.baseUrl() != null) {
+            String target = normalize(join(config.baseUrl(), specifier));
+            return target != null ? jsFile(target) : null;
+        }
+        return null;
+    }
+
+    private static String match(PathMapping mapping, String specifier) {
+        if (!mapping.wildcard())
+            return specifier.equals(mapping.prefix()) ? "" : null;
+        if (specifier.length() < mapping.prefix().length() + mapping.suffix().length()
+                || !specifier.startsWith(mapping.prefix()) || !specifier.endsWith(mapping.suffix()))
+            return null;
+        return specifier.substring(mapping.prefix().length(), specifier.length() - mapping.suffix().length());
+    }
+
+    private TsConfig nearestTsConfig(String sourceFile) {
+        String dir = dirName(sourceFile);
+        while (true) {
+            TsConfig config = tsConfigs.get(dir);
+            if (config != null)
+                return config;
+            if (dir.isEmpty())
+                return null;
+            dir = dirName(dir);
+        }
+    }
+
+    /** A module path as a JS/TS file: exact, with an extension, or a directory index. */
+    private String jsFile(String target) {
+        if (files.contains(target))
+            return target;
+        // ESM TypeScript imports name the emitted .js file
+        if (target.endsWith(".js") || target.endsWith(".jsx")) {
+            String file = withExtension(stripExtension(target), JS_EXTENSIONS);
+            if (file != null)
+                return file;
+        }
+        String file = withExtension(target, JS_EXTENSIONS);
+        if (file != null)
+            return file;
+        for (String index : JS_INDEX_FILES) {
+            String candidate = join(target, index);
+            if (files.contains(candidate))
+                return candidate;
+        }
+        return null;
+    }
+
+    private String resolvePython(String sourceFile, String module) {
+        int dots = 0;
+        while (dots < module.length() && module.charAt(dots) == '.')
+            dots++;
+        String modulePath = module.substring(dots).replace('.', '/');
+
+        if (dots > 0) {
+            // from . import x / from ..pkg import y
+            String base = dirName(sourceFile);
+            for (int i = 1; i < dots; i++) {
+                if (base.isEmpty())
+                    return null;
+                base = dirName(base);
+            }
+            return pythonFile(modulePath.isEmpty() ? base : join(base, modulePath));
+        }
+
+        for (String root : pythonRoots) {
+            String file = pythonFile(join(root, modulePath));
+            if (file != null)
+                return file;
+        }
+        return bySuffix(sourceFile, modulePath, PYTHON_EXTENSIONS);
+    }
+
+    private String pythonFile(String modulePath) {
+        String file = withExtension(modulePath, PYTHON_EXTENSIONS);
+        if (file != null)
+            return file;
+        String init = join(modulePath, "__init__.py");
+        return files.contains(init) ? init : null;
+    }
+
+    private String resolveJvm(String sourceFile, String classPath) {
+        if (classPath.endsWith("/*"))
+            return null; // wildcard import names a package, not a file
+
+        // Static imports name a member: retry without the last segment
+        String candidate = classPath;
+        for (int attempt = 0; attempt < 2 && !candidate.isEmpty(); attempt++) {
+            for (String root : jvmRoots) {
+                String file = withExtension(join(root, candidate), JVM_EXTENSIONS);
+                if (file != null)
+                    return file;
+            }
+            String file = bySuffix(sourceFile, candidate, JVM_EXTENSIONS);
+            if (file != null)
+                return file;
+            candidate = dirName(candidate);
+        }
+        return null;
+    }
+
+    private String resolveGo(String importPath) {
+        for (Map.Entry<String, String> module : goModules.entrySet()) {
+            String prefix = module.getKey();
+            if (!importPath.equals(prefix) && !importPath.startsWith(prefix + "/"))
+                continue;
+            String dir = normalize(join(module.getValue(), importPath.substring(prefix.length())));
+            List<String> goFiles = dir != null ? goFilesByDir.get(dir) : null;
+            if (goFiles == null)
+                continue;
+            // Prefer the file named after the package, else the first in the directory
+            String named = join(dir, baseName(importPath) + ".go");
+            return goFiles.contains(named) ? named : goFiles.get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Files whose path without extension ends with "/" + modulePath. With
+     * several matches, the one sharing the longest directory prefix with the
+     * importing file wins, then the lexicographically smallest.
+     */
+    private String bySuffix(String sourceFile, String modulePath, List<String> extensions) {
+        List<String> candidates = byName.get(baseName(modulePath));
+        if (candidates == null)
+            return null;
+
+        String best = null;
+        int bestShared = -1;
+        for (String file : candidates) {
+            if (!extensions.contains(extension(file)))
+                continue;
+            String stem = stripExtension(file);
+            if (!stem.equals(modulePath) && !stem.endsWith("/" + modulePath))
+                continue;
+            int shared = sharedPrefix(sourceFile, file);
+            if (shared > bestShared) {
+                best = file;
+                bestShared = shared;
+            }
+        }
+        return best;
+    }
+
+    private String withExtension(String stem, List<String> extensions) {
+        List<String> matches = byStem.get(stem);
+        if (matches == null)
+            return null;
+        for (String ext : extensions) {
+            if (matches.contains(stem + ext))
+                return stem + ext;
+        }
+        return null;
+    }
+
+    // ─── Path helpers ─────────────────────────────────────────────────────────
+
+    private static int sharedPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i))
+            i++;
+        return i;
+    }
+
+    private static String join(String dir, String path) {
+        if (dir.isEmpty())
+            return path;
+        if (path.isEmpty())
+            return dir;
+        return dir + "/" + path;
+    }
+
+    /** Collapse "." and ".." segments; null if the path escapes the repo root. */
+    private static String normalize(String path) {
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty() || segment.equals("."))
+                continue;
+            if (segment.equals("..")) {
+                if (segments.isEmpty())
+                    return null;
+                segments.removeLast();
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    private static String dirName(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(0, slash) : "";
+    }
+
+    private static String baseName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String extension(String path) {
+        String name = baseName(path);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot) : "";
+    }
+
+    private static String stripExtension(String path) {
+        String ext = extension(path);
+        return ext.isEmpty() ? path : path.substring(0, path.length() - ext.length());
+    }
+}
@@ -0,0 +1,37 @@
+package ai.mindvex.backend.service;
+
+import java.util.List;
+
+/**
+ * Extracts import specifiers from the raw bytes of one source file.
+ *
+ * Implementations are single-pass lexers over the UTF-8 bytes: comments and
+ * string literals are skipped rather than matched, and the only allocation is
+ * the String of each specifier found. Where the language confines imports
+ * to a header (Java, Kotlin, Go, Python) the lexer stops at the first
+ * declaration after it.
+ *
+ * Specifier formats are the ones ImportResolver expects:
+ * JS/TS specifiers as written, dotted Python modules (leading dots kept),
+ * slash-separated JVM class paths and Go import paths.
+ *
+ * Scanners are stateless and safe to share between threads.
+ */
+public interface ImportScanner {
+
+    /** Append every import specifier found in content to out. */
+    void scan(byte[] content, List<String> out);
+
+    /** Scanner for a file, chosen by extension; null if the language has none. */
+    static ImportScanner forFile(String path) {
+        int dot = path.lastIndexOf('.');
+        String ext = dot >= 0 ? path.substring(dot) : "";
+        return switch (ext) {
+            case ".ts", ".tsx", ".js", ".jsx", ".mjs", ".cjs" -> ImportLexers.JS;
+            case ".py" -> ImportLexers.PYTHON;
+            case ".java", ".kt" -> ImportLexers.JVM;
+            case ".go" -> ImportLexers.GO;
+            default -> null;
+        };
+    }
+}
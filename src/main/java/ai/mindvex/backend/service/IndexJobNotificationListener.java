@@ -0,0 +1,180 @@
+package ai.mindvex.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Listens on the 'index_jobs' notification channel (see V23) and passes the
+ * job type of every newly pending job to its subscribers, so workers claim
+ * it immediately instead of on their next poll. Other components can
+ * subscribe to further channels on the same connection (e.g.
+ * ScipCacheInvalidator on 'scip_cache'); those receive the raw payload.
+ *
+ * Uses one dedicated connection opened with the datasource's URL and
+ * credentials, outside the Hikari pool: LISTEN is per session, and a pooled
+ * connection would be held forever. The connection is reopened after any
+ * error; subscribers of every channel then get a null payload, meaning
+ * "anything may have been missed" (for jobs: check every type).
+ *
+ * Only runs when app.jobs.dispatch is "notify" (the default); with "poll"
+ * workers rely on their scheduled tick alone and other subscribers receive
+ * nothing.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndexJobNotificationListener {
+
+    static final String CHANNEL = "index_jobs";
+
+    private final DataSourceProperties dataSourceProperties;
+
+    /** "notify" = wake workers on pg_notify; "poll" = scheduled polling only. */
+    @Value("${app.jobs.dispatch:notify}")
+    private String dispatchMode;
+
+    /** How long one wait for notifications blocks before checking for shutdown. */
+    private static final int WAIT_MILLIS = 10_000;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private volatile boolean listening;
+    private volatile Connection connection;
+    private Thread listenerThread;
+
+    @PostConstruct
+    void start() {
+        if (!"notify".equalsIgnoreCase(dispatchMode)) {
+            log.info("[JobNotify] Dispatch mode '{}': not listening for job notifications", dispatchMode);
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listenLoop, "job-notify-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        closeQuietly(connection);
+        if (listenerThread != null)
+            listenerThread.interrupt();
+    }
+
+    /** Receive the job type of each job that becomes pending (null = any type). */
+    public void subscribe(Consumer<String> subscriber) {
+        subscribe(CHANNEL, subscriber);
+    }
+
+    /**
+     * Receive the payload of every notification on channel (null after a
+     * reconnect). A channel first subscribed to while connected is listened
+     * on within one wait interval.
+     */
+    public void subscribe(String channel, Consumer<String> subscriber) {
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    /** Whether notifications are currently being received. */
+    public boolean isListening() {
+        return listening;
+    }
+
+    // ─── Listener Loop ────────────────────────────────────────────────────────
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                connection = conn;
+                Set<String> channels = new HashSet<>();
+                listenNewChannels(conn, channels);
+                listening = true;
+                // Whatever was notified while we were not listening
+                for (String channel : channels)
+                    publish(channel, null);
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    listenNewChannels(conn, channels);
+                    PGNotification[] notifications = pg.getNotifications(WAIT_MILLIS);
+                    if (notifications == null)
+                        continue;
+                    for (PGNotification notification : notifications) {
+                        publish(notification.getName(), notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (running)
+                    log.warn("[JobNotify] Listener connection lost: {}", e.getMessage());
+            } finally {
+                listening = false;
+                connection = null;
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /** LISTEN on the jobs channel and every subscribed channel not yet in listened. */
+    private void listenNewChannels(Connection conn, Set<String> listened) throws SQLException {
+        Set<String> wanted = new HashSet<>(subscribers.keySet());
+        wanted.add(CHANNEL);
+        wanted.removeAll(listened);
+        for (String channel : wanted) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("LISTEN " + channel);
+            }
+            listened.add(channel);
+            log.info("[JobNotify] Listening on channel '{}'", channel);
+        }
+    }
+
+    private void publish(String channel, String payload) {
+        for (Consumer<String> subscriber : subscribers.getOrDefault(channel, List.of())) {
+            try {
+                subscriber.accept(payload == null || payload.isEmpty() ? null : payload);
+            } catch (RuntimeException e) {
+                log.warn("[JobNotify] Subscriber failed on channel {} for {}: {}", channel, payload, e.getMessage());
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null)
+            return;
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // already broken
+        }
+    }
+}
@@ -1,39 +1,104 @@
 package ai.mindvex.backend.service;
 
-import ai.mindvex.backend.dto.CommitFileDiff;
 import ai.mindvex.backend.entity.IndexJob;
 import ai.mindvex.backend.entity.User;
 import ai.mindvex.backend.repository.IndexJobRepository;
 import ai.mindvex.backend.repository.UserRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.InvalidProtocolBufferException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Async job worker that polls the index_jobs table for pending jobs.
+ * Async job worker for the index_jobs table, and the only consumer of it:
+ * processJob routes each job by type.
  *
  * Handles three job types:
  * - "scip_index" : parse a SCIP binary and populate code_intelligence tables
- * - "graph_build": clone repo, extract import-based dependencies, populate
- * file_dependencies
+ * - "graph_build": clone repo, extract import-based dependencies, embed
+ * source files and notify WebSocket subscribers (GraphBuildPipeline)
  * - "git_mine" : clone repo, mine commit history, calculate churn statistics
  *
- * Uses SELECT ... FOR UPDATE SKIP LOCKED so multiple worker instances
- * can run concurrently without double-processing the same job.
+ * Each job type has its own lane: a fixed pool of worker threads
+ * (app.jobs.<type>.concurrency) so a long git_mine never holds up another
+ * user's graph_build. A worker claims one job of its type with
+ * SELECT ... FOR UPDATE SKIP LOCKED, then claims the next until the lane's
+ * queue is empty. Claims are fair across users (see
+ * IndexJobRepository.claimNextFairJob): priority first, then the user with
+ * the fewest running jobs, and no user runs more than
+ * app.jobs.max-running-per-user jobs at once. Multiple worker threads and instances can therefore run
+ * concurrently without double-processing the same job.
  *
- * Poll interval: 5 seconds (configurable via app.scip.worker.interval-ms).
+ * Leases (V24): the claim is a short transaction that sets the job to
+ * 'processing' and leases it to this worker for app.jobs.lease-seconds. The
+ * job then runs outside any transaction, so no row lock or pooled connection
+ * is held for the length of a clone or mining run; a heartbeat renews the
+ * leases of running jobs every third of the lease. The result is written only
+ * if the lease is still held. A recovery sweep puts 'processing' jobs with an
+ * expired lease (crashed or stalled node) back to 'pending'.
+ *
+ * Retries (V27): a job that fails with a transient error (I/O, network,
+ * a retryable database error, an upstream 5xx or 429) goes back to 'pending'
+ * with run_after set app.jobs.retry.base-delay-seconds × 2^(attempt-1) ahead,
+ * capped at max-delay-seconds, until it has been claimed
+ * app.jobs.retry.max-attempts times; other errors fail it at once. The
+ * recovery sweep also fails jobs whose lease expired on their last attempt.
+ * Pipelines save their progress through JobCheckpointStore, so an attempt
+ * resumes after the last committed chunk of the one before.
+ *
+ * Progress: every job streams throttled progress (stage, units processed,
+ * rate, ETA) and its status changes to /topic/jobs/{jobId} through
+ * JobProgressPublisher.
+ *
+ * Backpressure: across all lanes a node runs at most app.jobs.max-running
+ * jobs (default: one per core, capped by max heap / memory-per-job), and no
+ * job is claimed while free heap is below memory-per-job unless the node is
+ * running at most one job.
+ *
+ * Dispatch: inserting a pending job fires pg_notify (V23) and
+ * IndexJobNotificationListener wakes the job type's lane at once. Polling
+ * every app.scip.worker.interval-ms (5 s) only takes over while the listener
+ * is down or with app.jobs.dispatch=poll; otherwise it degrades to a sweep
+ * every app.jobs.sweep-interval-ms that picks up anything a notification
+ * missed. Each wake-up starts at most one worker per lane; a worker that
+ * claims a job starts another, so a burst of jobs ramps up to the lane's
+ * concurrency without idle lanes querying once per thread.
  */
 @Component
 @RequiredArgsConstructor
@@ -42,37 +107,383 @@ public class IndexJobWorker {
 
     private final IndexJobRepository indexJobRepository;
     private final ScipIngestionService scipIngestionService;
-    private final SourceCodeDependencyExtractor sourceCodeDependencyExtractor;
-    private final EmbeddingIngestionService embeddingIngestionService;
+    private final GraphBuildPipeline graphBuildPipeline;
     private final JGitMiningService jgitMiningService;
     private final ChurnCalculationEngine churnEngine;
     private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final IndexJobNotificationListener jobNotifications;
+    private final JobCheckpointStore checkpointStore;
+    private final JobProgressPublisher progressPublisher;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @Value("${app.jobs.scip-index.concurrency:1}")
+    private int scipIndexConcurrency;
+
+    @Value("${app.jobs.graph-build.concurrency:2}")
+    private int graphBuildConcurrency;
+
+    @Value("${app.jobs.git-mine.concurrency:1}")
+    private int gitMineConcurrency;
+
+    /** Jobs running at once across all lanes; 0 = derive from cores and max heap. */
+    @Value("${app.jobs.max-running:0}")
+    private int maxRunning;
+
+    /** Jobs one user may have processing at once, across all types and nodes. */
+    @Value("${app.jobs.max-running-per-user:2}")
+    private int maxRunningPerUser;
+
+    /** Heap a running job is assumed to need. */
+    @Value("${app.jobs.memory-per-job-bytes:536870912}")
+    private long memoryPerJobBytes;
+
+    /** Fallback poll interval while job notifications are being received. */
+    @Value("${app.jobs.sweep-interval-ms:60000}")
+    private long sweepIntervalMs;
+
+    /** How long a claimed job stays leased without a heartbeat. */
+    @Value("${app.jobs.lease-seconds:120}")
+    private int leaseSeconds;
+
+    /** Claims per job before a transient failure or an expired lease fails it for good. */
+    @Value("${app.jobs.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    /** Backoff before the first retry; doubled for each further one. */
+    @Value("${app.jobs.retry.base-delay-seconds:30}")
+    private long retryBaseDelaySeconds;
+
+    @Value("${app.jobs.retry.max-delay-seconds:900}")
+    private long retryMaxDelaySeconds;
+
+    private final Map<String, JobLane> lanes = new LinkedHashMap<>();
+    private Semaphore runSlots;
+    private int capacity;
+    private TransactionTemplate jobTx;
+    private volatile boolean running = true;
+    private long lastPollMillis;
+
+    /** Lease owner id of this node: host name plus a per-process suffix. */
+    private String workerId;
+    /** Jobs this node holds a lease on. */
+    private final Set<Long> leasedJobs = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    void init() {
+        Runtime runtime = Runtime.getRuntime();
+        capacity = maxRunning > 0
+                ? maxRunning
+                : (int) Math.max(1, Math.min(runtime.availableProcessors(), runtime.maxMemory() / memoryPerJobBytes));
+        runSlots = new Semaphore(capacity);
+        jobTx = new TransactionTemplate(transactionManager);
+        workerId = hostName() + ":" + UUID.randomUUID().toString().substring(0, 8);
+
+        long heartbeatSeconds = Math.max(1, leaseSeconds / 3);
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renewLeases, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+
+        lanes.put("scip_index", new JobLane("scip_index", scipIndexConcurrency));
+        lanes.put("graph_build", new JobLane("graph_build", graphBuildConcurrency));
+        lanes.put("git_mine", new JobLane("git_mine", gitMineConcurrency));
+
+        jobNotifications.subscribe(this::wake);
+
+        log.info("[IndexJobWorker] Worker {}: scip_index={}, graph_build={}, git_mine={}; at most {} running, "
+                + "{}s leases", workerId, scipIndexConcurrency, graphBuildConcurrency, gitMineConcurrency, capacity,
+                leaseSeconds);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        for (JobLane lane : lanes.values()) {
+            lane.workers.shutdown();
+        }
+        for (JobLane lane : lanes.values()) {
+            if (!lane.workers.awaitTermination(10, TimeUnit.SECONDS))
+                lane.workers.shutdownNow();
+        }
+        for (JobLane lane : lanes.values()) {
+            lane.workers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        heartbeat.shutdownNow();
+        // Jobs still running go back to the queue for the next node to pick up
+        for (Long jobId : leasedJobs) {
+            indexJobRepository.releaseLease(jobId, workerId);
+        }
+    }
+
+    /**
+     * Poll for pending jobs; while notifications are arriving this only runs
+     * once per sweep interval, as a safety net.
+     */
     @Scheduled(fixedDelayString = "${app.scip.worker.interval-ms:5000}")
-    @Transactional
-    public void processNextJob() {
-        Optional<IndexJob> jobOpt = indexJobRepository.claimNextPendingJob();
-        if (jobOpt.isEmpty())
+    public void poll() {
+        long now = System.currentTimeMillis();
+        if (jobNotifications.isListening() && now - lastPollMillis < sweepIntervalMs)
             return;
+        lastPollMillis = now;
+        for (JobLane lane : lanes.values()) {
+            startWorker(lane);
+        }
+    }
 
-        IndexJob job = jobOpt.get();
-        log.info("Processing job id={} type={} repo={}", job.getId(), job.getJobType(), job.getRepoUrl());
+    /** A job of jobType became pending (null = any type may have). */
+    private void wake(String jobType) {
+        JobLane lane = jobType != null ? lanes.get(jobType) : null;
+        if (lane != null) {
+            startWorker(lane);
+            return;
+        }
+        for (JobLane each : lanes.values()) {
+            startWorker(each);
+        }
+    }
+
+    // ─── Lanes ────────────────────────────────────────────────────────────────
+
+    /** Worker threads of one job type. */
+    private static final class JobLane {
+
+        final String jobType;
+        final int concurrency;
+        final AtomicInteger active = new AtomicInteger();
+        /** A wake-up found no free slot; retried when a worker finishes. */
+        final AtomicBoolean missedWake = new AtomicBoolean();
+        final ExecutorService workers;
+
+        JobLane(String jobType, int concurrency) {
+            this.jobType = jobType;
+            this.concurrency = Math.max(1, concurrency);
+            AtomicInteger threadIndex = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(this.concurrency, runnable -> {
+                Thread thread = new Thread(runnable, "job-" + jobType.replace('_', '-') + "-"
+                        + threadIndex.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /** Reserve a worker slot unless the lane is already at its concurrency. */
+        boolean tryStart() {
+            int n;
+            do {
+                n = active.get();
+                if (n >= concurrency)
+                    return false;
+            } while (!active.compareAndSet(n, n + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Start one more worker on the lane if it has a free thread and the node
+     * has room for another job.
+     */
+    private void startWorker(JobLane lane) {
+        if (!running)
+            return;
+        if (!hasHeadroom() || !runSlots.tryAcquire()) {
+            lane.missedWake.set(true);
+            return;
+        }
+        if (!lane.tryStart()) {
+            runSlots.release();
+            lane.missedWake.set(true);
+            return;
+        }
+        try {
+            lane.workers.execute(() -> drain(lane));
+        } catch (RejectedExecutionException e) {
+            lane.active.decrementAndGet();
+            runSlots.release();
+        }
+    }
+
+    /** Run jobs of the lane's type until none is pending or the node runs short of heap. */
+    private void drain(JobLane lane) {
+        try {
+            while (running && hasHeadroom() && runNextJob(lane)) {
+                // claim the next one
+            }
+        } catch (Exception e) {
+            log.error("[IndexJobWorker] {} worker stopped: {}", lane.jobType, e.getMessage(), e);
+        } finally {
+            lane.active.decrementAndGet();
+            runSlots.release();
+            // A job may have been announced while this worker was finding the queue empty
+            for (JobLane each : lanes.values()) {
+                if (each.missedWake.getAndSet(false))
+                    startWorker(each);
+            }
+        }
+    }
+
+    /**
+     * Free heap is at least one job's worth. A node running at most one job
+     * always has headroom, so a pessimistic reading cannot stall the queue.
+     */
+    private boolean hasHeadroom() {
+        if (runSlots.availablePermits() >= capacity - 1)
+            return true;
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return free >= memoryPerJobBytes;
+    }
+
+    /** Claim and run one job of the lane's type; false if none is pending. */
+    private boolean runNextJob(JobLane lane) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        IndexJob job = jobTx.execute(status -> {
+            Optional<IndexJob> jobOpt = indexJobRepository.claimNextFairJob(lane.jobType, maxRunningPerUser);
+            jobOpt.ifPresent(claimed -> indexJobRepository.startLease(claimed.getId(), workerId, startedAt,
+                    leaseSeconds));
+            return jobOpt.orElse(null);
+        });
+        if (job == null)
+            return false;
 
+        // Detached from here on: the row is only written back through the lease
         job.setStatus("processing");
-        job.setStartedAt(LocalDateTime.now());
-        indexJobRepository.save(job);
+        job.setStartedAt(startedAt);
+        job.setLeaseOwner(workerId);
+        job.setAttempts(job.getAttempts() + 1);
+        leasedJobs.add(job.getId());
+        try {
+            // More may be queued behind this one
+            startWorker(lane);
+            processJob(job);
+        } finally {
+            leasedJobs.remove(job.getId());
+        }
+        // The user may have been at its cap: their jobs of other types can run now
+        wake(null);
+        return true;
+    }
+
+    // ─── Leases ───────────────────────────────────────────────────────────────
+
+    /** Heartbeat: extend the lease of every job running on this node. */
+    private void renewLeases() {
+        for (Long jobId : leasedJobs) {
+            try {
+                if (indexJobRepository.renewLease(jobId, workerId, leaseSeconds) == 0) {
+                    log.warn("[IndexJobWorker] Lost lease on job id={}; its result will be discarded", jobId);
+                    leasedJobs.remove(jobId);
+                }
+            } catch (Exception e) {
+                log.warn("[IndexJobWorker] Heartbeat for job id={} failed: {}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Put jobs whose lease expired back to pending, or fail them if that was
+     * their last attempt. Runs on every node; the UPDATEs are idempotent, and
+     * each requeued job re-fires its notification.
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.recovery-interval-ms:60000}")
+    public void recoverExpiredLeases() {
+        int exhausted = indexJobRepository.failExhaustedLeases(maxAttempts);
+        if (exhausted > 0) {
+            log.warn("[IndexJobWorker] Failed {} job(s) whose lease expired on their last attempt", exhausted);
+            checkpointStore.clearFinished();
+        }
+        int requeued = indexJobRepository.requeueExpiredLeases();
+        if (requeued > 0)
+            log.warn("[IndexJobWorker] Requeued {} job(s) with an expired lease", requeued);
+    }
+
+    // ─── Retries ──────────────────────────────────────────────────────────────
+
+    /**
+     * Whether a failure is worth retrying: I/O and network errors, retryable
+     * database errors and upstream 5xx / 429 responses, anywhere in the cause
+     * chain. Failures that would recur on every attempt are not, even when
+     * wrapped in an IOException: a missing input file, a malformed SCIP
+     * upload, and a remote that refuses access or does not exist.
+     */
+    static boolean isTransient(Throwable error) {
+        if (GitRepositoryCache.isAccessDenied(error))
+            return false;
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof FileNotFoundException || e instanceof NoSuchFileException
+                    || e instanceof InvalidProtocolBufferException)
+                return false;
+        }
+        for (Throwable e = error; e != null; e = e.getCause() == e ? null : e.getCause()) {
+            if (e instanceof IOException
+                    || e instanceof org.eclipse.jgit.api.errors.TransportException
+                    || e instanceof TransientDataAccessException
+                    || e instanceof RecoverableDataAccessException
+                    || e instanceof ResourceAccessException
+                    || e instanceof HttpServerErrorException
+                    || e instanceof HttpClientErrorException.TooManyRequests)
+                return true;
+        }
+        return false;
+    }
+
+    /** Backoff after the given (1-based) attempt failed: base doubled per attempt, capped at max. */
+    static long retryDelaySeconds(int attempt, long baseSeconds, long maxSeconds) {
+        int doublings = Math.min(Math.max(attempt - 1, 0), 20);
+        return Math.min(baseSeconds << doublings, maxSeconds);
+    }
+
+    /**
+     * Requeue a transiently failed job with backoff, and wake its lane when
+     * the backoff is over; the fallback sweep covers a node that goes away
+     * meanwhile.
+     */
+    private void scheduleRetry(IndexJob job, Exception error, JobProgressPublisher.Tracker progress) {
+        long delay = retryDelaySeconds(job.getAttempts(), retryBaseDelaySeconds, retryMaxDelaySeconds);
+        if (indexJobRepository.retryLease(job.getId(), workerId, error.getMessage(), delay) == 0) {
+            log.warn("Job id={} failed after its lease was lost; retry left to the recovery sweep", job.getId());
+            return;
+        }
+        log.warn("Job id={} type={} failed on attempt {}/{}, retrying in {}s: {}", job.getId(), job.getJobType(),
+                job.getAttempts(), maxAttempts, delay, error.getMessage());
+        progress.status("retrying", "Attempt " + job.getAttempts() + " failed, retrying in " + delay + "s: "
+                + error.getMessage());
+        String jobType = job.getJobType();
+        try {
+            heartbeat.schedule(() -> wake(jobType), delay, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "worker";
+        }
+    }
+
+    // ─── Job Processing ───────────────────────────────────────────────────────
+
+    private void processJob(IndexJob job) {
+        log.info("Processing job id={} type={} repo={}", job.getId(), job.getJobType(), job.getRepoUrl());
+        JobProgressPublisher.Tracker progress = progressPublisher.forJob(job);
+        progress.status("processing", "Started, attempt " + job.getAttempts());
 
         try {
             String jobType = job.getJobType() != null ? job.getJobType() : "scip_index";
 
             switch (jobType) {
-                case "graph_build" -> processGraphBuild(job);
-                case "git_mine" -> processGitMine(job);
-                case "scip_index" -> processScipIndex(job);
+                case "graph_build" -> processGraphBuild(job, progress);
+                case "git_mine" -> processGitMine(job, progress);
+                case "scip_index" -> processScipIndex(job, progress);
                 default -> {
                     log.warn("Unknown job type '{}' for job id={}, treating as scip_index", jobType, job.getId());
-                    processScipIndex(job);
+                    processScipIndex(job, progress);
                 }
             }
 
@@ -81,50 +492,53 @@ public class IndexJobWorker {
             log.info("Job id={} type={} completed successfully", job.getId(), job.getJobType());
 
         } catch (Exception e) {
+            if (!running) {
+                // Interrupted by shutdown, not a real failure
+                indexJobRepository.releaseLease(job.getId(), workerId);
+                log.info("Job id={} type={} returned to the queue on shutdown", job.getId(), job.getJobType());
+                progress.status("pending", "Returned to the queue on shutdown");
+                return;
+            }
+            if (isTransient(e) && job.getAttempts() < maxAttempts) {
+                scheduleRetry(job, e, progress);
+                return;
+            }
             log.error("Job id={} type={} failed: {}", job.getId(), job.getJobType(), e.getMessage(), e);
             job.setStatus("failed");
             job.setErrorMsg(e.getMessage());
             job.setFinishedAt(LocalDateTime.now());
         }
 
-        indexJobRepository.save(job);
+        int recorded = indexJobRepository.finishLease(job.getId(), workerId, job.getStatus(), job.getErrorMsg(),
+                job.getPayload(), job.getFinishedAt());
+        if (recorded == 0) {
+            log.warn("Job id={} finished as {} after its lease was lost; result discarded", job.getId(),
+                    job.getStatus());
+            return;
+        }
+        checkpointStore.clear(job.getId());
+        progress.status(job.getStatus(), job.getErrorMsg());
     }
 
     /**
-     * graph_build: clone the repo, parse imports, save file dependency edges, and
-     * generate embeddings.
-     * No SCIP CLI tools required — uses regex-based import extraction + Gemini
-     * embeddings.
+     * graph_build: clone, extract import edges, embed and notify subscribers;
+     * see GraphBuildPipeline.
      */
-    private void processGraphBuild(IndexJob job) throws Exception {
-        log.info("[IndexJobWorker] Starting graph_build for repo={}", job.getRepoUrl());
-
+    private void processGraphBuild(IndexJob job, JobProgressPublisher.Tracker progress) throws Exception {
         // Fetch user's GitHub access token for private repository support
         String accessToken = getUserGithubToken(job.getUserId());
 
-        // Step 1: Extract dependency graph
-        int edgeCount = sourceCodeDependencyExtractor.extractFromRepo(
-                job.getUserId(),
-                job.getRepoUrl(),
-                accessToken);
-        log.info("[IndexJobWorker] Dependency extraction done: {} edges extracted for {}", edgeCount, job.getRepoUrl());
-
-        // Step 2: Generate vector embeddings for semantic search
-        int embeddingCount = embeddingIngestionService.extractAndIngestRepo(
-                job.getUserId(),
-                job.getRepoUrl(),
-                accessToken);
-        log.info("[IndexJobWorker] Embedding generation done: {} chunks embedded for {}", embeddingCount,
-                job.getRepoUrl());
-
-        log.info("[IndexJobWorker] graph_build completed successfully for {}", job.getRepoUrl());
+        GraphBuildPipeline.Result result = graphBuildPipeline.run(job.getUserId(), job.getRepoUrl(), accessToken,
+                checkpointStore.forJob(job.getId()), progress);
+        job.setPayload(objectMapper.writeValueAsString(result));
     }
 
     /**
      * git_mine: clone the repo, mine commit history, calculate churn statistics.
-     * Uses JGit to traverse commits and compute per-file change metrics.
+     * Uses JGit to traverse commits and compute per-file change metrics; churn
+     * is aggregated chunk by chunk, together with the job checkpoint.
      */
-    private void processGitMine(IndexJob job) throws Exception {
+    private void processGitMine(IndexJob job, JobProgressPublisher.Tracker progress) throws Exception {
         log.info("[IndexJobWorker] Starting git_mine for repo={}", job.getRepoUrl());
 
         // Parse payload to get 'days' parameter
@@ -143,28 +557,32 @@ public class IndexJobWorker {
         // Fetch user's GitHub access token for private repository support
         String accessToken = getUserGithubToken(job.getUserId());
 
-        // Mine commit history
+        // Mine commit history, aggregating each chunk into weekly churn statistics
         Instant since = Instant.now().minusSeconds(days * 24L * 3600L);
-        List<CommitFileDiff> diffs = jgitMiningService.mineHistory(
+        int diffs = jgitMiningService.mineHistory(
                 job.getUserId(),
                 job.getRepoUrl(),
                 accessToken,
-                since);
-
-        // Aggregate into weekly churn statistics
-        churnEngine.aggregate(job.getUserId(), job.getRepoUrl(), diffs);
+                since,
+                checkpointStore.forJob(job.getId()),
+                chunk -> churnEngine.aggregate(job.getUserId(), job.getRepoUrl(), chunk),
+                progress);
 
-        log.info("[IndexJobWorker] git_mine done: {} diffs mined for {}", diffs.size(), job.getRepoUrl());
+        log.info("[IndexJobWorker] git_mine done: {} diffs mined for {}", diffs, job.getRepoUrl());
     }
 
     /**
      * scip_index: read a SCIP protobuf binary and ingest into code_intelligence
      * tables.
      */
-    private void processScipIndex(IndexJob job) throws Exception {
+    private void processScipIndex(IndexJob job, JobProgressPublisher.Tracker progress) throws Exception {
         Path payloadPath = Path.of(job.getPayloadPath());
         try (InputStream stream = Files.newInputStream(payloadPath)) {
-            scipIngestionService.ingest(job.getUserId(), job.getRepoUrl(), stream);
+            ScipIngestionService.IngestionStats stats = scipIngestionService.ingest(
+                    job.getUserId(), job.getRepoUrl(), stream, Files.size(payloadPath),
+                    checkpointStore.forJob(job.getId()), progress);
+            // Keep per-stage throughput on the job for later inspection
+            job.setPayload(objectMapper.writeValueAsString(stats));
         }
         // Clean up temp file after successful ingestion
         Files.deleteIfExists(payloadPath);
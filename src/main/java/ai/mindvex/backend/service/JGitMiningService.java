@@ -4,44 +4,50 @@ import ai.mindvex.backend.dto.BlameLineResponse;
 import ai.mindvex.backend.dto.CommitFileDiff;
 import ai.mindvex.backend.entity.CommitStat;
 import ai.mindvex.backend.repository.CommitStatRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.BlameCommand;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.blame.BlameResult;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HexFormat;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * JGitMiningService
  *
- * Clones or reuses a cached bare repository and traverses its commit history
- * using JGit's RevWalk + DiffFormatter to extract per-file line change counts.
+ * Opens the repo's full-history mirror in GitRepositoryCache and traverses
+ * its commit history using JGit's RevWalk + DiffFormatter to extract per-file
+ * line change counts.
  *
- * Repos are stored in: <repoBaseDir>/<sha256(repoUrl)>/
+ * History is mined in chunks of commits. Each chunk's commit_stats rows, its
+ * diffs (handed to the caller, e.g. for churn aggregation) and a "git_mine"
+ * job checkpoint commit in one transaction. A retried job walks again from
+ * the checkpointed head and skips every commit up to the last one mined, so
+ * nothing is diffed or counted twice.
  */
 @Service
 @RequiredArgsConstructor
@@ -49,9 +55,21 @@ import java.util.List;
 public class JGitMiningService {
 
     private final CommitStatRepository commitStatRepository;
+    private final GitRepositoryCache repositoryCache;
+    private final PlatformTransactionManager transactionManager;
 
-    @Value("${app.git.repo-base-dir:${java.io.tmpdir}/mindvex-repos}")
-    private String repoBaseDir;
+    /** Job checkpoint stage of a mining run. */
+    static final String CHECKPOINT_STAGE = "git_mine";
+    /** Commits per committed chunk. */
+    private static final int CHUNK_COMMITS = 200;
+
+    private TransactionTemplate chunkTx;
+
+    @PostConstruct
+    void init() {
+        chunkTx = new TransactionTemplate(transactionManager);
+        chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
 
     // ─── Public API ───────────────────────────────────────────────────────────
 
@@ -63,78 +81,180 @@ public class JGitMiningService {
      * @param accessToken GitHub personal access token (may be null for public
      *                    repos)
      * @param since       only mine commits after this instant (null = all history)
-     * @return list of per-file diffs across all qualifying commits
+     * @param checkpoints checkpoints of the job running this, or NONE
+     * @param chunkSink   receives the per-file diffs of each chunk of commits,
+     *                    inside the transaction that records the chunk
+     * @param progress    progress of the job running this, or NONE; with a
+     *                    since date, the ETA follows how far back in time the
+     *                    walk has got
+     * @return number of per-file diffs mined by this call
      */
-    public List<CommitFileDiff> mineHistory(
+    public int mineHistory(
             Long userId,
             String repoUrl,
             String accessToken,
-            Instant since) throws Exception {
+            Instant since,
+            JobCheckpointStore.Checkpoints checkpoints,
+            Consumer<List<CommitFileDiff>> chunkSink,
+            JobProgressPublisher.Tracker progress) throws Exception {
 
-        File repoDir = getRepoDir(repoUrl);
-        Git git = cloneOrOpen(repoUrl, accessToken, repoDir);
+        int mined = 0;
 
-        List<CommitFileDiff> diffs = new ArrayList<>();
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(
+                repoUrl, accessToken, GitRepositoryCache.History.FULL);
+                RevWalk walk = new RevWalk(handle.repository())) {
+            Repository repo = handle.repository();
+
+            CommitSelection selection = CommitSelection.of(walk, handle.head(),
+                    checkpoints.load(CHECKPOINT_STAGE), since);
+            if (selection.resumedAfter() != null)
+                log.info("[JGit] Resuming {} after commit {}", repoUrl, selection.resumedAfter());
+            String headSha = selection.start().name();
 
-        try (Repository repo = git.getRepository();
-                RevWalk walk = new RevWalk(repo)) {
+            walk.markStart(walk.parseCommit(selection.start()));
+            progress.stage(CHECKPOINT_STAGE, "commits", -1, "Mining commit history");
+            Instant now = Instant.now();
+            int minedCommits = 0;
 
-            walk.markStart(walk.parseCommit(repo.resolve("HEAD")));
+            List<RevCommit> commits = new ArrayList<>();
+            List<List<CommitFileDiff>> commitDiffs = new ArrayList<>();
 
             for (RevCommit commit : walk) {
-                Instant committedAt = commit.getAuthorIdent().getWhen().toInstant();
-                if (since != null && committedAt.isBefore(since))
+                if (!selection.mine(commit))
                     continue;
 
-                List<CommitFileDiff> fileDiffs = diffCommit(repo, commit, committedAt);
-                diffs.addAll(fileDiffs);
+                Instant committedAt = committedAt(commit);
 
-                // Persist raw commit record (upsert via unique constraint)
-                persistCommitStat(userId, repoUrl, commit, fileDiffs);
+                List<CommitFileDiff> fileDiffs = diffCommit(repo, commit, committedAt);
+                commits.add(commit);
+                commitDiffs.add(fileDiffs);
+                mined += fileDiffs.size();
+                minedCommits++;
+                if (since != null)
+                    progress.update(minedCommits,
+                            (double) Duration.between(committedAt, now).toMillis()
+                                    / Math.max(1, Duration.between(since, now).toMillis()));
+                else
+                    progress.advance(1);
+
+                if (commits.size() >= CHUNK_COMMITS)
+                    saveChunk(userId, repoUrl, commits, commitDiffs, headSha, checkpoints, chunkSink);
             }
-        } finally {
-            git.close();
+            if (!commits.isEmpty())
+                saveChunk(userId, repoUrl, commits, commitDiffs, headSha, checkpoints, chunkSink);
         }
 
-        log.info("[JGit] Mined {} file-diffs from {}", diffs.size(), repoUrl);
-        return diffs;
+        log.info("[JGit] Mined {} file-diffs from {}", mined, repoUrl);
+        return mined;
     }
 
-    // ─── Clone / Open ─────────────────────────────────────────────────────────
-
-    private Git cloneOrOpen(String repoUrl, String accessToken, File repoDir) throws Exception {
-        if (repoDir.exists() && new File(repoDir, "HEAD").exists()) {
-            log.info("[JGit] Reusing cached repo at {}", repoDir);
-            Git git = Git.open(repoDir);
-            // Fetch latest commits
-            if (accessToken != null) {
-                git.fetch()
-                        .setCredentialsProvider(credentials(accessToken))
-                        .call();
-            } else {
-                git.fetch().call();
+    /**
+     * Commit one chunk: the raw commit records, the caller's aggregation of
+     * its diffs and the checkpoint after its last commit.
+     */
+    private void saveChunk(
+            Long userId,
+            String repoUrl,
+            List<RevCommit> commits,
+            List<List<CommitFileDiff>> commitDiffs,
+            String headSha,
+            JobCheckpointStore.Checkpoints checkpoints,
+            Consumer<List<CommitFileDiff>> chunkSink) {
+        List<CommitFileDiff> diffs = new ArrayList<>();
+        for (List<CommitFileDiff> fileDiffs : commitDiffs) {
+            diffs.addAll(fileDiffs);
+        }
+        String lastCommit = commits.get(commits.size() - 1).getName();
+
+        chunkTx.executeWithoutResult(status -> {
+            for (int i = 0; i < commits.size(); i++) {
+                // Persist raw commit record (upsert via unique constraint)
+                persistCommitStat(userId, repoUrl, commits.get(i), commitDiffs.get(i));
             }
-            return git;
+            chunkSink.accept(diffs);
+            checkpoints.save(CHECKPOINT_STAGE, new Progress(headSha, lastCommit).format());
+        });
+        commits.clear();
+        commitDiffs.clear();
+    }
+
+    /**
+     * Which commits of a walk get mined. A checkpoint is resumed only if the
+     * walk can be repeated exactly, i.e. its head commit still exists; the
+     * walk then starts there and skips every commit through the last one
+     * mined. Commits authored before since are never mined.
+     */
+    static final class CommitSelection {
+
+        private final ObjectId start;
+        private final String resumedAfter;
+        private final Instant since;
+        private String skipThrough;
+
+        private CommitSelection(ObjectId start, String resumedAfter, Instant since) {
+            this.start = start;
+            this.resumedAfter = resumedAfter;
+            this.since = since;
+            this.skipThrough = resumedAfter;
         }
 
-        log.info("[JGit] Cloning {} → {}", repoUrl, repoDir);
-        repoDir.mkdirs();
+        /**
+         * @param head       current head of the repository
+         * @param checkpoint saved checkpoint state, or null for a fresh run
+         * @param since      only mine commits after this instant (null = all)
+         */
+        static CommitSelection of(RevWalk walk, ObjectId head, String checkpoint, Instant since)
+                throws IOException {
+            Progress resumed = Progress.parse(checkpoint);
+            if (resumed != null) {
+                try {
+                    RevCommit start = walk.parseCommit(ObjectId.fromString(resumed.headSha()));
+                    return new CommitSelection(start, resumed.lastCommit(), since);
+                } catch (MissingObjectException | IllegalArgumentException e) {
+                    // Checkpointed head is gone (e.g. force-push): mine afresh
+                }
+            }
+            return new CommitSelection(head, null, since);
+        }
 
-        var cloneCmd = Git.cloneRepository()
-                .setURI(repoUrl)
-                .setDirectory(repoDir)
-                .setBare(true) // bare clone — no working tree, saves disk
-                .setCloneAllBranches(false);
+        /** Commit the walk starts from. */
+        ObjectId start() {
+            return start;
+        }
 
-        if (accessToken != null) {
-            cloneCmd.setCredentialsProvider(credentials(accessToken));
+        /** Last commit mined by the resumed run, or null if not resuming. */
+        String resumedAfter() {
+            return resumedAfter;
         }
 
-        return cloneCmd.call();
+        /** Whether to mine the next commit of the walk; call once per commit, in walk order. */
+        boolean mine(RevCommit commit) {
+            if (skipThrough != null) {
+                if (commit.getName().equals(skipThrough))
+                    skipThrough = null;
+                return false;
+            }
+            return since == null || !committedAt(commit).isBefore(since);
+        }
+    }
+
+    private static Instant committedAt(RevCommit commit) {
+        return commit.getAuthorIdent().getWhen().toInstant();
     }
 
-    private UsernamePasswordCredentialsProvider credentials(String token) {
-        return new UsernamePasswordCredentialsProvider("oauth2", token);
+    /** Checkpoint of a mining run: the walk from headSha is done through lastCommit. */
+    record Progress(String headSha, String lastCommit) {
+
+        String format() {
+            return headSha + " " + lastCommit;
+        }
+
+        static Progress parse(String state) {
+            if (state == null)
+                return null;
+            String[] parts = state.split(" ");
+            return parts.length == 2 ? new Progress(parts[0], parts[1]) : null;
+        }
     }
 
     // ─── Diff a single commit ─────────────────────────────────────────────────
@@ -230,22 +350,20 @@ public class JGitMiningService {
 
     /**
      * Run git blame on a file and return per-line annotations.
-     * Auto-clones the repo if it hasn't been cloned yet.
+     * Clones the repo into the cache if it isn't there yet.
      */
     public List<BlameLineResponse> blame(
             String repoUrl,
             String accessToken,
             String filePath) throws Exception {
-        File repoDir = getRepoDir(repoUrl);
-
-        // Auto-clone if not yet cloned (no need to call /mine first)
-        Git git = cloneOrOpen(repoUrl, accessToken, repoDir);
-
         List<BlameLineResponse> lines = new ArrayList<>();
 
-        try (Repository repo = git.getRepository()) {
+        // Opens or clones the mirror (no need to call /mine first)
+        try (GitRepositoryCache.Handle handle = repositoryCache.open(
+                repoUrl, accessToken, GitRepositoryCache.History.FULL)) {
 
-            BlameCommand blameCmd = new BlameCommand(repo);
+            BlameCommand blameCmd = new BlameCommand(handle.repository());
+            blameCmd.setStartCommit(handle.head());
             blameCmd.setFilePath(filePath);
             BlameResult result = blameCmd.call();
 
@@ -264,20 +382,9 @@ public class JGitMiningService {
 
                 lines.add(new BlameLineResponse(i + 1, hash, author, committedAt, content));
             }
-        } finally {
-            git.close();
         }
 
         log.info("[Blame] {} lines for {}/{}", lines.size(), repoUrl, filePath);
         return lines;
     }
-
-    // ─── Helpers ──────────────────────────────────────────────────────────────
-
-    private File getRepoDir(String repoUrl) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("SHA-256");
-        byte[] hash = md.digest(repoUrl.getBytes(StandardCharsets.UTF_8));
-        String dirName = HexFormat.of().formatHex(hash).substring(0, 16);
-        return new File(repoBaseDir, dirName);
-    }
 }
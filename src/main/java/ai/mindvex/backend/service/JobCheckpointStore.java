@@ -0,0 +1,89 @@
+package ai.mindvex.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Progress markers of running jobs (public.job_checkpoints, see V27), so a
+ * job that is retried after a failure or requeued after a lost lease resumes
+ * where it stopped instead of starting over.
+ *
+ * Each stage of a job keeps one opaque state string that only the stage
+ * itself interprets. All methods join the caller's transaction: save a
+ * checkpoint in the same transaction as the work it describes, so both
+ * commit or roll back together. IndexJobWorker clears a job's checkpoints
+ * once the job is done or has failed for good.
+ */
+@Component
+@RequiredArgsConstructor
+public class JobCheckpointStore {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO public.job_checkpoints (job_id, stage, state, updated_at)
+            VALUES (?, ?, ?, NOW())
+            ON CONFLICT (job_id, stage)
+            DO UPDATE SET state = EXCLUDED.state, updated_at = EXCLUDED.updated_at
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Checkpoints of one job, to hand to the services it runs. */
+    public Checkpoints forJob(Long jobId) {
+        return new Checkpoints(this, jobId);
+    }
+
+    /** Last state saved for a stage of the job, or null. */
+    public String load(Long jobId, String stage) {
+        List<String> rows = jdbc.queryForList(
+                "SELECT state FROM public.job_checkpoints WHERE job_id = ? AND stage = ?",
+                String.class, jobId, stage);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public void save(Long jobId, String stage, String state) {
+        jdbc.update(UPSERT_SQL, jobId, stage, state);
+    }
+
+    public void clear(Long jobId) {
+        jdbc.update("DELETE FROM public.job_checkpoints WHERE job_id = ?", jobId);
+    }
+
+    /** Drop checkpoints left behind by jobs that ended without the worker clearing them. */
+    public int clearFinished() {
+        return jdbc.update("""
+                DELETE FROM public.job_checkpoints c
+                USING public.index_jobs j
+                WHERE j.id = c.job_id AND j.status IN ('done', 'failed')
+                """);
+    }
+
+    // ─── Checkpoints ──────────────────────────────────────────────────────────
+
+    /** The checkpoints of one job. */
+    public static final class Checkpoints {
+
+        /** For work run outside a job: nothing to resume, nothing recorded. */
+        public static final Checkpoints NONE = new Checkpoints(null, null);
+
+        private final JobCheckpointStore store;
+        private final Long jobId;
+
+        private Checkpoints(JobCheckpointStore store, Long jobId) {
+            this.store = store;
+            this.jobId = jobId;
+        }
+
+        /** State the stage saved on an earlier attempt, or null. */
+        public String load(String stage) {
+            return store != null ? store.load(jobId, stage) : null;
+        }
+
+        public void save(String stage, String state) {
+            if (store != null)
+                store.save(jobId, stage, state);
+        }
+    }
+}
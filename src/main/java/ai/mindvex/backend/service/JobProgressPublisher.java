@@ -0,0 +1,156 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.controller.WebSocketGraphController;
+import ai.mindvex.backend.dto.JobProgressMessage;
+import ai.mindvex.backend.entity.IndexJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streams the progress of running index jobs to WebSocket subscribers of
+ * /topic/jobs/{jobId}, so clients need not poll the job's status.
+ *
+ * IndexJobWorker hands each job a {@link Tracker}; the services the job runs
+ * open a stage on it and report how many files, documents or commits they
+ * have processed. Counts are published at most once per
+ * app.jobs.progress.interval-ms per job, with the rate since the stage
+ * started and, when the stage's size or completed fraction is known, an
+ * ETA. Stage changes and status changes (retrying, done, failed) are always
+ * published.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JobProgressPublisher {
+
+    private final WebSocketGraphController webSocketController;
+
+    /** Minimum time between two progress messages of one job. */
+    @Value("${app.jobs.progress.interval-ms:1000}")
+    private long intervalMs;
+
+    public Tracker forJob(IndexJob job) {
+        return new Tracker(this, job.getId(), job.getJobType(), job.getRepoUrl());
+    }
+
+    private void publish(JobProgressMessage message) {
+        try {
+            webSocketController.broadcastJobProgress(message);
+        } catch (Exception e) {
+            // Progress is best effort and must never fail the job
+            log.debug("[JobProgress] Could not publish progress of job id={}: {}", message.getJobId(),
+                    e.getMessage());
+        }
+    }
+
+    // ─── Tracker ──────────────────────────────────────────────────────────────
+
+    /** Progress of one job; its stages run one after another. */
+    public static final class Tracker {
+
+        /** For work run outside a job: nothing is published. */
+        public static final Tracker NONE = new Tracker(null, null, null, null);
+
+        private final JobProgressPublisher publisher;
+        private final Long jobId;
+        private final String jobType;
+        private final String repoUrl;
+
+        private String stage;
+        private String unit;
+        private long processed;
+        /** Size of the stage in units; -1 if unknown. */
+        private long total = -1;
+        /** Completed fraction reported by the stage itself; -1 if none. */
+        private double fraction = -1;
+        private long stageStartNanos;
+        private long lastSentNanos;
+
+        private Tracker(JobProgressPublisher publisher, Long jobId, String jobType, String repoUrl) {
+            this.publisher = publisher;
+            this.jobId = jobId;
+            this.jobType = jobType;
+            this.repoUrl = repoUrl;
+        }
+
+        /**
+         * Start a stage of total units (-1 if not known up front) and
+         * announce it.
+         */
+        public synchronized void stage(String stage, String unit, long total, String message) {
+            if (publisher == null)
+                return;
+            this.stage = stage;
+            this.unit = unit;
+            this.total = total;
+            this.processed = 0;
+            this.fraction = -1;
+            this.stageStartNanos = System.nanoTime();
+            send("processing", message);
+        }
+
+        /** count more units of the current stage are done. */
+        public synchronized void advance(long count) {
+            if (publisher == null)
+                return;
+            processed += count;
+            sendThrottled();
+        }
+
+        /**
+         * Units done so far, for stages whose size is unknown but that can
+         * tell which fraction (0..1) of their input they have consumed.
+         */
+        public synchronized void update(long processed, double fractionDone) {
+            if (publisher == null)
+                return;
+            this.processed = processed;
+            this.fraction = Math.max(0, Math.min(1, fractionDone));
+            sendThrottled();
+        }
+
+        /** Announce a change of the job's status, e.g. 'retrying' or 'done'. */
+        public synchronized void status(String status, String message) {
+            if (publisher == null)
+                return;
+            send(status, message);
+        }
+
+        private void sendThrottled() {
+            if (System.nanoTime() - lastSentNanos >= publisher.intervalMs * 1_000_000)
+                send("processing", null);
+        }
+
+        private void send(String status, String message) {
+            long now = System.nanoTime();
+            lastSentNanos = now;
+            double seconds = (now - stageStartNanos) / 1e9;
+            double rate = stage != null && seconds > 0 ? processed / seconds : 0;
+
+            publisher.publish(JobProgressMessage.builder()
+                    .jobId(jobId)
+                    .jobType(jobType)
+                    .repoUrl(repoUrl)
+                    .status(status)
+                    .stage(stage)
+                    .unit(unit)
+                    .processed(processed)
+                    .total(total >= 0 ? total : null)
+                    .ratePerSecond(Math.round(rate * 10) / 10.0)
+                    .etaSeconds(stage != null ? eta(seconds, rate) : null)
+                    .message(message)
+                    .timestamp(System.currentTimeMillis())
+                    .build());
+        }
+
+        private Long eta(double elapsedSeconds, double rate) {
+            if (total >= 0 && rate > 0)
+                return Math.round(Math.max(0, total - processed) / rate);
+            if (fraction > 0)
+                return Math.round(elapsedSeconds * (1 - fraction) / fraction);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.entity.IndexJob;
+import ai.mindvex.backend.repository.IndexJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Enqueues index_jobs, coalescing identical requests.
+ *
+ * graph_build and git_mine jobs get a dedup key over (type, user, canonical
+ * repo URL, payload). An enqueue whose key matches a pending job returns that
+ * job instead of inserting another; a unique index on pending keys (V26)
+ * settles concurrent enqueues. A job that is already processing is not
+ * joined: it may have read an older commit, so one follow-up is queued and
+ * every further identical request attaches to that. Follow-ups of unchanged
+ * repos are cheap, since the extractor and embedding ingestion skip work at
+ * a commit they already built.
+ *
+ * scip_index jobs are never coalesced: every upload carries its own index.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobQueueService {
+
+    private static final Set<String> COALESCED_TYPES = Set.of("graph_build", "git_mine");
+
+    private final IndexJobRepository indexJobRepository;
+
+    /** The job a request ended up on, and whether it was an existing one. */
+    public record Enqueued(IndexJob job, boolean coalesced) {
+    }
+
+    public Enqueued enqueue(IndexJob job) {
+        String key = dedupKey(job);
+        if (key == null)
+            return new Enqueued(indexJobRepository.save(job), false);
+
+        job.setDedupKey(key);
+        Optional<IndexJob> existing = indexJobRepository.findFirstByDedupKeyAndStatus(key, "pending");
+        if (existing.isPresent())
+            return coalesced(job, existing.get());
+
+        try {
+            return new Enqueued(indexJobRepository.saveAndFlush(job), false);
+        } catch (DataIntegrityViolationException e) {
+            // An identical request was queued between the lookup and the insert
+            return indexJobRepository.findFirstByDedupKeyAndStatus(key, "pending")
+                    .map(winner -> coalesced(job, winner))
+                    .orElseThrow(() -> e);
+        }
+    }
+
+    private Enqueued coalesced(IndexJob request, IndexJob existing) {
+        log.info("[JobQueue] {} for user={} repo={} attached to pending job {}", request.getJobType(),
+                request.getUserId(), request.getRepoUrl(), existing.getId());
+        return new Enqueued(existing, true);
+    }
+
+    /** Hash of what the job computes, or null if its type is not coalesced. */
+    static String dedupKey(IndexJob job) {
+        if (!COALESCED_TYPES.contains(job.getJobType()))
+            return null;
+        String identity = job.getJobType() + "\n" + job.getUserId() + "\n"
+                + GitRepositoryCache.canonicalUrl(job.getRepoUrl()) + "\n"
+                + (job.getPayload() != null ? job.getPayload() : "");
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(identity.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
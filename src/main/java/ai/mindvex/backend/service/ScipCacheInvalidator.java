@@ -0,0 +1,77 @@
+package ai.mindvex.backend.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Keeps the node-local SCIP query caches (ScipOccurrenceIndexCache and the
+ * per-repo cache of ScipSymbolLocationIndex) consistent across nodes.
+ *
+ * An ingestion that changed a repo calls publish() in the transaction that
+ * finishes it; pg_notify only delivers on commit, so other nodes drop the
+ * repo from both caches once the new rows are visible. Notifications arrive
+ * through IndexJobNotificationListener on the 'scip_cache' channel as
+ * "node\nuserId\nrepoUrl"; a node ignores its own, since the ingesting node
+ * invalidates directly. After a listener reconnect everything is dropped.
+ *
+ * Without a listener (app.jobs.dispatch=poll) other nodes fall back on the
+ * caches' TTL (app.scip.query.cache-ttl-seconds).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScipCacheInvalidator {
+
+    static final String CHANNEL = "scip_cache";
+
+    private final JdbcTemplate jdbc;
+    private final IndexJobNotificationListener notifications;
+    private final ScipOccurrenceIndexCache occurrenceIndexCache;
+    private final ScipSymbolLocationIndex symbolLocationIndex;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @PostConstruct
+    void subscribe() {
+        notifications.subscribe(CHANNEL, this::onNotification);
+    }
+
+    /**
+     * Tell the other nodes that a repo's SCIP data changed. Joins the
+     * caller's transaction; the notification is sent when it commits.
+     */
+    public void publish(Long userId, String repoUrl) {
+        jdbc.queryForList("SELECT pg_notify(?, ?)", CHANNEL, nodeId + "\n" + userId + "\n" + repoUrl);
+    }
+
+    /** Drop a repo from this node's caches. */
+    public void invalidateLocal(Long userId, String repoUrl) {
+        occurrenceIndexCache.invalidateRepo(userId, repoUrl);
+        symbolLocationIndex.invalidate(userId, repoUrl);
+    }
+
+    private void onNotification(String payload) {
+        if (payload == null) {
+            occurrenceIndexCache.invalidateAll();
+            symbolLocationIndex.invalidateAll();
+            return;
+        }
+        String[] parts = payload.split("\n", 3);
+        if (parts.length < 3) {
+            log.warn("[ScipCache] Ignoring malformed invalidation '{}'", payload);
+            return;
+        }
+        if (nodeId.equals(parts[0]))
+            return;
+        try {
+            invalidateLocal(Long.valueOf(parts[1]), parts[2]);
+        } catch (NumberFormatException e) {
+            log.warn("[ScipCache] Ignoring malformed invalidation '{}'", payload);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package ai.mindvex.backend.service;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Stateless decoder for the SCIP messages we persist.
+ *
+ * Each Document frame is decoded independently, which lets
+ * ScipIngestionService fan frames out to a worker pool. Nested messages are
+ * bounded with pushLimit/popLimit on the frame's CodedInputStream so no
+ * intermediate byte arrays are allocated per occurrence or symbol.
+ *
+ * See ScipIngestionService for the relevant part of the SCIP schema.
+ */
+public final class ScipDocumentDecoder {
+
+    // SCIP field numbers
+    static final int INDEX_DOCUMENTS = 3;
+    static final int INDEX_EXTERNAL_SYMBOLS = 4;
+    private static final int DOC_RELATIVE_PATH = 1;
+    private static final int DOC_LANGUAGE = 4;
+    private static final int DOC_OCCURRENCES = 5;
+    private static final int DOC_SYMBOLS = 6;
+    private static final int OCC_SYMBOL = 1;
+    private static final int OCC_RANGE = 3;
+    private static final int OCC_ROLES = 4;
+    private static final int SYM_SYMBOL = 1;
+    private static final int SYM_DOCUMENTATION = 3;
+    private static final int SYM_DISPLAY_NAME = 7;
+
+    private ScipDocumentDecoder() {
+    }
+
+    /** A fully decoded Document message. relativePath is null if absent. */
+    public record DecodedDocument(
+            String relativePath,
+            String language,
+            String contentHash,
+            ScipOccurrenceBuffer occurrences,
+            List<SymbolRecord> symbols) {
+    }
+
+    /** Decoded SymbolInformation fields we persist. */
+    public record SymbolRecord(String symbol, String displayName, String documentation) {
+    }
+
+    /** Decode one serialized Document message. */
+    public static DecodedDocument decodeDocument(byte[] frame) throws IOException {
+        return decodeDocument(frame, contentHash(frame));
+    }
+
+    /** Decode one serialized Document message whose hash is already known. */
+    public static DecodedDocument decodeDocument(byte[] frame, String contentHash) throws IOException {
+        CodedInputStream doc = CodedInputStream.newInstance(frame);
+        String relativePath = null;
+        String language = null;
+        ScipOccurrenceBuffer occurrences = new ScipOccurrenceBuffer();
+        List<SymbolRecord> symbols = new ArrayList<>();
+        int[] range = new int[4];
+
+        int tag;
+        while ((tag = doc.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                doc.skipField(tag);
+                continue;
+            }
+            switch (field) {
+                case DOC_RELATIVE_PATH -> relativePath = doc.readString();
+                case DOC_LANGUAGE -> language = doc.readString();
+                case DOC_OCCURRENCES -> {
+                    int oldLimit = doc.pushLimit(doc.readRawVarint32());
+                    parseOccurrence(doc, occurrences, range);
+                    doc.popLimit(oldLimit);
+                }
+                case DOC_SYMBOLS -> {
+                    int oldLimit = doc.pushLimit(doc.readRawVarint32());
+                    SymbolRecord symbol = parseSymbolInfo(doc);
+                    doc.popLimit(oldLimit);
+                    if (symbol != null)
+                        symbols.add(symbol);
+                }
+                default -> doc.skipField(tag);
+            }
+        }
+
+        return new DecodedDocument(relativePath, language, contentHash, occurrences, symbols);
+    }
+
+    /**
+     * Read only the relative_path of a Document frame, skipping everything
+     * else. Used to look up the previous content hash before paying for a
+     * full decode.
+     */
+    public static String readRelativePath(byte[] frame) throws IOException {
+        CodedInputStream doc = CodedInputStream.newInstance(frame);
+        int tag;
+        while ((tag = doc.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == DOC_RELATIVE_PATH
+                    && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                return doc.readString();
+            }
+            doc.skipField(tag);
+        }
+        return null;
+    }
+
+    /** Hex SHA-256 of a raw frame. */
+    public static String contentHash(byte[] frame) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(frame));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Decode one serialized SymbolInformation message; null if it has no symbol. */
+    public static SymbolRecord decodeSymbolInfo(byte[] frame) throws IOException {
+        return parseSymbolInfo(CodedInputStream.newInstance(frame));
+    }
+
+    /**
+     * Decode one Occurrence message into the buffer. Occurrences without a
+     * symbol or with a malformed range are dropped.
+     */
+    private static void parseOccurrence(CodedInputStream occ, ScipOccurrenceBuffer out, int[] range)
+            throws IOException {
+        String symbol = null;
+        int rangeLength = 0;
+        int roleFlags = 0;
+
+        int tag;
+        while ((tag = occ.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            int wire = WireFormat.getTagWireType(tag);
+            if (field == OCC_SYMBOL && wire == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                symbol = occ.readString();
+            } else if (field == OCC_RANGE && wire == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                // packed int32 array
+                int oldLimit = occ.pushLimit(occ.readRawVarint32());
+                while (!occ.isAtEnd()) {
+                    int value = occ.readInt32();
+                    if (rangeLength < range.length)
+                        range[rangeLength] = value;
+                    rangeLength++;
+                }
+                occ.popLimit(oldLimit);
+            } else if (field == OCC_RANGE && wire == WireFormat.WIRETYPE_VARINT) {
+                // unpacked encoding is legal for repeated scalars
+                int value = occ.readInt32();
+                if (rangeLength < range.length)
+                    range[rangeLength] = value;
+                rangeLength++;
+            } else if (field == OCC_ROLES && wire == WireFormat.WIRETYPE_VARINT) {
+                roleFlags = occ.readInt32();
+            } else {
+                occ.skipField(tag);
+            }
+        }
+
+        if (symbol == null)
+            return;
+
+        if (rangeLength == 4) {
+            out.add(symbol, range[0], range[1], range[2], range[3], roleFlags);
+        } else if (rangeLength == 3) {
+            // Single-line range: [startLine, startChar, endChar]
+            out.add(symbol, range[0], range[1], range[0], range[2], roleFlags);
+        }
+    }
+
+    private static SymbolRecord parseSymbolInfo(CodedInputStream sym) throws IOException {
+        String symbol = null;
+        String displayName = null;
+        StringBuilder docs = null;
+
+        int tag;
+        while ((tag = sym.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                sym.skipField(tag);
+                continue;
+            }
+            switch (field) {
+                case SYM_SYMBOL -> symbol = sym.readString();
+                case SYM_DISPLAY_NAME -> displayName = sym.readString();
+                case SYM_DOCUMENTATION -> {
+                    if (docs == null)
+                        docs = new StringBuilder();
+                    else
+                        docs.append("\n\n");
+                    docs.append(sym.readString());
+                }
+                default -> sym.skipField(tag);
+            }
+        }
+
+        if (symbol == null)
+            return null;
+        return new SymbolRecord(symbol, displayName, docs != null ? docs.toString() : null);
+    }
+}
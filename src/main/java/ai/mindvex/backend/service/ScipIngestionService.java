@@ -1,17 +1,37 @@
 package ai.mindvex.backend.service;
 
-import ai.mindvex.backend.entity.*;
-import ai.mindvex.backend.repository.*;
+import ai.mindvex.backend.repository.ScipDocumentRepository;
+import ai.mindvex.backend.service.ScipDocumentDecoder.DecodedDocument;
+import ai.mindvex.backend.service.ScipDocumentDecoder.SymbolRecord;
 import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Parses a raw SCIP Protobuf binary and ingests it into the three
@@ -30,7 +50,8 @@ import java.util.List;
  * }
  * message Occurrence {
  * string symbol = 1;
- * repeated int32 range = 3; // [startLine, startChar, endLine, endChar]
+ * repeated int32 range = 3; // [startLine, startChar, endLine, endChar] or
+ * // [startLine, startChar, endChar]
  * int32 symbol_roles = 4;
  * }
  * message SymbolInformation {
@@ -41,6 +62,47 @@ import java.util.List;
  *
  * We parse the binary manually using CodedInputStream to avoid needing
  * generated proto classes — keeping the build simple.
+ *
+ * Ingestion is a three-stage pipeline:
+ * 1. a reader thread streams the Index and splits it into Document /
+ * external-symbol frames;
+ * 2. a fork-join pool decodes frames in parallel (ScipDocumentDecoder);
+ * 3. the calling thread persists decoded frames in submission order, one
+ * transaction per app.scip.ingest.commit-documents documents.
+ *
+ * The frame queue is bounded, so heap usage stays proportional to
+ * queue-capacity × document size regardless of the index size. That bound
+ * counts every queued frame in full: the reader copies each Document and
+ * external-symbol frame out of its CodedInputStream, whose buffer is reused
+ * for the next read, so the decode thread owns its bytes. The copy is
+ * dropped once the frame is decoded; within a frame, nested messages are
+ * decoded in place (ScipDocumentDecoder).
+ *
+ * Re-indexing is incremental: every Document frame is hashed (SHA-256 of its
+ * raw bytes) and documents whose hash matches scip_documents.content_hash are
+ * skipped without a full decode. Documents missing from the new index are
+ * deleted once the whole index has been read.
+ *
+ * Symbol metadata (inline and external) goes through ScipSymbolWriter, which
+ * deduplicates and bulk-upserts it once per chunk instead of issuing a
+ * SELECT + INSERT pair per symbol. Occurrences store a bigint symbol_id from
+ * the scip_symbol_ids dictionary (ScipSymbolDictionary) instead of the full
+ * symbol string.
+ *
+ * Progress (documents handled, and an ETA from the bytes read out of
+ * totalBytes) goes to the job's JobProgressPublisher.Tracker as documents are
+ * written.
+ *
+ * When any document changed, the per-symbol location rows used by
+ * find-references and go-to-definition are rebuilt in one final
+ * transaction (ScipSymbolLocationIndex): only the symbols referenced by the
+ * old or new occurrences of changed and deleted documents, or every symbol
+ * on a repo's first ingestion. Every chunk that changes documents
+ * also saves a "scip_locations" job checkpoint marking the rebuild as
+ * pending, so a retry whose chunks all find their documents already
+ * written still rebuilds the rows the failed attempt left stale. The
+ * rebuild transaction also notifies the other nodes to drop the repo from
+ * their query caches (ScipCacheInvalidator).
  */
 @Service
 @RequiredArgsConstructor
@@ -48,186 +110,461 @@ import java.util.List;
 public class ScipIngestionService {
 
     private final ScipDocumentRepository documentRepo;
-    private final ScipOccurrenceRepository occurrenceRepo;
-    private final ScipSymbolInfoRepository symbolInfoRepo;
-
-    // SCIP field numbers
-    private static final int INDEX_DOCUMENTS = 3;
-    private static final int INDEX_EXTERNAL_SYMBOLS = 4;
-    private static final int DOC_RELATIVE_PATH = 1;
-    private static final int DOC_LANGUAGE = 4;
-    private static final int DOC_OCCURRENCES = 5;
-    private static final int DOC_SYMBOLS = 6;
-    private static final int OCC_SYMBOL = 1;
-    private static final int OCC_RANGE = 3;
-    private static final int OCC_ROLES = 4;
-    private static final int SYM_SYMBOL = 1;
-    private static final int SYM_DOCUMENTATION = 3;
-    private static final int SYM_DISPLAY_NAME = 7;
-
-    @Transactional
-    public void ingest(Long userId, String repoUrl, InputStream scipBinary) throws IOException {
+    private final ScipOccurrenceWriter occurrenceWriter;
+    private final ScipSymbolWriter symbolWriter;
+    private final ScipSymbolDictionary symbolDictionary;
+    private final ScipOccurrenceIndexCache occurrenceIndexCache;
+    private final ScipSymbolLocationIndex symbolLocationIndex;
+    private final ScipCacheInvalidator cacheInvalidator;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbc;
+
+    private static final String UPSERT_DOCUMENT_SQL = """
+            INSERT INTO code_intelligence.scip_documents
+                (user_id, repo_url, relative_uri, language, content_hash)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, repo_url, relative_uri) DO UPDATE
+                SET language     = EXCLUDED.language,
+                    content_hash = EXCLUDED.content_hash,
+                    indexed_at   = CURRENT_TIMESTAMP
+            RETURNING id
+            """;
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    /** Job checkpoint stage recording a symbol location rebuild still owed. */
+    static final String LOCATIONS_CHECKPOINT_STAGE = "scip_locations";
+    private static final String LOCATIONS_PENDING = "pending";
+    private static final String LOCATIONS_DONE = "done";
+
+    /** Decode threads; 0 = one per available core. */
+    @Value("${app.scip.ingest.parallelism:0}")
+    private int parallelism;
+
+    /** Documents persisted per write transaction. */
+    @Value("${app.scip.ingest.commit-documents:500}")
+    private int commitDocuments;
+
+    /** Frames decoded ahead of the writer; 0 = 4 × parallelism. */
+    @Value("${app.scip.ingest.queue-capacity:0}")
+    private int queueCapacity;
+
+    private ForkJoinPool decodePool;
+    private TransactionTemplate writeTx;
+
+    @PostConstruct
+    void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        if (queueCapacity <= 0)
+            queueCapacity = threads * 4;
+        decodePool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("scip-decode-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+
+        // Each chunk commits on its own, independent of any caller transaction
+        writeTx = new TransactionTemplate(transactionManager);
+        writeTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        log.info("SCIP ingestion pipeline: {} decode threads, queue={} frames, {} documents per transaction",
+                threads, queueCapacity, commitDocuments);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        decodePool.shutdownNow();
+    }
+
+    /**
+     * Per-stage counters for one ingestion run. Stage times are busy time:
+     * read excludes waiting on a full queue, decode is summed across threads.
+     */
+    public record IngestionStats(
+            int documents,
+            int unchangedDocuments,
+            int deletedDocuments,
+            long occurrences,
+            int symbols,
+            long bytesRead,
+            long readMillis,
+            long decodeMillis,
+            long writeMillis,
+            long wallMillis) {
+
+        public double readMbPerSec() {
+            return readMillis > 0 ? (bytesRead / 1_048_576.0) / (readMillis / 1000.0) : 0;
+        }
+
+        public double decodeDocsPerSec() {
+            return decodeMillis > 0 ? documents / (decodeMillis / 1000.0) : 0;
+        }
+
+        public double writeRowsPerSec() {
+            return writeMillis > 0 ? occurrences / (writeMillis / 1000.0) : 0;
+        }
+    }
+
+    /**
+     * Ingest one SCIP index.
+     *
+     * @param totalBytes  size of the index if known (-1 otherwise), for the ETA
+     * @param checkpoints checkpoints of the job running this, or NONE
+     * @param progress    progress of the job running this, or NONE
+     */
+    public IngestionStats ingest(Long userId, String repoUrl, InputStream scipBinary, long totalBytes,
+            JobCheckpointStore.Checkpoints checkpoints, JobProgressPublisher.Tracker progress) throws IOException {
         log.info("Starting SCIP ingestion for user={} repo={}", userId, repoUrl);
+        long startedAt = System.nanoTime();
+
+        Run run = new Run(userId, repoUrl, loadIndexState(userId, repoUrl),
+                new ArrayBlockingQueue<>(queueCapacity), symbolWriter.newBatch(userId, repoUrl),
+                symbolDictionary.newInterner(), totalBytes, checkpoints, progress);
+        // An earlier attempt changed documents but failed before rebuilding their locations
+        boolean locationsPending = LOCATIONS_PENDING.equals(checkpoints.load(LOCATIONS_CHECKPOINT_STAGE));
+        progress.stage("ingest", "documents", -1, "Ingesting SCIP index");
+        Thread reader = new Thread(() -> readFrames(scipBinary, run), "scip-reader-" + userId);
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            boolean more = true;
+            while (more) {
+                more = Boolean.TRUE.equals(writeTx.execute(status -> writeChunk(run)));
+                invalidateChanged(run);
+            }
+            writeTx.executeWithoutResult(status -> deleteVanishedDocuments(run));
+            invalidateChanged(run);
+            if (locationsPending || run.documents > 0 || run.deleted > 0)
+                // Symbols touched by the failed attempt are not known, so rebuild all of them
+                rebuildSymbolLocations(run, locationsPending || run.known.isEmpty());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            reader.interrupt();
+        }
 
-        CodedInputStream stream = CodedInputStream.newInstance(scipBinary);
-        int tag;
+        IngestionStats stats = new IngestionStats(
+                run.documents,
+                run.unchanged,
+                run.deleted,
+                run.occurrences,
+                run.symbols,
+                run.bytesRead.get(),
+                run.readNanos.get() / 1_000_000,
+                run.decodeNanos.get() / 1_000_000,
+                run.writeNanos / 1_000_000,
+                (System.nanoTime() - startedAt) / 1_000_000);
+
+        log.info("SCIP ingestion complete for user={} repo={}: {} documents written, {} unchanged, {} deleted, "
+                + "{} occurrences, {} symbols in {} ms (read {} MB/s, decode {} docs/s, write {} rows/s)",
+                userId, repoUrl, stats.documents(), stats.unchangedDocuments(), stats.deletedDocuments(),
+                stats.occurrences(), stats.symbols(), stats.wallMillis(),
+                String.format("%.1f", stats.readMbPerSec()),
+                String.format("%.0f", stats.decodeDocsPerSec()),
+                String.format("%.0f", stats.writeRowsPerSec()));
+        return stats;
+    }
+
+    private Map<String, KnownDocument> loadIndexState(Long userId, String repoUrl) {
+        Map<String, KnownDocument> known = new HashMap<>();
+        for (Object[] row : documentRepo.findIndexState(userId, repoUrl)) {
+            known.put((String) row[1], new KnownDocument((Long) row[0], (String) row[2]));
+        }
+        return known;
+    }
+
+    /** Evict cached occurrence indexes for documents rewritten by the last committed chunk. */
+    private void invalidateChanged(Run run) {
+        if (run.changed.isEmpty())
+            return;
+        occurrenceIndexCache.invalidate(run.userId, run.repoUrl, run.changed);
+        run.changed.clear();
+    }
+
+    /**
+     * Recompute the symbol → locations index once the repo's occurrences
+     * changed: every symbol if all, otherwise the symbols the run touched.
+     */
+    private void rebuildSymbolLocations(Run run, boolean all) {
+        long start = System.nanoTime();
+        Integer symbols = writeTx.execute(status -> {
+            run.checkpoints.save(LOCATIONS_CHECKPOINT_STAGE, LOCATIONS_DONE);
+            cacheInvalidator.publish(run.userId, run.repoUrl);
+            return all
+                    ? symbolLocationIndex.rebuild(run.userId, run.repoUrl)
+                    : symbolLocationIndex.rebuild(run.userId, run.repoUrl, run.touchedSymbols);
+        });
+        // Symbol metadata attached to cached documents may have changed too
+        cacheInvalidator.invalidateLocal(run.userId, run.repoUrl);
+        log.info("Rebuilt symbol locations for user={} repo={}: {} symbols ({}) in {} ms",
+                run.userId, run.repoUrl, symbols, all ? "all" : run.touchedSymbols.size() + " touched",
+                (System.nanoTime() - start) / 1_000_000);
+    }
 
-        while ((tag = stream.readTag()) != 0) {
-            int fieldNumber = tag >>> 3;
-            int wireType = tag & 0x7;
+    // ─── Stage 1: reader ──────────────────────────────────────────────────────
 
-            if (wireType == 2) { // length-delimited
-                byte[] bytes = stream.readByteArray();
-                if (fieldNumber == INDEX_DOCUMENTS) {
-                    ingestDocument(userId, repoUrl, CodedInputStream.newInstance(bytes));
-                } else if (fieldNumber == INDEX_EXTERNAL_SYMBOLS) {
-                    ingestSymbolInfo(userId, repoUrl, CodedInputStream.newInstance(bytes));
+    private void readFrames(InputStream scipBinary, Run run) {
+        BlockingQueue<Frame> frames = run.frames;
+        try {
+            CodedInputStream stream = CodedInputStream.newInstance(scipBinary, STREAM_BUFFER_SIZE);
+            int tag;
+            while (true) {
+                long readStart = System.nanoTime();
+                tag = stream.readTag();
+                if (tag == 0)
+                    break;
+
+                int fieldNumber = WireFormat.getTagFieldNumber(tag);
+                boolean lengthDelimited = WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+                // Each frame is copied out of the stream buffer for its decode thread
+                if (lengthDelimited && fieldNumber == ScipDocumentDecoder.INDEX_DOCUMENTS) {
+                    byte[] frame = stream.readByteArray();
+                    run.record(frame.length, readStart);
+                    frames.put(new Frame(CompletableFuture.supplyAsync(
+                            () -> decode(() -> decodeDocumentFrame(frame, run.known), run), decodePool)));
+                } else if (lengthDelimited && fieldNumber == ScipDocumentDecoder.INDEX_EXTERNAL_SYMBOLS) {
+                    byte[] frame = stream.readByteArray();
+                    run.record(frame.length, readStart);
+                    frames.put(new Frame(CompletableFuture.supplyAsync(
+                            () -> decode(() -> ScipDocumentDecoder.decodeSymbolInfo(frame), run), decodePool)));
                 } else {
-                    // skip unknown fields
+                    stream.skipField(tag);
                 }
-            } else {
-                stream.skipField(tag);
+
+                // Top-level frames are fully consumed here, so the size counter
+                // can be reset to keep multi-GB uploads under the int limit.
+                stream.resetSizeCounter();
+            }
+            frames.put(Frame.END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            try {
+                frames.put(new Frame(CompletableFuture.failedFuture(e)));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
             }
         }
+    }
+
+    // ─── Stage 2: decode ──────────────────────────────────────────────────────
+
+    private interface FrameDecoder {
+        Object decode() throws IOException;
+    }
+
+    private Object decode(FrameDecoder decoder, Run run) {
+        long start = System.nanoTime();
+        try {
+            return decoder.decode();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            run.decodeNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
 
-        log.info("SCIP ingestion complete for user={} repo={}", userId, repoUrl);
-    }
-
-    private void ingestDocument(Long userId, String repoUrl, CodedInputStream doc) throws IOException {
-        String relativePath = null;
-        String language = null;
-        List<byte[]> occurrenceBytes = new ArrayList<>();
-        List<byte[]> symbolBytes = new ArrayList<>();
-
-        int tag;
-        while ((tag = doc.readTag()) != 0) {
-            int field = tag >>> 3;
-            if ((tag & 0x7) == 2) {
-                byte[] bytes = doc.readByteArray();
-                if (field == DOC_RELATIVE_PATH)
-                    relativePath = new String(bytes);
-                else if (field == DOC_LANGUAGE)
-                    language = new String(bytes);
-                else if (field == DOC_OCCURRENCES)
-                    occurrenceBytes.add(bytes);
-                else if (field == DOC_SYMBOLS)
-                    symbolBytes.add(bytes);
-            } else {
-                doc.skipField(tag);
+    /**
+     * Hash the frame and only decode it fully if the document is new or its
+     * content changed since the previous index.
+     */
+    private Object decodeDocumentFrame(byte[] frame, Map<String, KnownDocument> known) throws IOException {
+        String contentHash = ScipDocumentDecoder.contentHash(frame);
+        String relativePath = ScipDocumentDecoder.readRelativePath(frame);
+        KnownDocument previous = relativePath != null ? known.get(relativePath) : null;
+        if (previous != null && contentHash.equals(previous.contentHash()))
+            return new UnchangedDocument(relativePath);
+        return ScipDocumentDecoder.decodeDocument(frame, contentHash);
+    }
+
+    // ─── Stage 3: ordered writer ──────────────────────────────────────────────
+
+    /**
+     * Persist up to commitDocuments decoded documents inside the current
+     * transaction.
+     *
+     * @return true if more frames remain
+     */
+    private boolean writeChunk(Run run) {
+        int written = 0;
+        while (written < commitDocuments) {
+            Frame frame;
+            try {
+                frame = run.frames.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new IOException("SCIP ingestion interrupted", e));
+            }
+            if (frame == Frame.END) {
+                run.symbolBatch.flush();
+                return false;
+            }
+
+            Object decoded = await(frame);
+            long writeStart = System.nanoTime();
+            if (decoded instanceof DecodedDocument document) {
+                persistDocument(run, document);
+                written++;
+            } else if (decoded instanceof UnchangedDocument unchanged) {
+                run.seen.add(unchanged.relativePath());
+                run.unchanged++;
+            } else if (decoded instanceof SymbolRecord symbol) {
+                run.symbolBatch.add(symbol);
+                run.symbols++;
             }
+            run.writeNanos += System.nanoTime() - writeStart;
+            run.reportProgress();
         }
+        long flushStart = System.nanoTime();
+        run.symbolBatch.flush();
+        run.writeNanos += System.nanoTime() - flushStart;
+        return true;
+    }
+
+    private Object await(Frame frame) {
+        try {
+            return frame.decoded().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException unchecked)
+                throw unchecked;
+            if (cause instanceof IOException io)
+                throw new UncheckedIOException(io);
+            throw new UncheckedIOException(new IOException("Failed to read SCIP index: " + cause.getMessage(), cause));
+        }
+    }
 
-        if (relativePath == null)
+    private void persistDocument(Run run, DecodedDocument decoded) {
+        if (decoded.relativePath() == null || !run.seen.add(decoded.relativePath()))
             return;
 
-        // Upsert document
-        final String finalRelativePath = relativePath;
-        final String finalLanguage = language;
-        ScipDocument document = documentRepo
-                .findByUserIdAndRepoUrlAndRelativeUri(userId, repoUrl, finalRelativePath)
-                .orElseGet(() -> ScipDocument.builder()
-                        .userId(userId)
-                        .repoUrl(repoUrl)
-                        .relativeUri(finalRelativePath)
-                        .build());
-        document.setLanguage(finalLanguage);
-        document = documentRepo.save(document);
-
-        // Replace occurrences for this document
-        occurrenceRepo.deleteByDocumentId(document.getId());
-        List<ScipOccurrence> occurrences = new ArrayList<>();
-        for (byte[] occ : occurrenceBytes) {
-            ScipOccurrence o = parseOccurrence(document.getId(), CodedInputStream.newInstance(occ));
-            if (o != null)
-                occurrences.add(o);
-        }
-        occurrenceRepo.saveAll(occurrences);
+        Long documentId = jdbc.queryForObject(UPSERT_DOCUMENT_SQL, Long.class,
+                run.userId, run.repoUrl, decoded.relativePath(), decoded.language(), decoded.contentHash());
+
+        // Replace occurrences for this document (new documents have none yet)
+        if (run.known.containsKey(decoded.relativePath()))
+            run.touchedSymbols.addAll(occurrenceWriter.deleteByDocumentId(documentId));
+        long[] symbolIds = run.interner.resolve(decoded.occurrences());
+        for (long symbolId : symbolIds)
+            run.touchedSymbols.add(symbolId);
+        run.occurrences += occurrenceWriter.write(documentId, decoded.occurrences(), symbolIds);
+        run.documents++;
+        run.changed.add(decoded.relativePath());
+        run.markLocationsPending();
 
-        // Upsert inline symbol info
-        for (byte[] sym : symbolBytes) {
-            ingestSymbolInfo(userId, repoUrl, CodedInputStream.newInstance(sym));
+        // Queue inline symbol info for the bulk upsert
+        for (SymbolRecord symbol : decoded.symbols()) {
+            run.symbolBatch.add(symbol);
+            run.symbols++;
         }
     }
 
-    private ScipOccurrence parseOccurrence(Long documentId, CodedInputStream occ) throws IOException {
-        String symbol = null;
-        List<Integer> range = new ArrayList<>();
-        int roleFlags = 0;
-
-        int tag;
-        while ((tag = occ.readTag()) != 0) {
-            int field = tag >>> 3;
-            int wire = tag & 0x7;
-            if (wire == 2 && field == OCC_SYMBOL) {
-                symbol = new String(occ.readByteArray());
-            } else if (wire == 2 && field == OCC_RANGE) {
-                // packed int32 array
-                CodedInputStream packed = CodedInputStream.newInstance(occ.readByteArray());
-                while (!packed.isAtEnd())
-                    range.add(packed.readInt32());
-            } else if (wire == 0 && field == OCC_ROLES) {
-                roleFlags = occ.readInt32();
-            } else {
-                occ.skipField(tag);
+    /**
+     * Remove documents (and, via ON DELETE CASCADE, their occurrences) that
+     * were indexed previously but are absent from the new index.
+     */
+    private void deleteVanishedDocuments(Run run) {
+        List<Object[]> vanished = new ArrayList<>();
+        List<Long> vanishedIds = new ArrayList<>();
+        run.known.forEach((path, doc) -> {
+            if (!run.seen.contains(path)) {
+                vanished.add(new Object[] { doc.id() });
+                vanishedIds.add(doc.id());
+                run.changed.add(path);
             }
+        });
+        if (vanished.isEmpty())
+            return;
+        run.markLocationsPending();
+        run.touchedSymbols.addAll(occurrenceWriter.symbolIdsOf(vanishedIds));
+        jdbc.batchUpdate("DELETE FROM code_intelligence.scip_documents WHERE id = ?", vanished);
+        run.deleted = vanished.size();
+    }
+
+    // ─── Pipeline plumbing ────────────────────────────────────────────────────
+
+    /** A frame in flight; decoded yields a DecodedDocument or SymbolRecord. */
+    private record Frame(CompletableFuture<Object> decoded) {
+        static final Frame END = new Frame(null);
+    }
+
+    /** Previously indexed document state. */
+    private record KnownDocument(Long id, String contentHash) {
+    }
+
+    /** Decode result for a document whose content hash did not change. */
+    private record UnchangedDocument(String relativePath) {
+    }
+
+    /**
+     * State of one ingestion run. Reader/decoder counters are shared across
+     * threads; everything else is only touched by the writer (calling) thread.
+     */
+    private static final class Run {
+        final Long userId;
+        final String repoUrl;
+        final Map<String, KnownDocument> known;
+        final BlockingQueue<Frame> frames;
+        final ScipSymbolWriter.Batch symbolBatch;
+        final ScipSymbolDictionary.Interner interner;
+        final Set<String> seen = new HashSet<>();
+        /** Documents written or deleted since the last cache invalidation. */
+        final List<String> changed = new ArrayList<>();
+        /** Symbol ids referenced by old or new occurrences of changed documents. */
+        final Set<Long> touchedSymbols = new HashSet<>();
+
+        final AtomicLong bytesRead = new AtomicLong();
+        final AtomicLong readNanos = new AtomicLong();
+        final AtomicLong decodeNanos = new AtomicLong();
+        long writeNanos;
+        int documents;
+        int unchanged;
+        int deleted;
+        long occurrences;
+        int symbols;
+
+        final long totalBytes;
+        final JobCheckpointStore.Checkpoints checkpoints;
+        final JobProgressPublisher.Tracker progress;
+        /** Whether the pending-locations checkpoint has been saved by this run. */
+        boolean locationsMarked;
+
+        Run(Long userId, String repoUrl, Map<String, KnownDocument> known, BlockingQueue<Frame> frames,
+                ScipSymbolWriter.Batch symbolBatch, ScipSymbolDictionary.Interner interner, long totalBytes,
+                JobCheckpointStore.Checkpoints checkpoints, JobProgressPublisher.Tracker progress) {
+            this.userId = userId;
+            this.repoUrl = repoUrl;
+            this.known = known;
+            this.frames = frames;
+            this.symbolBatch = symbolBatch;
+            this.interner = interner;
+            this.totalBytes = totalBytes;
+            this.checkpoints = checkpoints;
+            this.progress = progress;
         }
 
-        if (symbol == null || range.size() < 4)
-            return null;
-
-        return ScipOccurrence.builder()
-                .documentId(documentId)
-                .symbol(symbol)
-                .startLine(range.get(0))
-                .startChar(range.get(1))
-                .endLine(range.get(2))
-                .endChar(range.get(3))
-                .roleFlags(roleFlags)
-                .build();
-    }
-
-    private void ingestSymbolInfo(Long userId, String repoUrl, CodedInputStream sym) throws IOException {
-        String symbol = null;
-        String displayName = null;
-        StringBuilder docs = new StringBuilder();
-
-        int tag;
-        while ((tag = sym.readTag()) != 0) {
-            int field = tag >>> 3;
-            if ((tag & 0x7) == 2) {
-                byte[] bytes = sym.readByteArray();
-                if (field == SYM_SYMBOL)
-                    symbol = new String(bytes);
-                else if (field == SYM_DISPLAY_NAME)
-                    displayName = new String(bytes);
-                else if (field == SYM_DOCUMENTATION) {
-                    if (docs.length() > 0)
-                        docs.append("\n\n");
-                    docs.append(new String(bytes));
-                }
-            } else {
-                sym.skipField(tag);
-            }
+        /**
+         * Record in the current write transaction that symbol locations must
+         * be rebuilt, so the marker commits with the first changed document.
+         */
+        void markLocationsPending() {
+            if (locationsMarked)
+                return;
+            checkpoints.save(LOCATIONS_CHECKPOINT_STAGE, LOCATIONS_PENDING);
+            locationsMarked = true;
         }
 
-        if (symbol == null)
-            return;
+        /** Documents handled so far; the fraction read of the index drives the ETA. */
+        void reportProgress() {
+            double fraction = totalBytes > 0 ? (double) bytesRead.get() / totalBytes : 0;
+            progress.update(documents + unchanged, fraction);
+        }
 
-        final String finalSymbol = symbol;
-        final String finalDisplayName = displayName;
-        final String finalDocs = docs.toString();
-
-        ScipSymbolInfo info = symbolInfoRepo
-                .findByUserIdAndRepoUrlAndSymbol(userId, repoUrl, finalSymbol)
-                .orElseGet(() -> ScipSymbolInfo.builder()
-                        .userId(userId)
-                        .repoUrl(repoUrl)
-                        .symbol(finalSymbol)
-                        .build());
-        if (finalDisplayName != null)
-            info.setDisplayName(finalDisplayName);
-        if (!finalDocs.isEmpty())
-            info.setDocumentation(finalDocs);
-        symbolInfoRepo.save(info);
+        void record(int frameBytes, long readStart) {
+            bytesRead.addAndGet(frameBytes);
+            readNanos.addAndGet(System.nanoTime() - readStart);
+        }
     }
 }
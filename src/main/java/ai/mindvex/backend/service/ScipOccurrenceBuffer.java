@@ -0,0 +1,83 @@
+package ai.mindvex.backend.service;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented, growable buffer of decoded SCIP occurrences.
+ *
+ * Ranges and role flags are kept in primitive int arrays so decoding a
+ * document never boxes a single integer. The buffer is reused across
+ * documents via {@link #clear()}.
+ */
+public final class ScipOccurrenceBuffer {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] symbols = new String[INITIAL_CAPACITY];
+    private int[] startLines = new int[INITIAL_CAPACITY];
+    private int[] startChars = new int[INITIAL_CAPACITY];
+    private int[] endLines = new int[INITIAL_CAPACITY];
+    private int[] endChars = new int[INITIAL_CAPACITY];
+    private int[] roleFlags = new int[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(String symbol, int startLine, int startChar, int endLine, int endChar, int roles) {
+        if (size == symbols.length)
+            grow();
+        symbols[size] = symbol;
+        startLines[size] = startLine;
+        startChars[size] = startChar;
+        endLines[size] = endLine;
+        endChars[size] = endChar;
+        roleFlags[size] = roles;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        // Drop symbol references so large documents don't pin strings
+        Arrays.fill(symbols, 0, size, null);
+        size = 0;
+    }
+
+    public String symbol(int i) {
+        return symbols[i];
+    }
+
+    public int startLine(int i) {
+        return startLines[i];
+    }
+
+    public int startChar(int i) {
+        return startChars[i];
+    }
+
+    public int endLine(int i) {
+        return endLines[i];
+    }
+
+    public int endChar(int i) {
+        return endChars[i];
+    }
+
+    public int roleFlags(int i) {
+        return roleFlags[i];
+    }
+
+    private void grow() {
+        int capacity = symbols.length << 1;
+        symbols = Arrays.copyOf(symbols, capacity);
+        startLines = Arrays.copyOf(startLines, capacity);
+        startChars = Arrays.copyOf(startChars, capacity);
+        endLines = Arrays.copyOf(endLines, capacity);
+        endChars = Arrays.copyOf(endChars, capacity);
+        roleFlags = Arrays.copyOf(roleFlags, capacity);
+    }
+}
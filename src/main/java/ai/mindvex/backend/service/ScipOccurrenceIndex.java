@@ -0,0 +1,278 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.entity.ScipSymbolInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, in-memory interval index over the occurrences of one SCIP
+ * document.
+ *
+ * Positions are packed into a long as (line << 32) | character, so range
+ * checks are plain long comparisons. Rows are sorted by start position and
+ * maxEnds holds the running maximum of end positions, which lets a position
+ * lookup binary-search to the last occurrence starting at or before the
+ * cursor and walk backwards only while an enclosing range is still possible.
+ *
+ * Symbol strings are stored once per distinct symbol; rows reference them
+ * through symbolRefs. ScipOccurrenceIndexCache attaches the scip_symbols
+ * metadata of those symbols with withSymbolInfo(), so a hover needs no
+ * query of its own.
+ */
+public final class ScipOccurrenceIndex {
+
+    private final long documentId;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final int[] roleFlags;
+    private final int[] symbolRefs;
+    private final long[] symbolIds;
+    private final String[] symbols;
+    /** Metadata aligned with symbols; null entries (or array) when unknown. */
+    private final ScipSymbolInfo[] symbolInfos;
+
+    private ScipOccurrenceIndex(ScipOccurrenceIndex index, ScipSymbolInfo[] symbolInfos) {
+        this.documentId = index.documentId;
+        this.starts = index.starts;
+        this.ends = index.ends;
+        this.maxEnds = index.maxEnds;
+        this.roleFlags = index.roleFlags;
+        this.symbolRefs = index.symbolRefs;
+        this.symbolIds = index.symbolIds;
+        this.symbols = index.symbols;
+        this.symbolInfos = symbolInfos;
+    }
+
+    private ScipOccurrenceIndex(long documentId, long[] starts, long[] ends, int[] roleFlags,
+            int[] symbolRefs, long[] symbolIds, String[] symbols) {
+        this.documentId = documentId;
+        this.starts = starts;
+        this.ends = ends;
+        this.roleFlags = roleFlags;
+        this.symbolRefs = symbolRefs;
+        this.symbolIds = symbolIds;
+        this.symbols = symbols;
+        this.symbolInfos = null;
+
+        this.maxEnds = new long[ends.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < ends.length; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+
+    public static long position(int line, int character) {
+        return ((long) line << 32) | (character & 0xffffffffL);
+    }
+
+    public long documentId() {
+        return documentId;
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * Row of the innermost occurrence containing the position (bounds
+     * inclusive), or -1 if none does. Innermost means fewest lines spanned,
+     * then fewest characters — the same order the SQL lookup used.
+     */
+    public int findInnermost(int line, int character) {
+        long pos = position(line, character);
+
+        // Last row whose start <= pos
+        int lo = 0;
+        int hi = starts.length - 1;
+        int last = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= pos) {
+                last = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        int best = -1;
+        for (int i = last; i >= 0 && maxEnds[i] >= pos; i--) {
+            if (ends[i] >= pos && (best < 0 || narrower(i, best)))
+                best = i;
+        }
+        return best;
+    }
+
+    /**
+     * First row that may overlap the given line or any later line. Rows from
+     * here on are in start order; callers still skip rows ending before the
+     * line and stop once rows start past their range.
+     */
+    public int firstOverlapping(int line) {
+        long pos = position(line, 0);
+
+        // First row whose start >= pos
+        int lo = 0;
+        int hi = starts.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < pos)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        // Earlier rows can still span into the line
+        int first = lo;
+        for (int i = lo - 1; i >= 0 && maxEnds[i] >= pos; i--) {
+            if (ends[i] >= pos)
+                first = i;
+        }
+        return first;
+    }
+
+    private boolean narrower(int a, int b) {
+        int linesA = endLine(a) - startLine(a);
+        int linesB = endLine(b) - startLine(b);
+        if (linesA != linesB)
+            return linesA < linesB;
+        return endChar(a) - startChar(a) < endChar(b) - startChar(b);
+    }
+
+    public int startLine(int row) {
+        return (int) (starts[row] >>> 32);
+    }
+
+    public int startChar(int row) {
+        return (int) starts[row];
+    }
+
+    public int endLine(int row) {
+        return (int) (ends[row] >>> 32);
+    }
+
+    public int endChar(int row) {
+        return (int) ends[row];
+    }
+
+    public int roleFlags(int row) {
+        return roleFlags[row];
+    }
+
+    public long symbolId(int row) {
+        return symbolIds[symbolRefs[row]];
+    }
+
+    public String symbol(int row) {
+        return symbols[symbolRefs[row]];
+    }
+
+    /** scip_symbols metadata of the row's symbol, or null if none was attached. */
+    public ScipSymbolInfo symbolInfo(int row) {
+        return symbolInfos != null ? symbolInfos[symbolRefs[row]] : null;
+    }
+
+    /** Distinct symbols referenced by the document. */
+    public List<String> distinctSymbols() {
+        return List.of(symbols);
+    }
+
+    /** The same index with the metadata of its symbols, keyed by symbol string. */
+    public ScipOccurrenceIndex withSymbolInfo(Map<String, ScipSymbolInfo> infos) {
+        ScipSymbolInfo[] aligned = new ScipSymbolInfo[symbols.length];
+        for (int i = 0; i < symbols.length; i++)
+            aligned[i] = infos.get(symbols[i]);
+        return new ScipOccurrenceIndex(this, aligned);
+    }
+
+    // ─── Builder ──────────────────────────────────────────────────────────────
+
+    /** Accumulates rows in any order; build() sorts them by start position. */
+    public static final class Builder {
+
+        private final long documentId;
+        private long[] starts = new long[64];
+        private long[] ends = new long[64];
+        private int[] roleFlags = new int[64];
+        private int[] symbolRefs = new int[64];
+        private long[] symbolIds = new long[16];
+        private String[] symbols = new String[16];
+        private final Map<Long, Integer> symbolRefById = new HashMap<>();
+        private int size;
+        private int symbolCount;
+
+        public Builder(long documentId) {
+            this.documentId = documentId;
+        }
+
+        public Builder add(long symbolId, String symbol, int startLine, int startChar,
+                int endLine, int endChar, int roles) {
+            if (size == starts.length) {
+                int capacity = size * 2;
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                roleFlags = Arrays.copyOf(roleFlags, capacity);
+                symbolRefs = Arrays.copyOf(symbolRefs, capacity);
+            }
+            Integer ref = symbolRefById.get(symbolId);
+            if (ref == null) {
+                if (symbolCount == symbolIds.length) {
+                    symbolIds = Arrays.copyOf(symbolIds, symbolCount * 2);
+                    symbols = Arrays.copyOf(symbols, symbolCount * 2);
+                }
+                ref = symbolCount++;
+                symbolIds[ref] = symbolId;
+                symbols[ref] = symbol;
+                symbolRefById.put(symbolId, ref);
+            }
+            starts[size] = position(startLine, startChar);
+            ends[size] = position(endLine, endChar);
+            roleFlags[size] = roles;
+            symbolRefs[size] = ref;
+            size++;
+            return this;
+        }
+
+        public ScipOccurrenceIndex build() {
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = starts[i - 1] <= starts[i];
+            }
+            if (!sorted)
+                sortByStart();
+            return new ScipOccurrenceIndex(documentId,
+                    Arrays.copyOf(starts, size), Arrays.copyOf(ends, size),
+                    Arrays.copyOf(roleFlags, size), Arrays.copyOf(symbolRefs, size),
+                    Arrays.copyOf(symbolIds, symbolCount), Arrays.copyOf(symbols, symbolCount));
+        }
+
+        private void sortByStart() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++)
+                order[i] = i;
+            long[] keys = starts;
+            Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+            long[] s = new long[size];
+            long[] e = new long[size];
+            int[] r = new int[size];
+            int[] refs = new int[size];
+            for (int i = 0; i < size; i++) {
+                int from = order[i];
+                s[i] = starts[from];
+                e[i] = ends[from];
+                r[i] = roleFlags[from];
+                refs[i] = symbolRefs[from];
+            }
+            starts = s;
+            ends = e;
+            roleFlags = r;
+            symbolRefs = refs;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.entity.ScipDocument;
+import ai.mindvex.backend.entity.ScipSymbolInfo;
+import ai.mindvex.backend.repository.ScipDocumentRepository;
+import ai.mindvex.backend.repository.ScipSymbolInfoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * LRU cache of per-document occurrence indexes, keyed by
+ * (userId, repoUrl, relativeUri).
+ *
+ * A miss resolves the document and loads all of its occurrences with one
+ * query, plus the scip_symbols metadata of the symbols they reference;
+ * subsequent hovers on the same file are a binary search in memory. The
+ * cache is bounded both by document count and by total occurrences held.
+ *
+ * ScipIngestionService invalidates documents after each committed chunk, and
+ * ScipCacheInvalidator drops a whole repo when an ingestion on any node
+ * commits. A load that overlaps an invalidation is returned to its caller
+ * but not cached, so stale data cannot be re-inserted after the writer
+ * commits. Entries older than app.scip.query.cache-ttl-seconds are reloaded,
+ * as a backstop for missed notifications.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScipOccurrenceIndexCache {
+
+    private static final String LOAD_SQL = """
+            SELECT o.symbol_id, s.symbol,
+                   o.start_line, o.start_char, o.end_line, o.end_char, o.role_flags
+            FROM code_intelligence.scip_occurrences o
+            JOIN code_intelligence.scip_symbol_ids s ON s.id = o.symbol_id
+            WHERE o.document_id = ?
+            ORDER BY o.start_line, o.start_char
+            """;
+
+    /** Symbols per metadata query, well below PostgreSQL's bind parameter limit. */
+    private static final int SYMBOL_INFO_BATCH = 5000;
+
+    private final ScipDocumentRepository documentRepo;
+    private final ScipSymbolInfoRepository symbolInfoRepo;
+    private final JdbcTemplate jdbc;
+
+    @Value("${app.scip.query.cache-documents:2000}")
+    private int maxDocuments;
+
+    @Value("${app.scip.query.cache-occurrences:5000000}")
+    private long maxOccurrences;
+
+    @Value("${app.scip.query.cache-ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private record Key(Long userId, String repoUrl, String relativeUri) {
+    }
+
+    private record Entry(ScipOccurrenceIndex index, long loadedAtNanos) {
+    }
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedOccurrences;
+    private long generation;
+
+    /** Occurrence index for a document, loading it on a miss. Empty if the document is not indexed. */
+    public Optional<ScipOccurrenceIndex> get(Long userId, String repoUrl, String relativeUri) {
+        Key key = new Key(userId, repoUrl, relativeUri);
+        long loadGeneration;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null && System.nanoTime() - cached.loadedAtNanos() < ttlSeconds * 1_000_000_000L)
+                return Optional.of(cached.index());
+            if (cached != null)
+                remove(key);
+            loadGeneration = generation;
+        }
+
+        Optional<ScipDocument> document = documentRepo.findByUserIdAndRepoUrlAndRelativeUri(
+                userId, repoUrl, relativeUri);
+        if (document.isEmpty())
+            return Optional.empty();
+
+        long loadedAt = System.nanoTime();
+        ScipOccurrenceIndex index = withSymbolInfo(userId, repoUrl, load(document.get().getId()));
+        synchronized (this) {
+            if (loadGeneration == generation)
+                put(key, new Entry(index, loadedAt));
+        }
+        return Optional.of(index);
+    }
+
+    /** Drop cached indexes for the given documents of a repo. */
+    public synchronized void invalidate(Long userId, String repoUrl, Collection<String> relativeUris) {
+        generation++;
+        for (String relativeUri : relativeUris)
+            remove(new Key(userId, repoUrl, relativeUri));
+    }
+
+    /** Drop every cached index of a repo. */
+    public synchronized void invalidateRepo(Long userId, String repoUrl) {
+        generation++;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().userId().equals(userId) && entry.getKey().repoUrl().equals(repoUrl)) {
+                cachedOccurrences -= entry.getValue().index().size();
+                it.remove();
+            }
+        }
+    }
+
+    /** Drop every cached index, e.g. after invalidations may have been missed. */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        cachedOccurrences = 0;
+    }
+
+    private ScipOccurrenceIndex load(long documentId) {
+        ScipOccurrenceIndex.Builder builder = new ScipOccurrenceIndex.Builder(documentId);
+        jdbc.query(LOAD_SQL, rs -> {
+            builder.add(
+                    rs.getLong("symbol_id"),
+                    rs.getString("symbol"),
+                    rs.getInt("start_line"),
+                    rs.getInt("start_char"),
+                    rs.getInt("end_line"),
+                    rs.getInt("end_char"),
+                    rs.getInt("role_flags"));
+        }, documentId);
+        return builder.build();
+    }
+
+    /** Attach the scip_symbols metadata of every symbol the document references. */
+    private ScipOccurrenceIndex withSymbolInfo(Long userId, String repoUrl, ScipOccurrenceIndex index) {
+        List<String> symbols = index.distinctSymbols();
+        Map<String, ScipSymbolInfo> infos = new HashMap<>();
+        for (int from = 0; from < symbols.size(); from += SYMBOL_INFO_BATCH) {
+            List<String> batch = symbols.subList(from, Math.min(from + SYMBOL_INFO_BATCH, symbols.size()));
+            for (ScipSymbolInfo info : symbolInfoRepo.findByUserIdAndRepoUrlAndSymbolIn(userId, repoUrl, batch))
+                infos.put(info.getSymbol(), info);
+        }
+        return index.withSymbolInfo(infos);
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            cachedOccurrences -= removed.index().size();
+    }
+
+    private void put(Key key, Entry entry) {
+        ScipOccurrenceIndex index = entry.index();
+        if (index.size() > maxOccurrences) {
+            log.debug("Not caching occurrence index for {}: {} occurrences exceeds cache budget",
+                    key.relativeUri(), index.size());
+            return;
+        }
+        Entry previous = entries.put(key, entry);
+        if (previous != null)
+            cachedOccurrences -= previous.index().size();
+        cachedOccurrences += index.size();
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (eldest.hasNext() && (entries.size() > maxDocuments || cachedOccurrences > maxOccurrences)) {
+            cachedOccurrences -= eldest.next().index().size();
+            eldest.remove();
+        }
+    }
+}
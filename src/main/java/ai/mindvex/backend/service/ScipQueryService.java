@@ -1,66 +1,280 @@
 package ai.mindvex.backend.service;
 
 import ai.mindvex.backend.dto.HoverResponse;
-import ai.mindvex.backend.entity.ScipDocument;
-import ai.mindvex.backend.entity.ScipOccurrence;
+import ai.mindvex.backend.dto.ReferenceGroup;
+import ai.mindvex.backend.dto.ReferencePage;
+import ai.mindvex.backend.dto.ReferenceResult;
+import ai.mindvex.backend.dto.SemanticTokensResponse;
 import ai.mindvex.backend.entity.ScipSymbolInfo;
-import ai.mindvex.backend.repository.ScipDocumentRepository;
-import ai.mindvex.backend.repository.ScipOccurrenceRepository;
-import ai.mindvex.backend.repository.ScipSymbolInfoRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
- * Answers hover queries by joining scip_occurrences → scip_symbols.
+ * Answers hover queries from the cached per-document occurrence index
+ * (ScipOccurrenceIndexCache), which carries the scip_symbols metadata of
+ * the symbols it references.
  * Given a (userId, repoUrl, filePath, line, character), returns the
  * symbol metadata for the innermost occurrence at that position.
+ *
+ * getTokens returns every occurrence of a file (or line range) plus the
+ * metadata of the symbols they reference in one packed response, so the
+ * editor can decorate a file without a hover call per position.
+ *
+ * findReferences / findDefinitions read the precomputed symbol → locations
+ * index (ScipSymbolLocationIndex) instead of joining the occurrence tables.
+ * For very popular symbols, findReferencePage and streamReferences return
+ * the same locations grouped per file, keyset-paginated or streamed; both
+ * read the packed locations lazily from the cursor on.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ScipQueryService {
 
-    private final ScipDocumentRepository documentRepo;
-    private final ScipOccurrenceRepository occurrenceRepo;
-    private final ScipSymbolInfoRepository symbolInfoRepo;
+    private final ScipOccurrenceIndexCache occurrenceIndexCache;
+    private final ScipSymbolLocationIndex symbolLocationIndex;
+
+    private static final int ROLE_DEFINITION = 1;
 
-    @Transactional(readOnly = true)
     public Optional<HoverResponse> getHover(
             Long userId, String repoUrl, String filePath, int line, int character) {
 
-        Optional<ScipDocument> docOpt = documentRepo.findByUserIdAndRepoUrlAndRelativeUri(userId, repoUrl, filePath);
+        Optional<ScipOccurrenceIndex> indexOpt = occurrenceIndexCache.get(userId, repoUrl, filePath);
 
-        if (docOpt.isEmpty()) {
+        if (indexOpt.isEmpty()) {
             log.debug("No SCIP document found for user={} repo={} file={}", userId, repoUrl, filePath);
             return Optional.empty();
         }
 
-        List<ScipOccurrence> occurrences = occurrenceRepo.findAtPosition(docOpt.get().getId(), line, character);
+        // Innermost (smallest) occurrence at the position
+        ScipOccurrenceIndex index = indexOpt.get();
+        int row = index.findInnermost(line, character);
 
-        if (occurrences.isEmpty()) {
+        if (row < 0) {
             return Optional.empty();
         }
 
-        // Take the innermost (smallest) occurrence
-        ScipOccurrence occ = occurrences.get(0);
-
-        Optional<ScipSymbolInfo> symbolInfo = symbolInfoRepo.findByUserIdAndRepoUrlAndSymbol(userId, repoUrl,
-                occ.getSymbol());
+        String symbol = index.symbol(row);
+        // Metadata is loaded with the document's index, so a hover is a pure in-memory lookup
+        Optional<ScipSymbolInfo> symbolInfo = Optional.ofNullable(index.symbolInfo(row));
 
         return Optional.of(HoverResponse.builder()
-                .symbol(occ.getSymbol())
+                .symbol(symbol)
                 .displayName(symbolInfo.map(ScipSymbolInfo::getDisplayName).orElse(null))
                 .signatureDoc(symbolInfo.map(ScipSymbolInfo::getSignatureDoc).orElse(null))
                 .documentation(symbolInfo.map(ScipSymbolInfo::getDocumentation).orElse(null))
-                .startLine(occ.getStartLine())
-                .startChar(occ.getStartChar())
-                .endLine(occ.getEndLine())
-                .endChar(occ.getEndChar())
+                .startLine(index.startLine(row))
+                .startChar(index.startChar(row))
+                .endLine(index.endLine(row))
+                .endChar(index.endChar(row))
+                .build());
+    }
+
+    /**
+     * All occurrences of a file overlapping [startLine, endLine] (null bounds
+     * mean the whole file), packed as described on SemanticTokensResponse.
+     */
+    public Optional<SemanticTokensResponse> getTokens(
+            Long userId, String repoUrl, String filePath, Integer startLine, Integer endLine) {
+
+        Optional<ScipOccurrenceIndex> indexOpt = occurrenceIndexCache.get(userId, repoUrl, filePath);
+
+        if (indexOpt.isEmpty()) {
+            log.debug("No SCIP document found for user={} repo={} file={}", userId, repoUrl, filePath);
+            return Optional.empty();
+        }
+
+        ScipOccurrenceIndex index = indexOpt.get();
+        int fromLine = startLine != null ? startLine : 0;
+        int toLine = endLine != null ? endLine : Integer.MAX_VALUE;
+
+        int[] data = new int[index.size() * SemanticTokensResponse.STRIDE];
+        int length = 0;
+        Map<String, Integer> symbolIndexes = new LinkedHashMap<>();
+        Map<String, ScipSymbolInfo> infos = new HashMap<>();
+        int prevLine = 0;
+        int prevChar = 0;
+
+        for (int row = index.firstOverlapping(fromLine); row < index.size(); row++) {
+            int line = index.startLine(row);
+            if (line > toLine)
+                break;
+            if (index.endLine(row) < fromLine)
+                continue;
+
+            int character = index.startChar(row);
+            Integer symbolIndex = symbolIndexes.get(index.symbol(row));
+            if (symbolIndex == null) {
+                symbolIndex = symbolIndexes.size();
+                symbolIndexes.put(index.symbol(row), symbolIndex);
+                ScipSymbolInfo info = index.symbolInfo(row);
+                if (info != null)
+                    infos.put(info.getSymbol(), info);
+            }
+
+            data[length++] = line - prevLine;
+            data[length++] = line == prevLine ? character - prevChar : character;
+            data[length++] = index.endLine(row) - line;
+            data[length++] = index.endChar(row);
+            data[length++] = symbolIndex;
+            data[length++] = index.roleFlags(row);
+            prevLine = line;
+            prevChar = character;
+        }
+
+        List<SemanticTokensResponse.Symbol> symbols = new ArrayList<>(symbolIndexes.size());
+        for (String symbol : symbolIndexes.keySet()) {
+            ScipSymbolInfo info = infos.get(symbol);
+            symbols.add(new SemanticTokensResponse.Symbol(
+                    symbol,
+                    info != null ? info.getDisplayName() : null,
+                    info != null ? info.getSignatureDoc() : null,
+                    info != null ? info.getDocumentation() : null));
+        }
+
+        return Optional.of(SemanticTokensResponse.builder()
+                .filePath(filePath)
+                .data(Arrays.copyOf(data, length))
+                .symbols(symbols)
                 .build());
     }
+
+    /** Every occurrence of a symbol in a repo, ordered by file then position. */
+    public List<ReferenceResult> findReferences(Long userId, String repoUrl, String symbol) {
+        ScipSymbolLocationIndex.Locations locations = symbolLocationIndex.find(userId, repoUrl, symbol);
+        return toResults(locations, symbol, false);
+    }
+
+    /**
+     * Definitions of the symbol at a cursor position (go-to-definition).
+     * Empty if the file is not indexed or no symbol is at the position.
+     */
+    public List<ReferenceResult> findDefinitions(
+            Long userId, String repoUrl, String filePath, int line, int character) {
+
+        Optional<ScipOccurrenceIndex> indexOpt = occurrenceIndexCache.get(userId, repoUrl, filePath);
+        if (indexOpt.isEmpty())
+            return List.of();
+
+        ScipOccurrenceIndex index = indexOpt.get();
+        int row = index.findInnermost(line, character);
+        if (row < 0)
+            return List.of();
+
+        ScipSymbolLocationIndex.Locations locations = symbolLocationIndex.find(userId, repoUrl,
+                index.symbolId(row));
+        return toResults(locations, index.symbol(row), true);
+    }
+
+    /**
+     * One page of a symbol's references, grouped per file.
+     *
+     * @param after opaque cursor from the previous page, or null for the first page
+     * @param limit maximum number of occurrences in the page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public ReferencePage findReferencePage(Long userId, String repoUrl, String symbol, String after, int limit) {
+        ScipSymbolLocationIndex.Locations locations = symbolLocationIndex.find(userId, repoUrl, symbol);
+
+        int from = 0;
+        if (after != null && !after.isBlank()) {
+            Cursor cursor = Cursor.decode(after);
+            from = locations.indexAfter(cursor.filePath(), cursor.line(), cursor.character(), cursor.ordinal());
+        }
+        int to = (int) Math.min(locations.size(), (long) from + Math.max(1, limit));
+
+        List<ReferenceGroup> files = new ArrayList<>();
+        forEachGroup(locations, from, to, files::add);
+
+        int last = to - 1;
+        String nextCursor = to < locations.size()
+                ? new Cursor(locations.filePath(last), locations.startLine(last), locations.startChar(last),
+                        locations.ordinal(last)).encode()
+                : null;
+        return new ReferencePage(symbol, files, nextCursor);
+    }
+
+    /** Hand every file group of a symbol's references to the sink, in order. */
+    public void streamReferences(Long userId, String repoUrl, String symbol, Consumer<ReferenceGroup> sink) {
+        ScipSymbolLocationIndex.Locations locations = symbolLocationIndex.find(userId, repoUrl, symbol);
+        forEachGroup(locations, 0, locations.size(), sink);
+    }
+
+    private void forEachGroup(ScipSymbolLocationIndex.Locations locations, int from, int to,
+            Consumer<ReferenceGroup> sink) {
+        int i = from;
+        while (i < to) {
+            String filePath = locations.filePath(i);
+            List<int[]> occurrences = new ArrayList<>();
+            while (i < to && locations.filePath(i).equals(filePath)) {
+                occurrences.add(new int[] {
+                        locations.startLine(i),
+                        locations.startChar(i),
+                        locations.endLine(i),
+                        locations.endChar(i),
+                        locations.roleFlags(i) });
+                i++;
+            }
+            sink.accept(new ReferenceGroup(filePath, occurrences));
+        }
+    }
+
+    /**
+     * Keyset position of the last occurrence returned, as URL-safe base64.
+     * ordinal tells apart occurrences that start at the same position (see
+     * Locations.ordinal), which the position alone would skip.
+     */
+    private record Cursor(String filePath, int line, int character, int ordinal) {
+
+        String encode() {
+            String raw = line + ":" + character + ":" + ordinal + ":" + filePath;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String encoded) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+                String[] parts = raw.split(":", 4);
+                if (Integer.parseInt(parts[2]) < 0)
+                    throw new IllegalArgumentException("negative ordinal");
+                return new Cursor(
+                        parts[3],
+                        Integer.parseInt(parts[0]),
+                        Integer.parseInt(parts[1]),
+                        Integer.parseInt(parts[2]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + encoded);
+            }
+        }
+    }
+
+    private List<ReferenceResult> toResults(
+            ScipSymbolLocationIndex.Locations locations, String symbol, boolean definitionsOnly) {
+        List<ReferenceResult> results = new ArrayList<>(definitionsOnly ? 1 : locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            if (definitionsOnly && (locations.roleFlags(i) & ROLE_DEFINITION) == 0)
+                continue;
+            results.add(new ReferenceResult(
+                    locations.filePath(i),
+                    locations.startLine(i),
+                    locations.startChar(i),
+                    locations.endLine(i),
+                    locations.endChar(i),
+                    symbol,
+                    locations.roleFlags(i)));
+        }
+        return results;
+    }
 }
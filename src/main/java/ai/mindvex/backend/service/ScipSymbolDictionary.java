@@ -0,0 +1,104 @@
+package ai.mindvex.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Interns SCIP symbol strings into code_intelligence.scip_symbol_ids.
+ *
+ * Ingestion resolves symbols through a per-run {@link Interner}: ids already
+ * seen in the run come from memory, unknown symbols are created with
+ * INSERT ... ON CONFLICT DO NOTHING and read back in one query per document.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScipSymbolDictionary {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO code_intelligence.scip_symbol_ids (symbol)
+            SELECT unnest(?::text[])
+            ON CONFLICT (symbol) DO NOTHING
+            """;
+
+    private static final String SELECT_SQL = """
+            SELECT id, symbol FROM code_intelligence.scip_symbol_ids
+            WHERE symbol = ANY(?::text[])
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Upper bound on symbols kept in memory per ingestion run. */
+    @Value("${app.scip.ingest.symbol-intern-size:500000}")
+    private int maxInterned;
+
+    public Interner newInterner() {
+        return new Interner();
+    }
+
+    /** In-memory symbol → id map for one ingestion run. Not thread-safe. */
+    public final class Interner {
+
+        private final Map<String, Long> ids = new HashMap<>();
+
+        /**
+         * Resolve the symbol of every occurrence in the buffer.
+         *
+         * @return ids aligned with the buffer's rows
+         */
+        public long[] resolve(ScipOccurrenceBuffer buffer) {
+            TreeSet<String> missing = new TreeSet<>();
+            for (int i = 0; i < buffer.size(); i++) {
+                if (!ids.containsKey(buffer.symbol(i)))
+                    missing.add(buffer.symbol(i));
+            }
+            Map<String, Long> found = missing.isEmpty() ? Map.of() : lookupOrCreate(missing);
+
+            long[] resolved = new long[buffer.size()];
+            for (int i = 0; i < buffer.size(); i++) {
+                Long id = found.get(buffer.symbol(i));
+                if (id == null)
+                    id = ids.get(buffer.symbol(i));
+                if (id == null)
+                    throw new IllegalStateException("Symbol not interned: " + buffer.symbol(i));
+                resolved[i] = id;
+            }
+
+            // Bound memory on huge indexes: start over rather than grow forever
+            if (ids.size() + found.size() > maxInterned)
+                ids.clear();
+            ids.putAll(found);
+            return resolved;
+        }
+    }
+
+    /**
+     * Ids for the given symbols, creating dictionary entries as needed.
+     * Symbols are inserted in sorted order so concurrent runs lock the unique
+     * index in the same order.
+     */
+    private Map<String, Long> lookupOrCreate(TreeSet<String> symbols) {
+        String[] values = symbols.toArray(String[]::new);
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+            ps.setArray(1, con.createArrayOf("text", values));
+            return ps;
+        });
+
+        Map<String, Long> found = new HashMap<>(values.length * 2);
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_SQL);
+            ps.setArray(1, con.createArrayOf("text", values));
+            return ps;
+        }, rs -> {
+            found.put(rs.getString("symbol"), rs.getLong("id"));
+        });
+        return found;
+    }
+}
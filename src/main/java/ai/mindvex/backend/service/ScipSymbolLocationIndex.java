@@ -0,0 +1,373 @@
+package ai.mindvex.backend.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed symbol → locations index backing find-references and
+ * go-to-definition.
+ *
+ * rebuild() aggregates every occurrence of a repo into one packed bytea per
+ * symbol in code_intelligence.scip_symbol_locations (layout documented in
+ * V20), already ordered by file path and start position; a re-ingestion
+ * only re-aggregates the symbols its changed and deleted documents
+ * referenced before or after the change. Lookups read a single row by
+ * primary key; its locations are decoded lazily, entry by entry (see
+ * Locations).
+ *
+ * Loaded locations are cached per repo, together with the repo's
+ * document id → path table. A repo's cache entry is dropped as a whole
+ * after every rebuild, on this node directly and on the others through
+ * ScipCacheInvalidator; an entry created concurrently with an invalidation
+ * is never installed. Entries older than app.scip.query.cache-ttl-seconds
+ * are reloaded, as a backstop for missed notifications.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ScipSymbolLocationIndex {
+
+    /** Bytes per packed location: int8 document_id + 5 × int4. */
+    private static final int LOCATION_BYTES = 28;
+
+    private static final String DELETE_SQL = """
+            DELETE FROM code_intelligence.scip_symbol_locations
+            WHERE user_id = ? AND repo_url = ?
+            """;
+
+    private static final String DELETE_SYMBOLS_SQL = DELETE_SQL + " AND symbol_id = ANY(?)";
+
+    private static final String AGGREGATE_SQL = """
+            INSERT INTO code_intelligence.scip_symbol_locations (user_id, repo_url, symbol_id, locations)
+            SELECT d.user_id, d.repo_url, o.symbol_id,
+                   string_agg(int8send(o.document_id) || int4send(o.start_line) || int4send(o.start_char)
+                              || int4send(o.end_line) || int4send(o.end_char) || int4send(o.role_flags),
+                              ''::bytea ORDER BY d.relative_uri, o.start_line, o.start_char)
+            FROM code_intelligence.scip_occurrences o
+            JOIN code_intelligence.scip_documents d ON d.id = o.document_id
+            WHERE d.user_id = ? AND d.repo_url = ?%s
+            GROUP BY d.user_id, d.repo_url, o.symbol_id
+            """;
+
+    private static final String REBUILD_SQL = AGGREGATE_SQL.formatted("");
+
+    private static final String REBUILD_SYMBOLS_SQL = AGGREGATE_SQL.formatted(" AND o.symbol_id = ANY(?)");
+
+    private static final String LOAD_SQL = """
+            SELECT locations FROM code_intelligence.scip_symbol_locations
+            WHERE user_id = ? AND repo_url = ? AND symbol_id = ?
+            """;
+
+    private static final String PATHS_SQL = """
+            SELECT id, relative_uri FROM code_intelligence.scip_documents
+            WHERE user_id = ? AND repo_url = ?
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    /** Repos whose decoded locations are kept in memory (LRU). */
+    @Value("${app.scip.query.location-cache-repos:32}")
+    private int maxRepos;
+
+    /** Decoded symbols kept per repo before that repo's symbol cache is reset. */
+    @Value("${app.scip.query.location-cache-symbols:50000}")
+    private int maxSymbolsPerRepo;
+
+    @Value("${app.scip.query.cache-ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private record RepoKey(Long userId, String repoUrl) {
+    }
+
+    private static final class RepoEntry {
+        final Map<Long, String> paths;
+        final long loadedAtNanos;
+        final ConcurrentHashMap<Long, Locations> symbols = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, Long> symbolIds = new ConcurrentHashMap<>();
+
+        RepoEntry(Map<Long, String> paths, long loadedAtNanos) {
+            this.paths = paths;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+
+    private final LinkedHashMap<RepoKey, RepoEntry> repos = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+
+    // ─── Build ────────────────────────────────────────────────────────────────
+
+    /**
+     * Recompute every symbol row of a repo from scip_occurrences. Must run
+     * inside the caller's transaction so readers keep seeing the previous rows
+     * until it commits; call invalidate() afterwards.
+     *
+     * @return number of symbols indexed
+     */
+    public int rebuild(Long userId, String repoUrl) {
+        jdbc.update(DELETE_SQL, userId, repoUrl);
+        return jdbc.update(REBUILD_SQL, userId, repoUrl);
+    }
+
+    /**
+     * Recompute only the rows of the given symbols; a symbol left without
+     * occurrences loses its row. Same transaction rules as rebuild().
+     *
+     * @return number of symbols indexed
+     */
+    public int rebuild(Long userId, String repoUrl, Collection<Long> symbolIds) {
+        if (symbolIds.isEmpty())
+            return 0;
+        Object[] ids = symbolIds.toArray();
+        jdbc.update(con -> {
+            var ps = con.prepareStatement(DELETE_SYMBOLS_SQL);
+            ps.setLong(1, userId);
+            ps.setString(2, repoUrl);
+            ps.setArray(3, con.createArrayOf("bigint", ids));
+            return ps;
+        });
+        return jdbc.update(con -> {
+            var ps = con.prepareStatement(REBUILD_SYMBOLS_SQL);
+            ps.setLong(1, userId);
+            ps.setString(2, repoUrl);
+            ps.setArray(3, con.createArrayOf("bigint", ids));
+            return ps;
+        });
+    }
+
+    /** Drop the cached locations of a repo. */
+    public synchronized void invalidate(Long userId, String repoUrl) {
+        generation++;
+        repos.remove(new RepoKey(userId, repoUrl));
+    }
+
+    /** Drop the cached locations of every repo. */
+    public synchronized void invalidateAll() {
+        generation++;
+        repos.clear();
+    }
+
+    // ─── Lookup ───────────────────────────────────────────────────────────────
+
+    /** All locations of a symbol given its dictionary id; empty if unknown. */
+    public Locations find(Long userId, String repoUrl, long symbolId) {
+        RepoEntry repo = repo(userId, repoUrl);
+        Locations cached = repo.symbols.get(symbolId);
+        if (cached != null)
+            return cached;
+
+        List<byte[]> rows = jdbc.query(LOAD_SQL, (rs, rowNum) -> rs.getBytes("locations"),
+                userId, repoUrl, symbolId);
+        Locations locations = rows.isEmpty() ? Locations.EMPTY : decode(rows.get(0), repo.paths);
+
+        if (repo.symbols.size() >= maxSymbolsPerRepo)
+            repo.symbols.clear();
+        repo.symbols.put(symbolId, locations);
+        return locations;
+    }
+
+    /** All locations of a symbol given its SCIP symbol string; empty if unknown. */
+    public Locations find(Long userId, String repoUrl, String symbol) {
+        RepoEntry repo = repo(userId, repoUrl);
+        Long symbolId = repo.symbolIds.get(symbol);
+        if (symbolId == null) {
+            List<Long> ids = jdbc.queryForList(
+                    "SELECT id FROM code_intelligence.scip_symbol_ids WHERE symbol = ?", Long.class, symbol);
+            if (ids.isEmpty())
+                return Locations.EMPTY;
+            symbolId = ids.get(0);
+            if (repo.symbolIds.size() >= maxSymbolsPerRepo)
+                repo.symbolIds.clear();
+            repo.symbolIds.put(symbol, symbolId);
+        }
+        return find(userId, repoUrl, symbolId);
+    }
+
+    private RepoEntry repo(Long userId, String repoUrl) {
+        RepoKey key = new RepoKey(userId, repoUrl);
+        long loadGeneration;
+        synchronized (this) {
+            RepoEntry cached = repos.get(key);
+            if (cached != null && System.nanoTime() - cached.loadedAtNanos < ttlSeconds * 1_000_000_000L)
+                return cached;
+            if (cached != null)
+                repos.remove(key);
+            loadGeneration = generation;
+        }
+
+        long loadedAt = System.nanoTime();
+        Map<Long, String> paths = new HashMap<>();
+        jdbc.query(PATHS_SQL, rs -> {
+            paths.put(rs.getLong("id"), rs.getString("relative_uri"));
+        }, userId, repoUrl);
+        RepoEntry entry = new RepoEntry(paths, loadedAt);
+
+        synchronized (this) {
+            if (loadGeneration != generation)
+                return entry;
+            RepoEntry raced = repos.putIfAbsent(key, entry);
+            if (raced != null)
+                return raced;
+            if (repos.size() > maxRepos)
+                repos.remove(repos.keySet().iterator().next());
+        }
+        return entry;
+    }
+
+    private static Locations decode(byte[] packed, Map<Long, String> paths) {
+        return Locations.of(packed, paths);
+    }
+
+    // ─── Locations ────────────────────────────────────────────────────────────
+
+    /**
+     * Immutable locations of one symbol, ordered by file path then start,
+     * read lazily from the packed row: an accessor decodes only the entry it
+     * is asked for, so a page or a stream starting at a cursor touches just
+     * the locations it returns (plus a binary search to find the cursor).
+     *
+     * order maps positions to packed entries; it is null when the row is
+     * already in Java's path order and references no deleted document, the
+     * common case.
+     */
+    public static final class Locations {
+
+        static final Locations EMPTY = new Locations(new byte[0], Map.of(), null, 0);
+
+        private final ByteBuffer packed;
+        private final Map<Long, String> paths;
+        private final int[] order;
+        private final int size;
+
+        private Locations(byte[] packed, Map<Long, String> paths, int[] order, int size) {
+            this.packed = ByteBuffer.wrap(packed).asReadOnlyBuffer();
+            this.paths = paths;
+            this.order = order;
+            this.size = size;
+        }
+
+        static Locations of(byte[] packed, Map<Long, String> paths) {
+            int count = packed.length / LOCATION_BYTES;
+            Locations all = new Locations(packed, paths, null, count);
+
+            // Skip documents deleted after the row was built
+            int[] live = new int[count];
+            int size = 0;
+            boolean sorted = true;
+            for (int i = 0; i < count; i++) {
+                if (all.filePath(i) == null)
+                    continue;
+                if (size > 0 && all.compare(live[size - 1], all.filePath(i), all.startLine(i), all.startChar(i)) > 0)
+                    sorted = false;
+                live[size++] = i;
+            }
+            if (size == count && sorted)
+                return all;
+
+            // The database orders paths by its collation; keyset lookups need Java's order
+            Integer[] entries = new Integer[size];
+            for (int i = 0; i < size; i++)
+                entries[i] = live[i];
+            if (!sorted)
+                Arrays.sort(entries, (a, b) -> all.compare(a, all.filePath(b), all.startLine(b), all.startChar(b)));
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++)
+                order[i] = entries[i];
+            return new Locations(packed, paths, order, size);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public String filePath(int i) {
+            return paths.get(packed.getLong(offset(i)));
+        }
+
+        public int startLine(int i) {
+            return packed.getInt(offset(i) + 8);
+        }
+
+        public int startChar(int i) {
+            return packed.getInt(offset(i) + 12);
+        }
+
+        public int endLine(int i) {
+            return packed.getInt(offset(i) + 16);
+        }
+
+        public int endChar(int i) {
+            return packed.getInt(offset(i) + 20);
+        }
+
+        public int roleFlags(int i) {
+            return packed.getInt(offset(i) + 24);
+        }
+
+        private int offset(int i) {
+            return (order != null ? order[i] : i) * LOCATION_BYTES;
+        }
+
+        /**
+         * Number of locations before i that share its file and start
+         * position; with the position itself it identifies i for keyset
+         * pagination even when several occurrences start at one position.
+         */
+        public int ordinal(int i) {
+            String filePath = filePath(i);
+            int line = startLine(i);
+            int character = startChar(i);
+            int ordinal = 0;
+            while (i - ordinal > 0 && compare(i - ordinal - 1, filePath, line, character) == 0)
+                ordinal++;
+            return ordinal;
+        }
+
+        /**
+         * Index of the first location after the one at (filePath, line,
+         * character) with the given ordinal, for keyset pagination; size()
+         * if there is none. If fewer locations now share that position, the
+         * first location after all of them.
+         */
+        public int indexAfter(String filePath, int line, int character, int ordinal) {
+            int first = bound(filePath, line, character, false);
+            int after = bound(filePath, line, character, true);
+            return (int) Math.min(after, (long) first + ordinal + 1);
+        }
+
+        /** First index whose key is greater than (upper) or not less than (!upper) the given one. */
+        private int bound(String filePath, int line, int character, boolean upper) {
+            int lo = 0;
+            int hi = size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compare(mid, filePath, line, character);
+                if (cmp < 0 || (upper && cmp == 0))
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        private int compare(int i, String filePath, int line, int character) {
+            int byPath = filePath(i).compareTo(filePath);
+            if (byPath != 0)
+                return byPath;
+            if (startLine(i) != line)
+                return Integer.compare(startLine(i), line);
+            return Integer.compare(startChar(i), character);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.service.ScipDocumentDecoder.SymbolRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk upsert of SCIP SymbolInformation rows into scip_symbols.
+ *
+ * Symbols are accumulated per ingestion run, deduplicated by symbol string
+ * and flushed with INSERT ... ON CONFLICT DO UPDATE in JDBC batches. The
+ * deduplication matters: a rewritten multi-row INSERT may not touch the same
+ * conflicting row twice.
+ *
+ * Unlike occurrences (see ScipOccurrenceWriter) these rows are not loaded
+ * with COPY: COPY cannot resolve conflicts, and symbols are merged into
+ * existing rows on re-ingest, so a batched upsert is the simpler fit for a
+ * table that is orders of magnitude smaller.
+ *
+ * Merge semantics match the previous find + save path: a later non-null
+ * display name or documentation wins, null never clears an existing value.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScipSymbolWriter {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO code_intelligence.scip_symbols
+                (user_id, repo_url, symbol, display_name, documentation)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, repo_url, symbol) DO UPDATE
+                SET display_name  = COALESCE(EXCLUDED.display_name, scip_symbols.display_name),
+                    documentation = COALESCE(EXCLUDED.documentation, scip_symbols.documentation)
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    @Value("${app.scip.ingest.symbol-batch-size:5000}")
+    private int batchSize;
+
+    /** Start accumulating symbols for one user + repo. */
+    public Batch newBatch(Long userId, String repoUrl) {
+        return new Batch(userId, repoUrl);
+    }
+
+    /**
+     * Pending symbol rows for one ingestion run. Not thread-safe; flush()
+     * must run inside the transaction that should own the rows.
+     */
+    public final class Batch {
+
+        private final Long userId;
+        private final String repoUrl;
+        private final Map<String, SymbolRecord> pending = new HashMap<>();
+        private long flushed;
+
+        private Batch(Long userId, String repoUrl) {
+            this.userId = userId;
+            this.repoUrl = repoUrl;
+        }
+
+        /** Queue a symbol; flushes automatically once the batch is full. */
+        public void add(SymbolRecord symbol) {
+            pending.merge(symbol.symbol(), normalize(symbol), Batch::merge);
+            if (pending.size() >= batchSize)
+                flush();
+        }
+
+        /** Write all pending rows. */
+        public void flush() {
+            if (pending.isEmpty())
+                return;
+
+            // Stable row order keeps concurrent ingestions from deadlocking
+            List<SymbolRecord> rows = new ArrayList<>(pending.values());
+            rows.sort(Comparator.comparing(SymbolRecord::symbol));
+            pending.clear();
+
+            List<Object[]> args = new ArrayList<>(rows.size());
+            for (SymbolRecord row : rows) {
+                args.add(new Object[] { userId, repoUrl, row.symbol(), row.displayName(), row.documentation() });
+            }
+            jdbc.batchUpdate(UPSERT_SQL, args);
+            flushed += rows.size();
+        }
+
+        /** Distinct symbols written so far. */
+        public long flushedCount() {
+            return flushed;
+        }
+
+        private static SymbolRecord normalize(SymbolRecord symbol) {
+            if (symbol.documentation() != null && symbol.documentation().isEmpty())
+                return new SymbolRecord(symbol.symbol(), symbol.displayName(), null);
+            return symbol;
+        }
+
+        private static SymbolRecord merge(SymbolRecord earlier, SymbolRecord later) {
+            return new SymbolRecord(
+                    later.symbol(),
+                    later.displayName() != null ? later.displayName() : earlier.displayName(),
+                    later.documentation() != null ? later.documentation() : earlier.documentation());
+        }
+    }
+}
@@ -1,48 +1,157 @@
 package ai.mindvex.backend.service;
 
-import ai.mindvex.backend.entity.FileDependency;
-import ai.mindvex.backend.repository.FileDependencyRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
  * Lightweight import-based dependency extractor.
  *
- * Clones the repo, walks all source files, extracts import/require
- * statements using regex, resolves them to relative paths, and saves
- * them as FileDependency edges.
+ * Opens the repo's mirror in GitRepositoryCache, walks all source files of
+ * HEAD straight from the object database,
+ * extracts import/require statements with a per-language ImportScanner,
+ * resolves them to relative paths with an ImportResolver built once per
+ * repo, and saves them as 'import' FileDependency edges.
  *
  * Supports: TypeScript, JavaScript, Python, Java, Go, Kotlin, Rust, C#.
+ *
+ * Builds are incremental. ImportGraphStore records the commit each build
+ * was made from and the raw imports of every scanned file. The next build
+ * fetches only new objects, diffs the old and new trees and reads just the
+ * blobs of changed files. When files were added or removed, or a resolver
+ * config file changed, the stored imports of all other files are resolved
+ * again (in memory, without reading their blobs). Edges are then updated
+ * as a diff against what is stored. A missing previous commit (first
+ * build, evicted mirror) means a full build.
+ *
+ * Files are read and scanned in parallel on a dedicated fork-join pool
+ * (app.graph.extract.parallelism). Each worker holds one file at a time as
+ * a byte array; blobs above app.graph.extract.max-file-bytes are skipped
+ * before loading and binary files (NUL byte in the first 8 KB) before
+ * scanning. Files are processed in sorted path order and results are
+ * collected in that order, so the saved edges do not depend on thread
+ * scheduling or tree iteration order.
+ *
+ * No transaction spans a build. Builds of one repo are serialised by a
+ * BuildLockStore lease (ImportGraphStore.lock) and the work is committed in
+ * short transactions that renew it, the way ScipIngestionService commits
+ * documents: a full build scans, resolves and inserts files in slices of
+ * EDGE_BATCH_FILES paths, an incremental build rewrites the imports of
+ * changed files in such slices and then applies its edge diff in batches of
+ * EDGE_BATCH_EDGES. The build marker is recorded last. A build that stops
+ * half way is therefore repeated from the previous marker: a full build
+ * starts over, an incremental one diffs against the stored edges again and
+ * converges on the same graph.
+ *
+ * Edge changes are reported to an {@link EdgeListener} after the
+ * transaction that saved them has committed.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SourceCodeDependencyExtractor {
 
-    private final FileDependencyRepository depRepo;
+    private final ImportGraphStore graphStore;
+    private final GitRepositoryCache repositoryCache;
+    private final PlatformTransactionManager transactionManager;
+
+    /** Scan threads; 0 = one per available core. */
+    @Value("${app.graph.extract.parallelism:0}")
+    private int parallelism;
+
+    /** Files larger than this are not scanned for imports. */
+    @Value("${app.graph.extract.max-file-bytes:1048576}")
+    private long maxFileBytes;
+
+    private static final int BINARY_PROBE_BYTES = 8192;
+    /** Source files scanned and resolved per reported slice of a full build. */
+    private static final int EDGE_BATCH_FILES = 250;
+    /** Edges deleted or inserted per transaction of an incremental build. */
+    private static final int EDGE_BATCH_EDGES = 1000;
+
+    private ForkJoinPool scanPool;
+    private TransactionTemplate sliceTx;
+    private TransactionTemplate copyTx;
+
+    @PostConstruct
+    void init() {
+        sliceTx = new TransactionTemplate(transactionManager);
+        sliceTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        copyTx = new TransactionTemplate(transactionManager);
+        copyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        copyTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        scanPool = new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("graph-scan-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scanPool.shutdownNow();
+    }
+
+    /** Imports found in one source file. */
+    private record ScannedFile(String relativePath, List<String> imports) {
+    }
+
+    /** Receives the import edges of a build as they are committed. */
+    public interface EdgeListener {
+
+        /** Ignores everything. */
+        EdgeListener NONE = new EdgeListener() {
+            @Override
+            public void fullBuild() {
+            }
+
+            @Override
+            public void edges(List<ImportGraphStore.Edge> added, List<ImportGraphStore.Edge> removed) {
+            }
+        };
 
-    // Regex patterns for import extraction per language family
-    private static final Pattern JS_IMPORT = Pattern.compile(
-            "(?:import\\s+.*?from\\s+['\"]([^'\"]+)['\"])|(?:require\\s*\\(\\s*['\"]([^'\"]+)['\"]\\s*\\))");
-    private static final Pattern PYTHON_IMPORT = Pattern.compile(
-            "(?:from\\s+(\\S+)\\s+import)|(?:import\\s+(\\S+))");
-    private static final Pattern JAVA_IMPORT = Pattern.compile(
-            "import\\s+(?:static\\s+)?(\\S+);");
-    private static final Pattern GO_IMPORT = Pattern.compile(
-            "\"([^\"]+)\"");
+        /**
+         * A full build starts: every stored edge of the repo is dropped and
+         * the whole graph follows through edges(). Not called for an
+         * incremental build.
+         */
+        void fullBuild();
+
+        /** Edges just inserted and deleted, and committed. */
+        void edges(List<ImportGraphStore.Edge> added, List<ImportGraphStore.Edge> removed);
+    }
+
+    /** Source and resolver config files of one tree, by path. */
+    private record SourceSnapshot(Map<String, SourceTree.SourceFile> sourceFiles,
+            Map<String, SourceTree.SourceFile> configFiles) {
+    }
+
+    /** Source paths that differ between two trees. */
+    private record ChangeSet(Set<String> sourceFiles, boolean fileSetChanged, boolean configChanged) {
+    }
 
     private static final Set<String> SOURCE_EXTENSIONS = Set.of(
             ".ts", ".tsx", ".js", ".jsx", ".mjs", ".cjs",
@@ -53,300 +162,347 @@ public class SourceCodeDependencyExtractor {
             "node_modules", ".git", "dist", "build", ".cache",
             ".next", "target", "__pycache__", ".gradle", "vendor");
 
+    /** Source files plus the config files ImportResolver reads. */
+    private static final SourceTree.Filter TREE_FILTER = SourceTree.Filter.extensions(SOURCE_EXTENSIONS)
+            .withFileNames(ImportResolver.CONFIG_FILE_NAMES)
+            .skippingDirs(SKIP_DIRS);
+
     /**
-     * Clone the repo, extract import-based file dependencies, and save them.
+     * Bring the repo's import edges up to date with its default branch.
      *
      * @param userId      owner user ID
      * @param repoUrl     repository URL
      * @param accessToken GitHub personal access token (may be null for public
      *                    repos)
-     * @return number of dependency edges saved
+     * @return number of import edges the repo has after the build
      */
-    @Transactional
     public int extractFromRepo(Long userId, String repoUrl, String accessToken) throws IOException {
-        log.info("[SourceCodeDepExtractor] Starting extraction for user={} repo={}", userId, repoUrl);
+        try (GitRepositoryCache.Handle handle = openRepo(repoUrl, accessToken)) {
+            return extractFromRepo(userId, repoUrl, handle, false);
+        }
+    }
 
-        // Clone the repo to a temp directory
-        Path tempDir = Files.createTempDirectory("mindvex-graph-");
+    /**
+     * Validate a repository URL and open its cached mirror, fetched up to the
+     * tip of the default branch. The caller closes the handle.
+     */
+    public GitRepositoryCache.Handle openRepo(String repoUrl, String accessToken) throws IOException {
+        // Normalize and validate the incoming repo URL
+        String normalizedUrl = normalizeRepoUrl(repoUrl);
+        log.info("[SourceCodeDepExtractor] Normalized repo URL: {}", normalizedUrl);
+        return repositoryCache.open(normalizedUrl, accessToken, GitRepositoryCache.History.TIP);
+    }
 
-        try {
-            // Normalize and validate the incoming repo URL
-            String normalizedUrl = normalizeRepoUrl(repoUrl);
-            log.info("[SourceCodeDepExtractor] Normalized repo URL: {}", normalizedUrl);
-            log.info("[SourceCodeDepExtractor] Cloning {} into {}", normalizedUrl, tempDir);
-
-            // Clone with retry logic (up to 3 attempts)
-            Git git = cloneWithRetry(normalizedUrl, tempDir, accessToken, 3);
-            git.close();
-
-            // Collect all source files
-            Map<String, Path> sourceFiles = new LinkedHashMap<>();
-            Files.walkFileTree(tempDir, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                    if (SKIP_DIRS.contains(dir.getFileName().toString())) {
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                    String fileName = file.getFileName().toString();
-                    String ext = fileName.contains(".") ? fileName.substring(fileName.lastIndexOf('.')) : "";
-                    if (SOURCE_EXTENSIONS.contains(ext.toLowerCase())) {
-                        // Store relative path from repo root
-                        String relativePath = tempDir.relativize(file).toString().replace('\\', '/');
-                        sourceFiles.put(relativePath, file);
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-            });
+    /**
+     * Bring the repo's import edges up to date with the head of an already
+     * opened mirror.
+     *
+     * @param publicRepo whether the repo is public; its graph is then copied
+     *                   from another user who built the same commit, if any
+     * @return number of import edges the repo has after the build
+     */
+    public int extractFromRepo(Long userId, String repoUrl, GitRepositoryCache.Handle handle, boolean publicRepo)
+            throws IOException {
+        return extractFromRepo(userId, repoUrl, handle, publicRepo, EdgeListener.NONE);
+    }
+
+    /**
+     * Bring the repo's import edges up to date with the head of an already
+     * opened mirror, reporting edge changes to listener as they are committed.
+     * Nothing is reported when the graph is already at head or copied from
+     * another user.
+     *
+     * @param publicRepo whether the repo is public; its graph is then copied
+     *                   from another user who built the same commit, if any
+     * @return number of import edges the repo has after the build
+     */
+    public int extractFromRepo(Long userId, String repoUrl, GitRepositoryCache.Handle handle, boolean publicRepo,
+            EdgeListener listener) throws IOException {
+        log.info("[SourceCodeDepExtractor] Starting extraction for user={} repo={}", userId, repoUrl);
 
-            log.info("[SourceCodeDepExtractor] Found {} source files in {}", sourceFiles.size(), repoUrl);
-
-            // Delete stale edges for this user+repo
-            depRepo.deleteByUserIdAndRepoUrl(userId, repoUrl);
-
-            // Extract dependencies
-            List<FileDependency> allEdges = new ArrayList<>();
-            Set<String> filePathSet = sourceFiles.keySet();
-
-            for (Map.Entry<String, Path> entry : sourceFiles.entrySet()) {
-                String relativePath = entry.getKey();
-                Path filePath = entry.getValue();
-
-                try {
-                    String content = Files.readString(filePath);
-                    List<String> imports = extractImports(relativePath, content);
-
-                    for (String importPath : imports) {
-                        // Try to resolve the import to an actual file in the repo
-                        String resolved = resolveImport(relativePath, importPath, filePathSet);
-                        if (resolved != null && !resolved.equals(relativePath)) {
-                            allEdges.add(new FileDependency(
-                                    userId, repoUrl, relativePath, resolved, "import"));
-                        }
-                    }
-                } catch (Exception e) {
-                    log.debug("[SourceCodeDepExtractor] Could not parse {}: {}", relativePath, e.getMessage());
-                }
+        // Serialise builds of this repo until the lease is closed
+        try (BuildLockStore.Lease lease = graphStore.lock(userId, repoUrl)) {
+            Repository repo = handle.repository();
+            ObjectId head = handle.head();
+
+            String lastCommit = graphStore.lastCommit(userId, repoUrl);
+            if (head.name().equals(lastCommit)) {
+                log.info("[SourceCodeDepExtractor] {} already built at {}", repoUrl, head.name());
+                return graphStore.countEdges(userId, repoUrl);
+            }
+            if (publicRepo && Boolean.TRUE.equals(
+                    copyTx.execute(status -> graphStore.copyFromOtherUser(userId, repoUrl, head.name())))) {
+                log.info("[SourceCodeDepExtractor] Reused another user's build of {} at {}", repoUrl, head.name());
+                return graphStore.countEdges(userId, repoUrl);
             }
 
-            // Deduplicate edges
-            Set<String> seen = new HashSet<>();
-            List<FileDependency> uniqueEdges = allEdges.stream()
-                    .filter(e -> seen.add(e.getSourceFile() + "→" + e.getTargetFile()))
-                    .collect(Collectors.toList());
+            SourceTree tree = SourceTree.read(repo, head, TREE_FILTER);
+            SourceSnapshot snapshot = snapshot(tree);
+            log.info("[SourceCodeDepExtractor] Found {} source files in {} at {}",
+                    snapshot.sourceFiles().size(), repoUrl, head.name());
 
-            depRepo.saveAll(uniqueEdges);
-            log.info("[SourceCodeDepExtractor] Saved {} unique edges for {}", uniqueEdges.size(), repoUrl);
+            ChangeSet changes = diffSince(repo, lastCommit, tree.treeId());
+            int edges = changes != null
+                    ? updateIncrementally(userId, repoUrl, snapshot, changes, lease, listener)
+                    : buildFull(userId, repoUrl, snapshot, lease, listener);
 
-            return uniqueEdges.size();
+            graphStore.recordBuild(userId, repoUrl, head.name());
+            return edges;
 
         } catch (Exception e) {
             log.error("[SourceCodeDepExtractor] Failed to extract from {}: {}", repoUrl, e.getMessage(), e);
             throw new IOException("Failed to extract dependencies: " + e.getMessage(), e);
-        } finally {
-            // Clean up temp directory
-            deleteRecursively(tempDir);
         }
     }
 
-    /**
-     * Clone repository with retry logic and exponential backoff.
-     */
-    private Git cloneWithRetry(String repoUrl, Path targetDir, String accessToken, int maxAttempts) 
-            throws IOException {
-        int attempt = 0;
-        IOException lastException = null;
-
-        while (attempt < maxAttempts) {
-            attempt++;
-            try {
-                log.info("[SourceCodeDepExtractor] Clone attempt {}/{} for {}", attempt, maxAttempts, repoUrl);
-
-                var cloneCmd = Git.cloneRepository()
-                        .setURI(repoUrl)
-                        .setDirectory(targetDir.toFile())
-                        .setDepth(1) // shallow clone for speed
-                        .setTimeout(300); // 5 minutes timeout
-
-                // Add GitHub authentication if access token is provided
-                if (accessToken != null && !accessToken.isBlank()) {
-                    log.info("[SourceCodeDepExtractor] Using GitHub authentication");
-                    cloneCmd.setCredentialsProvider(
-                        new UsernamePasswordCredentialsProvider("oauth2", accessToken)
-                    );
-                }
-
-                Git git = cloneCmd.call();
-                log.info("[SourceCodeDepExtractor] Successfully cloned {} on attempt {}", repoUrl, attempt);
-                return git;
-
-            } catch (GitAPIException e) {
-                lastException = new IOException("Clone failed on attempt " + attempt + ": " + e.getMessage(), e);
-                log.warn("[SourceCodeDepExtractor] Attempt {}/{} failed: {}", 
-                        attempt, maxAttempts, e.getMessage());
-
-                if (attempt < maxAttempts) {
-                    // Exponential backoff: 2, 4, 8 seconds...
-                    long waitTime = (long) Math.pow(2, attempt) * 1000;
-                    log.info("[SourceCodeDepExtractor] Waiting {}ms before retry...", waitTime);
-                    try {
-                        Thread.sleep(waitTime);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Clone interrupted", ie);
-                    }
-                }
+    // ─── Full / Incremental Build ─────────────────────────────────────────────
+
+    private int buildFull(Long userId, String repoUrl, SourceSnapshot snapshot, BuildLockStore.Lease lease,
+            EdgeListener listener) throws IOException {
+        // Delete stale import edges and imports for this user+repo
+        sliceTx.executeWithoutResult(status -> {
+            lease.renew();
+            graphStore.deleteAllEdges(userId, repoUrl);
+            graphStore.forget(userId, repoUrl);
+        });
+        listener.fullBuild();
+
+        // Scan files in parallel, one slice at a time; results come back in path order
+        ImportResolver resolver = resolver(snapshot);
+        List<SourceTree.SourceFile> files = new ArrayList<>(snapshot.sourceFiles().values());
+        int total = 0;
+        for (int from = 0; from < files.size(); from += EDGE_BATCH_FILES) {
+            List<SourceTree.SourceFile> slice = files.subList(from, Math.min(from + EDGE_BATCH_FILES, files.size()));
+            Map<String, List<String>> imports = scanFiles(slice);
+
+            // Edges of different slices have different sources, so they never overlap
+            Set<ImportGraphStore.Edge> edges = resolveEdges(resolver, imports);
+            sliceTx.executeWithoutResult(status -> {
+                lease.renew();
+                graphStore.saveImports(userId, repoUrl, imports);
+                graphStore.insertEdges(userId, repoUrl, edges);
+            });
+            if (!edges.isEmpty())
+                listener.edges(new ArrayList<>(edges), List.of());
+            total += edges.size();
+        }
+        log.info("[SourceCodeDepExtractor] Full build: saved {} unique edges for {}", total, repoUrl);
+        return total;
+    }
+
+    private int updateIncrementally(Long userId, String repoUrl, SourceSnapshot snapshot, ChangeSet changes,
+            BuildLockStore.Lease lease, EdgeListener listener) throws IOException {
+        // Rescan changed files that still exist; deleted ones just lose their row
+        List<String> changedPaths = new ArrayList<>(changes.sourceFiles());
+        Map<String, List<String>> scanned = new LinkedHashMap<>();
+        for (int from = 0; from < changedPaths.size(); from += EDGE_BATCH_FILES) {
+            List<String> paths = changedPaths.subList(from, Math.min(from + EDGE_BATCH_FILES, changedPaths.size()));
+            List<SourceTree.SourceFile> rescan = new ArrayList<>();
+            for (String path : paths) {
+                SourceTree.SourceFile file = snapshot.sourceFiles().get(path);
+                if (file != null)
+                    rescan.add(file);
             }
+            Map<String, List<String>> imports = scanFiles(rescan);
+            sliceTx.executeWithoutResult(status -> {
+                lease.renew();
+                graphStore.deleteImports(userId, repoUrl, paths);
+                graphStore.saveImports(userId, repoUrl, imports);
+            });
+            scanned.putAll(imports);
         }
 
-        // All attempts failed
-        log.error("[SourceCodeDepExtractor] All {} clone attempts failed for {}", maxAttempts, repoUrl);
-        if (lastException != null) {
-            throw lastException;
-        } else {
-            throw new IOException("Clone failed after " + maxAttempts + " attempts with unknown error");
+        // A different file set or resolver config can change any file's edges
+        boolean resolveAll = changes.fileSetChanged() || changes.configChanged();
+        Map<String, List<String>> imports = resolveAll ? graphStore.loadImports(userId, repoUrl) : scanned;
+        Set<ImportGraphStore.Edge> wanted = resolveEdges(resolver(snapshot), imports);
+        Set<ImportGraphStore.Edge> existing = graphStore.loadEdges(userId, repoUrl,
+                resolveAll ? null : changes.sourceFiles());
+
+        List<ImportGraphStore.Edge> stale = new ArrayList<>();
+        for (ImportGraphStore.Edge edge : existing) {
+            if (!wanted.contains(edge))
+                stale.add(edge);
+        }
+        List<ImportGraphStore.Edge> added = new ArrayList<>();
+        for (ImportGraphStore.Edge edge : wanted) {
+            if (!existing.contains(edge))
+                added.add(edge);
         }
+        for (int from = 0; from < stale.size(); from += EDGE_BATCH_EDGES) {
+            List<ImportGraphStore.Edge> batch = stale.subList(from, Math.min(from + EDGE_BATCH_EDGES, stale.size()));
+            sliceTx.executeWithoutResult(status -> {
+                lease.renew();
+                graphStore.deleteEdges(userId, repoUrl, batch);
+            });
+            listener.edges(List.of(), batch);
+        }
+        for (int from = 0; from < added.size(); from += EDGE_BATCH_EDGES) {
+            List<ImportGraphStore.Edge> batch = added.subList(from, Math.min(from + EDGE_BATCH_EDGES, added.size()));
+            sliceTx.executeWithoutResult(status -> {
+                lease.renew();
+                graphStore.insertEdges(userId, repoUrl, batch);
+            });
+            listener.edges(batch, List.of());
+        }
+
+        log.info("[SourceCodeDepExtractor] Incremental build of {}: {} files changed, {} rescanned, "
+                + "{} re-resolved, {} edges removed, {} added",
+                repoUrl, changes.sourceFiles().size(), scanned.size(), imports.size(), stale.size(), added.size());
+        return graphStore.countEdges(userId, repoUrl);
     }
 
-    /**
-     * Extract import paths from file content based on file extension.
-     */
-    private List<String> extractImports(String filePath, String content) {
-        List<String> imports = new ArrayList<>();
-        String ext = filePath.substring(filePath.lastIndexOf('.'));
-
-        switch (ext) {
-            case ".ts", ".tsx", ".js", ".jsx", ".mjs", ".cjs" -> {
-                Matcher m = JS_IMPORT.matcher(content);
-                while (m.find()) {
-                    String match = m.group(1) != null ? m.group(1) : m.group(2);
-                    if (match != null && match.startsWith(".")) {
-                        imports.add(match);
-                    }
-                }
-            }
-            case ".py" -> {
-                Matcher m = PYTHON_IMPORT.matcher(content);
-                while (m.find()) {
-                    String match = m.group(1) != null ? m.group(1) : m.group(2);
-                    if (match != null) {
-                        imports.add(match.replace(".", "/"));
-                    }
-                }
-            }
-            case ".java", ".kt" -> {
-                Matcher m = JAVA_IMPORT.matcher(content);
-                while (m.find()) {
-                    String match = m.group(1);
-                    if (match != null) {
-                        // Convert package path to file path
-                        imports.add(match.replace(".", "/"));
-                    }
-                }
-            }
-            case ".go" -> {
-                // Go imports inside import blocks
-                boolean inImportBlock = false;
-                for (String line : content.split("\n")) {
-                    String trimmed = line.trim();
-                    if (trimmed.startsWith("import (")) {
-                        inImportBlock = true;
-                        continue;
-                    }
-                    if (inImportBlock && trimmed.equals(")")) {
-                        inImportBlock = false;
-                        continue;
-                    }
-                    if (inImportBlock || trimmed.startsWith("import \"")) {
-                        Matcher m = GO_IMPORT.matcher(trimmed);
-                        if (m.find()) {
-                            imports.add(m.group(1));
-                        }
-                    }
-                }
+    private static Set<ImportGraphStore.Edge> resolveEdges(ImportResolver resolver,
+            Map<String, List<String>> imports) {
+        Set<ImportGraphStore.Edge> edges = new LinkedHashSet<>();
+        for (Map.Entry<String, List<String>> file : imports.entrySet()) {
+            for (String importPath : file.getValue()) {
+                // Try to resolve the import to an actual file in the repo
+                String resolved = resolver.resolve(file.getKey(), importPath);
+                if (resolved != null && !resolved.equals(file.getKey()))
+                    edges.add(new ImportGraphStore.Edge(file.getKey(), resolved));
             }
         }
+        return edges;
+    }
 
-        return imports;
+    private static ImportResolver resolver(SourceSnapshot snapshot) throws IOException {
+        return ImportResolver.build(snapshot.sourceFiles().keySet(), snapshot.configFiles().keySet(), path -> {
+            SourceTree.SourceFile file = snapshot.configFiles().get(path);
+            return file != null ? new String(file.bytes(), StandardCharsets.UTF_8) : null;
+        });
+    }
+
+    // ─── Trees ────────────────────────────────────────────────────────────────
+
+    /** Split a tree into source files and resolver config files. */
+    private static SourceSnapshot snapshot(SourceTree tree) {
+        Map<String, SourceTree.SourceFile> sourceFiles = new TreeMap<>();
+        Map<String, SourceTree.SourceFile> configFiles = new TreeMap<>();
+        for (SourceTree.SourceFile file : tree.files()) {
+            if (ImportResolver.CONFIG_FILE_NAMES.contains(file.name()))
+                configFiles.put(file.path(), file);
+            else
+                sourceFiles.put(file.path(), file);
+        }
+        return new SourceSnapshot(sourceFiles, configFiles);
     }
 
     /**
-     * Try to resolve an import path to a real file in the repo.
+     * Source paths changed between the last built commit and tree, or null
+     * when that commit is unknown or no longer in the mirror.
      */
-    private String resolveImport(String sourceFile, String importPath, Set<String> allFiles) {
-        String sourceDir = sourceFile.contains("/")
-                ? sourceFile.substring(0, sourceFile.lastIndexOf('/'))
-                : "";
-
-        // For relative imports (./foo, ../bar)
-        String resolved;
-        if (importPath.startsWith("./") || importPath.startsWith("../")) {
-            resolved = normalizePath(sourceDir + "/" + importPath);
-        } else {
-            // For absolute imports, try matching against file paths
-            resolved = importPath;
+    private ChangeSet diffSince(Repository repo, String lastCommit, ObjectId tree) throws IOException {
+        if (lastCommit == null || !ObjectId.isId(lastCommit))
+            return null;
+        ObjectId last = ObjectId.fromString(lastCommit);
+        if (!repo.getObjectDatabase().has(last)) {
+            log.info("[SourceCodeDepExtractor] Last built commit {} not in mirror; rebuilding fully", lastCommit);
+            return null;
         }
 
-        // Try direct match
-        if (allFiles.contains(resolved))
-            return resolved;
-
-        // Try with common extensions
-        for (String ext : List.of(".ts", ".tsx", ".js", ".jsx", ".py", ".java", ".kt", ".go")) {
-            if (allFiles.contains(resolved + ext))
-                return resolved + ext;
+        Set<String> changed = new TreeSet<>();
+        boolean fileSetChanged = false;
+        boolean configChanged = false;
+        try (RevWalk walk = new RevWalk(repo); TreeWalk diffWalk = new TreeWalk(repo)) {
+            diffWalk.addTree(walk.parseCommit(last).getTree());
+            diffWalk.addTree(tree);
+            diffWalk.setRecursive(true);
+            diffWalk.setFilter(TreeFilter.ANY_DIFF);
+            for (DiffEntry diff : DiffEntry.scan(diffWalk)) {
+                boolean wasSource = isSourceEntry(diff.getOldPath(), diff.getOldMode());
+                boolean isSource = isSourceEntry(diff.getNewPath(), diff.getNewMode());
+                if (wasSource)
+                    changed.add(diff.getOldPath());
+                if (isSource)
+                    changed.add(diff.getNewPath());
+                fileSetChanged |= wasSource != isSource;
+                configChanged |= isConfigPath(diff.getOldPath()) || isConfigPath(diff.getNewPath());
+            }
+        } catch (MissingObjectException e) {
+            log.info("[SourceCodeDepExtractor] Tree of {} incomplete in mirror; rebuilding fully", lastCommit);
+            return null;
         }
+        return new ChangeSet(changed, fileSetChanged, configChanged);
+    }
 
-        // Try as directory with index file
-        for (String idx : List.of("/index.ts", "/index.tsx", "/index.js", "/index.jsx")) {
-            if (allFiles.contains(resolved + idx))
-                return resolved + idx;
-        }
+    private static boolean isSourceEntry(String path, FileMode mode) {
+        return !DiffEntry.DEV_NULL.equals(path)
+                && (mode.getBits() & FileMode.TYPE_MASK) == FileMode.TYPE_FILE
+                && isSourcePath(path);
+    }
 
-        // For Java/Kotlin: try matching last segment
-        String lastSegment = importPath.contains("/")
-                ? importPath.substring(importPath.lastIndexOf('/') + 1)
-                : importPath;
-
-        for (String file : allFiles) {
-            String baseName = file.contains("/") ? file.substring(file.lastIndexOf('/') + 1) : file;
-            String nameWithoutExt = baseName.contains(".") ? baseName.substring(0, baseName.lastIndexOf('.'))
-                    : baseName;
-            if (nameWithoutExt.equals(lastSegment)) {
-                return file;
-            }
-        }
+    private static boolean isSourcePath(String path) {
+        return TREE_FILTER.acceptsPath(path) && !isConfigName(path);
+    }
 
-        return null;
+    private static boolean isConfigPath(String path) {
+        return TREE_FILTER.acceptsPath(path) && isConfigName(path);
     }
 
-    private String normalizePath(String path) {
-        Path p = Path.of(path).normalize();
-        return p.toString().replace('\\', '/');
+    private static boolean isConfigName(String path) {
+        return ImportResolver.CONFIG_FILE_NAMES.contains(path.substring(path.lastIndexOf('/') + 1));
     }
 
-    private void deleteRecursively(Path dir) {
+    // ─── Scanning ─────────────────────────────────────────────────────────────
+
+    /**
+     * Load and scan the given files on the scan pool. The returned map is in
+     * the iteration order of files; unreadable, oversize and binary files are
+     * left out.
+     */
+    private Map<String, List<String>> scanFiles(Collection<SourceTree.SourceFile> files) throws IOException {
+        List<SourceTree.SourceFile> entries = new ArrayList<>(files);
+        List<ScannedFile> scanned;
         try {
-            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    Files.delete(file);
-                    return FileVisitResult.CONTINUE;
-                }
-
-                @Override
-                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                    Files.delete(dir);
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        } catch (IOException e) {
-            log.warn("[SourceCodeDepExtractor] Failed to clean up temp dir: {}", dir, e);
+            scanned = scanPool.submit(() -> entries.parallelStream()
+                    .map(this::scanFile)
+                    .filter(Objects::nonNull)
+                    .toList())
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Source scan interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Source scan failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        Map<String, List<String>> imports = new LinkedHashMap<>();
+        for (ScannedFile file : scanned) {
+            imports.put(file.relativePath(), file.imports());
+        }
+        return imports;
+    }
+
+    private ScannedFile scanFile(SourceTree.SourceFile file) {
+        String relativePath = file.path();
+        try {
+            ImportScanner scanner = ImportScanner.forFile(relativePath);
+            if (scanner == null)
+                return null;
+            // Size comes from the blob header; oversize content is never loaded
+            if (file.size() > maxFileBytes)
+                return null;
+            byte[] bytes = file.bytes();
+            if (looksBinary(bytes))
+                return null;
+            List<String> imports = new ArrayList<>();
+            scanner.scan(bytes, imports);
+            return new ScannedFile(relativePath, imports);
+        } catch (Exception e) {
+            log.debug("[SourceCodeDepExtractor] Could not parse {}: {}", relativePath, e.getMessage());
+            return null;
+        }
+    }
+
+    /** A NUL byte near the start of the file marks it as binary. */
+    private static boolean looksBinary(byte[] bytes) {
+        int probe = Math.min(bytes.length, BINARY_PROBE_BYTES);
+        for (int i = 0; i < probe; i++) {
+            if (bytes[i] == 0)
+                return true;
         }
+        return false;
     }
 
     /**
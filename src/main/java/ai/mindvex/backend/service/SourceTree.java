@@ -0,0 +1,208 @@
+package ai.mindvex.backend.service;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Read-only view of the files of one commit, served straight from a
+ * repository's object database — nothing is checked out to disk.
+ *
+ * read() walks the commit's tree once and keeps only entries accepted by a
+ * {@link Filter}: directories are pruned by name, files are matched by
+ * extension or exact name, and the size limit is checked against the blob
+ * header, so rejected files are never inflated. Accepted files keep just
+ * their blob id; content is loaded on each {@link SourceFile#bytes()} call
+ * and not retained.
+ *
+ * Files are ordered by path (String order). A SourceTree and its files are
+ * immutable and may be read from several threads as long as the repository
+ * stays open.
+ */
+public final class SourceTree {
+
+    private final ObjectId commitId;
+    private final ObjectId treeId;
+    private final NavigableMap<String, SourceFile> files;
+
+    private SourceTree(ObjectId commitId, ObjectId treeId, NavigableMap<String, SourceFile> files) {
+        this.commitId = commitId;
+        this.treeId = treeId;
+        this.files = files;
+    }
+
+    /** Walk the tree of commit and collect the files accepted by filter. */
+    public static SourceTree read(Repository repo, AnyObjectId commit, Filter filter) throws IOException {
+        NavigableMap<String, SourceFile> files = new TreeMap<>();
+        try (ObjectReader reader = repo.newObjectReader();
+                RevWalk revWalk = new RevWalk(reader);
+                TreeWalk walk = new TreeWalk(reader)) {
+            RevCommit parsed = revWalk.parseCommit(commit);
+            walk.addTree(parsed.getTree());
+            while (walk.next()) {
+                if (walk.isSubtree()) {
+                    if (!filter.skipDirs().contains(walk.getNameString()))
+                        walk.enterSubtree();
+                    continue;
+                }
+                // Regular and executable files only: no symlinks or submodules
+                if ((walk.getRawMode(0) & FileMode.TYPE_MASK) != FileMode.TYPE_FILE)
+                    continue;
+                if (!filter.acceptsName(walk.getNameString()))
+                    continue;
+
+                ObjectId blob = walk.getObjectId(0);
+                long size = -1;
+                if (filter.maxFileBytes() < Long.MAX_VALUE) {
+                    size = reader.getObjectSize(blob, Constants.OBJ_BLOB);
+                    if (size > filter.maxFileBytes())
+                        continue;
+                }
+                String path = walk.getPathString();
+                files.put(path, new SourceFile(repo, path, blob, size));
+            }
+            return new SourceTree(parsed.copy(), parsed.getTree().copy(), Collections.unmodifiableNavigableMap(files));
+        }
+    }
+
+    public ObjectId commitId() {
+        return commitId;
+    }
+
+    public ObjectId treeId() {
+        return treeId;
+    }
+
+    public int size() {
+        return files.size();
+    }
+
+    /** Paths of all files, in order. */
+    public Set<String> paths() {
+        return files.keySet();
+    }
+
+    /** All files, in path order. */
+    public Collection<SourceFile> files() {
+        return files.values();
+    }
+
+    /** Files whose path sorts after the given path, in order. */
+    public Collection<SourceFile> filesAfter(String path) {
+        return files.tailMap(path, false).values();
+    }
+
+    /** File at path, or null if the tree has none (or the filter rejected it). */
+    public SourceFile file(String path) {
+        return files.get(path);
+    }
+
+    // ─── SourceFile ───────────────────────────────────────────────────────────
+
+    /** One file of the tree; content is read from its blob on demand. */
+    public static final class SourceFile {
+
+        private final Repository repo;
+        private final String path;
+        private final ObjectId blobId;
+        private volatile long size;
+
+        private SourceFile(Repository repo, String path, ObjectId blobId, long size) {
+            this.repo = repo;
+            this.path = path;
+            this.blobId = blobId;
+            this.size = size;
+        }
+
+        /** Path relative to the repository root, '/'-separated. */
+        public String path() {
+            return path;
+        }
+
+        public String name() {
+            return path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        public ObjectId blobId() {
+            return blobId;
+        }
+
+        /** Blob size in bytes, read from the object header without loading content. */
+        public long size() throws IOException {
+            if (size < 0) {
+                try (ObjectReader reader = repo.newObjectReader()) {
+                    size = reader.getObjectSize(blobId, Constants.OBJ_BLOB);
+                }
+            }
+            return size;
+        }
+
+        /** Load the blob's content. */
+        public byte[] bytes() throws IOException {
+            return repo.open(blobId, Constants.OBJ_BLOB).getCachedBytes(Integer.MAX_VALUE);
+        }
+    }
+
+    // ─── Filter ───────────────────────────────────────────────────────────────
+
+    /**
+     * Which entries of a tree to keep. A file is kept when its extension
+     * (case-insensitive) is in extensions or its name is in fileNames, no
+     * directory on its path is in skipDirs, and its blob is at most
+     * maxFileBytes.
+     */
+    public record Filter(Set<String> extensions, Set<String> fileNames, Set<String> skipDirs, long maxFileBytes) {
+
+        /** Files with one of the given extensions (".ts", ...), any size, nothing skipped. */
+        public static Filter extensions(Set<String> extensions) {
+            return new Filter(extensions, Set.of(), Set.of(), Long.MAX_VALUE);
+        }
+
+        public Filter withFileNames(Set<String> fileNames) {
+            return new Filter(extensions, fileNames, skipDirs, maxFileBytes);
+        }
+
+        public Filter skippingDirs(Set<String> skipDirs) {
+            return new Filter(extensions, fileNames, skipDirs, maxFileBytes);
+        }
+
+        public Filter withMaxFileBytes(long maxFileBytes) {
+            return new Filter(extensions, fileNames, skipDirs, maxFileBytes);
+        }
+
+        /** Whether a file name passes the extension / name part of the filter. */
+        public boolean acceptsName(String fileName) {
+            if (fileNames.contains(fileName))
+                return true;
+            int dot = fileName.lastIndexOf('.');
+            return dot >= 0 && extensions.contains(fileName.substring(dot).toLowerCase());
+        }
+
+        /** Whether a path passes the directory and name parts of the filter (size is not checked). */
+        public boolean acceptsPath(String path) {
+            int slash = path.lastIndexOf('/');
+            if (!acceptsName(path.substring(slash + 1)))
+                return false;
+            if (slash < 0 || skipDirs.isEmpty())
+                return true;
+            for (String dir : path.substring(0, slash).split("/")) {
+                if (skipDirs.contains(dir))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- ============================================================
+-- V18: Content hash on scip_documents
+-- SHA-256 of the raw Document protobuf frame. Lets re-index jobs
+-- skip documents that did not change since the previous upload.
+-- ============================================================
+
+ALTER TABLE code_intelligence.scip_documents
+    ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
@@ -0,0 +1,38 @@
+-- ============================================================
+-- V19: Symbol dictionary for scip_occurrences
+-- Every occurrence used to carry the full SCIP symbol string
+-- (often 100+ bytes). Symbols are now interned once in
+-- scip_symbol_ids and occurrences reference them by bigint id,
+-- which shrinks the table, its index, and turns symbol joins
+-- into integer equality.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS code_intelligence.scip_symbol_ids (
+    id     BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    symbol TEXT NOT NULL,
+    CONSTRAINT uq_scip_symbol_id UNIQUE (symbol)
+);
+
+-- Backfill the dictionary from existing occurrences
+INSERT INTO code_intelligence.scip_symbol_ids (symbol)
+SELECT DISTINCT symbol FROM code_intelligence.scip_occurrences
+ON CONFLICT (symbol) DO NOTHING;
+
+ALTER TABLE code_intelligence.scip_occurrences
+    ADD COLUMN IF NOT EXISTS symbol_id BIGINT;
+
+UPDATE code_intelligence.scip_occurrences o
+SET    symbol_id = s.id
+FROM   code_intelligence.scip_symbol_ids s
+WHERE  s.symbol = o.symbol;
+
+-- No FK to scip_symbol_ids: dictionary rows are never deleted, and the
+-- per-row FK check would slow down bulk ingestion.
+ALTER TABLE code_intelligence.scip_occurrences
+    ALTER COLUMN symbol_id SET NOT NULL;
+
+DROP INDEX IF EXISTS code_intelligence.idx_scip_occ_symbol;
+ALTER TABLE code_intelligence.scip_occurrences DROP COLUMN IF EXISTS symbol;
+
+CREATE INDEX IF NOT EXISTS idx_scip_occ_symbol_id
+    ON code_intelligence.scip_occurrences(symbol_id);
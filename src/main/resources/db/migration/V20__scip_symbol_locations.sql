@@ -0,0 +1,30 @@
+-- ============================================================
+-- V20: Precomputed symbol → locations index
+-- One row per (repo, symbol) holding every occurrence of the
+-- symbol as a packed bytea, ordered by file path then start
+-- position. Each location is 28 bytes, big-endian:
+--   int8 document_id, int4 start_line, int4 start_char,
+--   int4 end_line, int4 end_char, int4 role_flags
+-- Rebuilt by ScipIngestionService whenever a repo's index
+-- changes; find-references and go-to-definition read one row
+-- instead of joining scip_occurrences with scip_documents.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS code_intelligence.scip_symbol_locations (
+    user_id    BIGINT NOT NULL REFERENCES public.users(id) ON DELETE CASCADE,
+    repo_url   VARCHAR(1000) NOT NULL,
+    symbol_id  BIGINT NOT NULL,
+    locations  BYTEA NOT NULL,
+    CONSTRAINT pk_scip_symbol_locations PRIMARY KEY (user_id, repo_url, symbol_id)
+);
+
+-- Backfill existing indexes
+INSERT INTO code_intelligence.scip_symbol_locations (user_id, repo_url, symbol_id, locations)
+SELECT d.user_id, d.repo_url, o.symbol_id,
+       string_agg(int8send(o.document_id) || int4send(o.start_line) || int4send(o.start_char)
+                  || int4send(o.end_line) || int4send(o.end_char) || int4send(o.role_flags),
+                  ''::bytea ORDER BY d.relative_uri, o.start_line, o.start_char)
+FROM code_intelligence.scip_occurrences o
+JOIN code_intelligence.scip_documents d ON d.id = o.document_id
+GROUP BY d.user_id, d.repo_url, o.symbol_id
+ON CONFLICT DO NOTHING;
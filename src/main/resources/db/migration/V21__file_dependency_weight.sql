@@ -0,0 +1,8 @@
+-- ============================================================
+-- V21: Edge weight for code_graph.file_dependencies
+-- Number of reference occurrences that produced the edge
+-- (1 for import edges from source-code extraction).
+-- ============================================================
+
+ALTER TABLE code_graph.file_dependencies
+    ADD COLUMN IF NOT EXISTS weight INT NOT NULL DEFAULT 1;
@@ -0,0 +1,25 @@
+-- ============================================================
+-- V22: Incremental import-graph builds
+-- graph_builds records the commit each repo's import edges were
+-- last built from; file_imports keeps the raw import specifiers
+-- of every scanned file (newline-separated) so a rebuild only
+-- reads the blobs that changed since that commit and can
+-- re-resolve every other file from here when the file set or a
+-- resolver config file (tsconfig.json, go.mod, ...) changes.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS code_graph.graph_builds (
+    user_id     BIGINT NOT NULL REFERENCES public.users(id) ON DELETE CASCADE,
+    repo_url    VARCHAR(1000) NOT NULL,
+    commit_sha  VARCHAR(64) NOT NULL,
+    built_at    TIMESTAMP NOT NULL DEFAULT NOW(),
+    CONSTRAINT pk_graph_builds PRIMARY KEY (user_id, repo_url)
+);
+
+CREATE TABLE IF NOT EXISTS code_graph.file_imports (
+    user_id     BIGINT NOT NULL REFERENCES public.users(id) ON DELETE CASCADE,
+    repo_url    VARCHAR(1000) NOT NULL,
+    source_file VARCHAR(2000) NOT NULL,
+    imports     TEXT NOT NULL,
+    CONSTRAINT pk_file_imports PRIMARY KEY (user_id, repo_url, source_file)
+);
@@ -0,0 +1,23 @@
+-- ============================================================
+-- V23: Wake job workers on enqueue
+-- Every row that becomes 'pending' in index_jobs sends a
+-- notification on the 'index_jobs' channel with its job_type
+-- as payload. Workers LISTEN on that channel and claim right
+-- away instead of waiting for the next poll; pg_notify is
+-- transactional, so the notification is only delivered once the
+-- enqueueing transaction commits and the row is visible.
+-- ============================================================
+
+CREATE OR REPLACE FUNCTION public.notify_index_job()
+RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('index_jobs', COALESCE(NEW.job_type, 'scip_index'));
+    RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+DROP TRIGGER IF EXISTS index_jobs_notify ON public.index_jobs;
+
+CREATE TRIGGER index_jobs_notify AFTER INSERT OR UPDATE OF status ON public.index_jobs
+    FOR EACH ROW WHEN (NEW.status = 'pending')
+    EXECUTE FUNCTION public.notify_index_job();
@@ -0,0 +1,19 @@
+-- ============================================================
+-- V24: Leases for running index jobs
+-- A worker claims a job in a short transaction that sets it to
+-- 'processing' and leases it to the worker (lease_owner) until
+-- lease_expires_at, then runs the job outside any transaction
+-- while a heartbeat keeps extending the lease. Jobs whose lease
+-- has expired (crashed or partitioned node) are put back to
+-- 'pending' by a recovery sweep, which also re-fires the V23
+-- notification. lease_expires_at is always set from the
+-- database clock, so nodes never compare their own clocks.
+-- ============================================================
+
+ALTER TABLE public.index_jobs
+    ADD COLUMN IF NOT EXISTS lease_owner      VARCHAR(200),
+    ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMPTZ;
+
+CREATE INDEX IF NOT EXISTS idx_index_jobs_lease
+    ON public.index_jobs(lease_expires_at)
+    WHERE status = 'processing';
@@ -0,0 +1,26 @@
+-- ============================================================
+-- V25: Job priority and fair claiming
+-- Workers claim, per job type, the head job (highest priority,
+-- then oldest) of each user with pending work, preferring the
+-- user with the fewest jobs already processing: one user with
+-- hundreds of queued repos gets one slot per round like everyone
+-- else. idx_index_jobs_pending_head serves the per-user head
+-- lookup, idx_index_jobs_processing_user the running counts.
+--
+-- Jobs enqueued through JPA without a type were stored with a
+-- NULL job_type instead of the column default; backfill them so
+-- the scip_index workers find them.
+-- ============================================================
+
+ALTER TABLE public.index_jobs
+    ADD COLUMN IF NOT EXISTS priority SMALLINT NOT NULL DEFAULT 0;
+
+UPDATE public.index_jobs SET job_type = 'scip_index' WHERE job_type IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_index_jobs_pending_head
+    ON public.index_jobs(job_type, user_id, priority DESC, created_at)
+    WHERE status = 'pending';
+
+CREATE INDEX IF NOT EXISTS idx_index_jobs_processing_user
+    ON public.index_jobs(user_id)
+    WHERE status = 'processing';
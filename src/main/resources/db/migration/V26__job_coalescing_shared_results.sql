@@ -0,0 +1,45 @@
+-- ============================================================
+-- V26: Job coalescing and shared results for public repos
+--
+-- dedup_key identifies what a graph_build / git_mine job computes
+-- (type, user, repo, parameters). At most one pending job may
+-- exist per key: an identical enqueue attaches to it instead of
+-- queueing a second run.
+--
+-- canonical_repo_url() folds the URL spellings of one repo
+-- together (https or git@, with or without .git / trailing
+-- slash, any case) so builds of the same public repo by
+-- different users can be found. embedding_builds records the
+-- commit each repo's embeddings were built from, like
+-- graph_builds does for import edges (V22); a build of a public
+-- repo at a commit another user already built is copied from
+-- that user's rows instead of being recomputed.
+-- ============================================================
+
+ALTER TABLE public.index_jobs
+    ADD COLUMN IF NOT EXISTS dedup_key VARCHAR(64);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_index_jobs_pending_dedup
+    ON public.index_jobs(dedup_key)
+    WHERE status = 'pending';
+
+CREATE OR REPLACE FUNCTION public.canonical_repo_url(url TEXT)
+RETURNS TEXT AS $$
+    SELECT lower(regexp_replace(regexp_replace(btrim(url), '^git@github\.com:', 'https://github.com/'),
+                                '(\.git)?/*$', ''));
+$$ language 'sql' IMMUTABLE;
+
+CREATE INDEX IF NOT EXISTS idx_graph_builds_canonical
+    ON code_graph.graph_builds(public.canonical_repo_url(repo_url), commit_sha);
+
+CREATE TABLE IF NOT EXISTS code_intelligence.embedding_builds (
+    user_id     BIGINT NOT NULL REFERENCES public.users(id) ON DELETE CASCADE,
+    repo_url    VARCHAR(1000) NOT NULL,
+    commit_sha  VARCHAR(64) NOT NULL,
+    chunks      INT NOT NULL,
+    built_at    TIMESTAMP NOT NULL DEFAULT NOW(),
+    CONSTRAINT pk_embedding_builds PRIMARY KEY (user_id, repo_url)
+);
+
+CREATE INDEX IF NOT EXISTS idx_embedding_builds_canonical
+    ON code_intelligence.embedding_builds(public.canonical_repo_url(repo_url), commit_sha);
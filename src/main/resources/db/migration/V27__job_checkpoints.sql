@@ -0,0 +1,22 @@
+-- ============================================================
+-- V27: Resumable jobs and retry with backoff
+-- job_checkpoints holds one opaque progress marker per job and
+-- stage (last commit mined, last file embedded, ...), written in
+-- the same transaction as the work it describes, so a job that
+-- is retried or requeued after a lost lease resumes where it
+-- stopped. attempts counts claims; a job failing with a
+-- transient error goes back to 'pending' with run_after set to
+-- an exponential backoff, and is not claimed before then.
+-- ============================================================
+
+ALTER TABLE public.index_jobs
+    ADD COLUMN IF NOT EXISTS attempts  INT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS run_after TIMESTAMPTZ;
+
+CREATE TABLE IF NOT EXISTS public.job_checkpoints (
+    job_id     BIGINT NOT NULL REFERENCES public.index_jobs(id) ON DELETE CASCADE,
+    stage      VARCHAR(50) NOT NULL,
+    state      TEXT NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT pk_job_checkpoints PRIMARY KEY (job_id, stage)
+);
@@ -0,0 +1,17 @@
+-- ============================================================
+-- V28: Build leases
+-- One row per running graph or embedding build, keyed by build
+-- kind, user and repo. Unlike the transaction-scoped advisory
+-- locks they replace, a lease is held without keeping a
+-- transaction (and its pooled connection) open for the whole
+-- build: the build commits in short batches and renews the lease
+-- as it goes. A lease whose expires_at has passed belongs to a
+-- build that stopped renewing it and may be taken over.
+-- ============================================================
+
+CREATE TABLE IF NOT EXISTS public.build_locks (
+    lock_key   VARCHAR(1024) NOT NULL,
+    owner      VARCHAR(64) NOT NULL,
+    expires_at TIMESTAMPTZ NOT NULL,
+    CONSTRAINT pk_build_locks PRIMARY KEY (lock_key)
+);
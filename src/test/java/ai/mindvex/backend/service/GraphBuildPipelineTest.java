@@ -0,0 +1,120 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.controller.WebSocketGraphController;
+import ai.mindvex.backend.dto.GraphUpdateMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GraphBuildPipelineTest {
+
+    /** Records broadcasts instead of sending them. */
+    private static final class RecordingController extends WebSocketGraphController {
+
+        final List<GraphUpdateMessage> sent = new ArrayList<>();
+
+        RecordingController() {
+            super(null);
+        }
+
+        @Override
+        public void broadcastGraphUpdate(String repoId, GraphUpdateMessage message) {
+            sent.add(message);
+        }
+    }
+
+    private RecordingController controller;
+    private GraphBuildPipeline.DeltaStream deltas;
+
+    @BeforeEach
+    void setUp() {
+        controller = new RecordingController();
+        deltas = new GraphBuildPipeline.DeltaStream(controller, "repo-1");
+    }
+
+    private static List<ImportGraphStore.Edge> edges(String prefix, int count) {
+        List<ImportGraphStore.Edge> edges = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            edges.add(new ImportGraphStore.Edge(prefix + i + ".ts", "lib/shared.ts"));
+        return edges;
+    }
+
+    private List<Long> sequences() {
+        return controller.sent.stream().map(m -> m.getMetadata().getSequence()).toList();
+    }
+
+    @Test
+    void sequenceStartsAtZeroBeforeAnyMessage() {
+        assertEquals(0L, deltas.sequence());
+        deltas.edges(List.of(), List.of());
+        assertEquals(0L, deltas.sequence());
+        assertEquals(0, controller.sent.size());
+    }
+
+    @Test
+    void fullBuildResetIsNumberedBeforeTheDeltas() {
+        deltas.fullBuild();
+        deltas.edges(edges("src/a", 2), List.of());
+        deltas.edges(edges("src/b", 3), List.of());
+
+        assertEquals(List.of("graph_reset", "batch_update", "batch_update"),
+                controller.sent.stream().map(GraphUpdateMessage::getType).toList());
+        assertEquals(List.of(1L, 2L, 3L), sequences());
+        assertEquals(3L, deltas.sequence());
+    }
+
+    @Test
+    void largeSlicesAreSplitIntoConsecutivelyNumberedDeltas() {
+        int max = GraphBuildPipeline.MAX_EDGES_PER_DELTA;
+        deltas.edges(edges("src/a", 2 * max + 7), List.of());
+
+        assertEquals(List.of(1L, 2L, 3L), sequences());
+        assertEquals(max, controller.sent.get(0).getEdges().size());
+        assertEquals(max, controller.sent.get(1).getEdges().size());
+        assertEquals(7, controller.sent.get(2).getEdges().size());
+    }
+
+    @Test
+    void removedEdgesFillDeltasFirst() {
+        int max = GraphBuildPipeline.MAX_EDGES_PER_DELTA;
+        deltas.edges(edges("src/add", max), edges("src/del", max / 2));
+
+        assertEquals(2, controller.sent.size());
+        GraphUpdateMessage first = controller.sent.get(0);
+        assertEquals(max / 2, first.getRemovedEdges().size());
+        assertEquals(max - max / 2, first.getEdges().size());
+        GraphUpdateMessage second = controller.sent.get(1);
+        assertEquals(0, second.getRemovedEdges().size());
+        assertEquals(max / 2, second.getEdges().size());
+        assertEquals(List.of(1L, 2L), sequences());
+    }
+
+    @Test
+    void nodesAreSentOncePerBuild() {
+        deltas.edges(List.of(new ImportGraphStore.Edge("src/a.ts", "src/b.ts")), List.of());
+        deltas.edges(List.of(new ImportGraphStore.Edge("src/b.ts", "src/c.ts")), List.of());
+        assertEquals(2, controller.sent.get(0).getNodes().size());
+        assertEquals(1, controller.sent.get(1).getNodes().size());
+        assertEquals("c.ts", controller.sent.get(1).getNodes().get(0).getLabel());
+
+        // A full rebuild starts a fresh graph, so every node goes out again
+        deltas.fullBuild();
+        deltas.edges(List.of(new ImportGraphStore.Edge("src/a.ts", "src/b.ts")), List.of());
+        assertEquals(2, controller.sent.get(3).getNodes().size());
+        assertEquals(List.of(1L, 2L, 3L, 4L), sequences());
+    }
+
+    @Test
+    void deltasNameTheRepoAndExtractStage() {
+        deltas.fullBuild();
+        deltas.edges(edges("src/a", 1), List.of());
+        for (GraphUpdateMessage message : controller.sent) {
+            assertEquals("repo-1", message.getRepoId());
+            assertEquals("extract", message.getMetadata().getStage());
+        }
+    }
+}
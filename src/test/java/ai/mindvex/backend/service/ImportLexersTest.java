@@ -0,0 +1,235 @@
+package ai.mindvex.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImportLexersTest {
+
+    private static final String BOM = "\uFEFF";
+
+    private static List<String> scan(String path, String source) {
+        List<String> out = new ArrayList<>();
+        ImportScanner.forFile(path).scan(source.getBytes(StandardCharsets.UTF_8), out);
+        return out;
+    }
+
+    // ─── JavaScript / TypeScript ──────────────────────────────────────────────
+
+    @Test
+    void jsRecognizesEveryImportForm() {
+        String source = """
+                import a from './a';
+                import { b, c as d } from "./b";
+                import * as ns from './ns';
+                import './side';
+                export { x } from './x';
+                export * from './all';
+                const m = require('./m');
+                const lazy = await import('./lazy');
+                """;
+        assertEquals(List.of("./a", "./b", "./ns", "./side", "./x", "./all", "./m", "./lazy"),
+                scan("src/index.ts", source));
+    }
+
+    @Test
+    void jsSkipsComments() {
+        String source = """
+                // import x from './line-comment';
+                /* require('./block-comment');
+                   import y from './block-comment'; */
+                import z from './z';
+                """;
+        assertEquals(List.of("./z"), scan("a.js", source));
+    }
+
+    @Test
+    void jsSkipsStringAndTemplateContents() {
+        String source = """
+                const s = "import a from './double'";
+                const t = 'require("./single")';
+                const u = `
+                  import b from './template';
+                `;
+                import c from './c';
+                """;
+        assertEquals(List.of("./c"), scan("a.tsx", source));
+    }
+
+    @Test
+    void jsIgnoresMemberCallsAndImportMeta() {
+        String source = """
+                loader.require('./member');
+                const url = import.meta.url;
+                import d from './d';
+                """;
+        assertEquals(List.of("./d"), scan("a.mjs", source));
+    }
+
+    @Test
+    void jsSkipsByteOrderMark() {
+        assertEquals(List.of("./a"), scan("a.js", BOM + "import a from './a';\n"));
+    }
+
+    // ─── Python ───────────────────────────────────────────────────────────────
+
+    @Test
+    void pythonRecordsModulesOfImportAndFrom() {
+        String source = """
+                import os, sys as system
+                from .pkg.mod import thing
+                from . import sibling
+                """;
+        assertEquals(List.of("os", "sys", ".pkg.mod", "."), scan("app/main.py", source));
+    }
+
+    @Test
+    void pythonSkipsCommentsAndTripleQuotedStrings() {
+        String source = """
+                \"\"\"Module docs.
+
+                import fake
+                \"\"\"
+                # import commented
+                x = '''
+                from also import fake
+                '''
+                import real
+                """;
+        assertEquals(List.of("real"), scan("m.py", source));
+    }
+
+    @Test
+    void pythonFollowsBracketedImportAcrossLines() {
+        String source = """
+                from pkg import (
+                    a,
+                    b,
+                )
+                import after
+                """;
+        assertEquals(List.of("pkg", "after"), scan("m.py", source));
+    }
+
+    @Test
+    void pythonStopsAtFirstTopLevelDefinition() {
+        String source = """
+                import a
+
+                def f():
+                    import b
+
+                import c
+                """;
+        assertEquals(List.of("a"), scan("m.py", source));
+    }
+
+    @Test
+    void pythonSkipsByteOrderMark() {
+        assertEquals(List.of("os"), scan("m.py", BOM + "import os\n"));
+    }
+
+    // ─── Java / Kotlin ────────────────────────────────────────────────────────
+
+    @Test
+    void javaRecordsImportsAsSlashPaths() {
+        String source = """
+                package com.acme;
+
+                import java.util.List;
+                import static org.junit.Assert.assertEquals;
+                import com.acme.util.*;
+
+                public class A {
+                }
+                """;
+        assertEquals(List.of("java/util/List", "org/junit/Assert/assertEquals", "com/acme/util/*"),
+                scan("src/main/java/com/acme/A.java", source));
+    }
+
+    @Test
+    void javaSkipsCommentsBeforeAndBetweenImports() {
+        String source = """
+                /*
+                 * License header
+                 * import fake.Header;
+                 */
+                package p;
+                // import fake.Line;
+                import real.Thing;
+                """;
+        assertEquals(List.of("real/Thing"), scan("P.java", source));
+    }
+
+    @Test
+    void javaStopsBeforeTextBlocksInTheBody() {
+        String source = "import a.B;\n\nclass X {\n    String s = \"\"\"\n        import fake.C;\n        \"\"\";\n}\n"
+                + "import never.Seen;\n";
+        assertEquals(List.of("a/B"), scan("X.java", source));
+    }
+
+    @Test
+    void kotlinSkipsFileAnnotationsAndAliases() {
+        String source = """
+                @file:JvmName("Utils")
+                package p
+
+                import a.b.C as D
+                import e.F
+
+                val raw = \"\"\"
+                import fake.G
+                \"\"\"
+                """;
+        assertEquals(List.of("a/b/C", "e/F"), scan("Utils.kt", source));
+    }
+
+    @Test
+    void javaSkipsByteOrderMark() {
+        assertEquals(List.of("a/B"), scan("A.java", BOM + "package p;\nimport a.B;\n"));
+    }
+
+    // ─── Go ───────────────────────────────────────────────────────────────────
+
+    @Test
+    void goReadsSingleAndGroupedImports() {
+        String source = """
+                package main
+
+                import "fmt"
+                import (
+                	"os"
+                	str "strings"
+                	_ "embed"
+                	. "math"
+                	// "commented/out"
+                	/* "block/out" */
+                	`raw/path`
+                )
+
+                func main() {}
+                """;
+        assertEquals(List.of("fmt", "os", "strings", "embed", "math", "raw/path"), scan("main.go", source));
+    }
+
+    @Test
+    void goStopsAtFirstDeclaration() {
+        String source = """
+                package p
+
+                func f() string { return `import "x"` }
+
+                import "never"
+                """;
+        assertEquals(List.of(), scan("p.go", source));
+    }
+
+    @Test
+    void goSkipsByteOrderMark() {
+        assertEquals(List.of("fmt"), scan("main.go", BOM + "package main\n\nimport \"fmt\"\n"));
+    }
+}
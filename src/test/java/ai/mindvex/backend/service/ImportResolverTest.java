@@ -0,0 +1,171 @@
+package ai.mindvex.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImportResolverTest {
+
+    private static ImportResolver resolver(List<String> sources, Map<String, String> configs) {
+        return ImportResolver.build(sources, configs.keySet(), configs::get);
+    }
+
+    private static ImportResolver resolver(List<String> sources) {
+        return resolver(sources, Map.of());
+    }
+
+    // ─── JavaScript / TypeScript ──────────────────────────────────────────────
+
+    @Test
+    void jsRelativeImportsTryExtensionsThenIndexFiles() {
+        ImportResolver r = resolver(List.of(
+                "web/src/app.ts", "web/src/util.ts", "web/src/components/index.tsx", "web/lib/legacy.js"));
+        assertEquals("web/src/util.ts", r.resolve("web/src/app.ts", "./util"));
+        assertEquals("web/src/components/index.tsx", r.resolve("web/src/app.ts", "./components"));
+        assertEquals("web/lib/legacy.js", r.resolve("web/src/app.ts", "../lib/legacy"));
+        assertNull(r.resolve("web/src/app.ts", "./missing"));
+    }
+
+    @Test
+    void jsEsmImportOfEmittedJsResolvesToTypeScriptSource() {
+        ImportResolver r = resolver(List.of("src/a.ts", "src/b.ts"));
+        assertEquals("src/b.ts", r.resolve("src/a.ts", "./b.js"));
+    }
+
+    @Test
+    void jsRelativeImportEscapingTheRepoResolvesToNull() {
+        ImportResolver r = resolver(List.of("a.ts", "b.ts"));
+        assertNull(r.resolve("a.ts", "../../b"));
+    }
+
+    @Test
+    void jsBarePackagesWithoutConfigResolveToNull() {
+        ImportResolver r = resolver(List.of("src/app.ts", "src/react.ts"));
+        assertNull(r.resolve("src/app.ts", "react"));
+    }
+
+    @Test
+    void jsUsesPathsAndBaseUrlOfNearestTsConfig() {
+        ImportResolver r = resolver(
+                List.of("web/src/app.ts", "web/src/shared/format.ts", "web/src/lib/http.ts", "api/src/main.ts"),
+                Map.of("web/tsconfig.json", """
+                        {
+                          // comments and trailing commas are allowed
+                          "compilerOptions": {
+                            "baseUrl": "src",
+                            "paths": { "@shared/*": ["shared/*"], },
+                          },
+                        }
+                        """));
+        assertEquals("web/src/shared/format.ts", r.resolve("web/src/app.ts", "@shared/format"));
+        assertEquals("web/src/lib/http.ts", r.resolve("web/src/app.ts", "lib/http"));
+        // api/ is outside the config's directory
+        assertNull(r.resolve("api/src/main.ts", "lib/http"));
+    }
+
+    @Test
+    void jsLongestPathPrefixWins() {
+        ImportResolver r = resolver(
+                List.of("src/app.ts", "src/ui/button.ts", "src/ui-kit/button.ts"),
+                Map.of("tsconfig.json", """
+                        { "compilerOptions": { "paths": {
+                            "@/*": ["src/*"],
+                            "@/ui/*": ["src/ui-kit/*"]
+                        } } }
+                        """));
+        assertEquals("src/ui-kit/button.ts", r.resolve("src/app.ts", "@/ui/button"));
+        assertEquals("src/app.ts", r.resolve("src/ui/button.ts", "@/app"));
+    }
+
+    @Test
+    void unreadableConfigIsIgnored() {
+        ImportResolver r = resolver(List.of("src/a.ts", "src/b.ts"), Map.of("tsconfig.json", "{ not json"));
+        assertEquals("src/b.ts", r.resolve("src/a.ts", "./b"));
+    }
+
+    // ─── Python ───────────────────────────────────────────────────────────────
+
+    @Test
+    void pythonResolvesFromTopLevelPackageRoots() {
+        ImportResolver r = resolver(List.of(
+                "service/app/__init__.py", "service/app/main.py", "service/app/db/__init__.py",
+                "service/app/db/models.py", "scripts/run.py"));
+        assertEquals("service/app/db/models.py", r.resolve("service/app/main.py", "app.db.models"));
+        assertEquals("service/app/db/__init__.py", r.resolve("service/app/main.py", "app.db"));
+        assertEquals("scripts/run.py", r.resolve("service/app/main.py", "scripts.run"));
+        assertNull(r.resolve("service/app/main.py", "requests"));
+    }
+
+    @Test
+    void pythonRelativeImportsClimbOneDirectoryPerExtraDot() {
+        ImportResolver r = resolver(List.of(
+                "pkg/__init__.py", "pkg/util.py", "pkg/sub/__init__.py", "pkg/sub/mod.py", "pkg/sub/peer.py"));
+        assertEquals("pkg/sub/peer.py", r.resolve("pkg/sub/mod.py", ".peer"));
+        assertEquals("pkg/util.py", r.resolve("pkg/sub/mod.py", "..util"));
+        assertEquals("pkg/sub/__init__.py", r.resolve("pkg/sub/mod.py", "."));
+        assertNull(r.resolve("pkg/sub/mod.py", "....util"));
+    }
+
+    // ─── Java / Kotlin ────────────────────────────────────────────────────────
+
+    @Test
+    void jvmResolvesAgainstSourceRoots() {
+        ImportResolver r = resolver(List.of(
+                "core/src/main/java/com/acme/Foo.java", "core/src/main/kotlin/com/acme/Bar.kt",
+                "core/src/test/java/com/acme/FooTest.java"));
+        assertEquals("core/src/main/java/com/acme/Foo.java",
+                r.resolve("core/src/test/java/com/acme/FooTest.java", "com/acme/Foo"));
+        assertEquals("core/src/main/kotlin/com/acme/Bar.kt",
+                r.resolve("core/src/main/java/com/acme/Foo.java", "com/acme/Bar"));
+    }
+
+    @Test
+    void jvmStaticImportFallsBackToTheClass() {
+        ImportResolver r = resolver(List.of("src/main/java/com/acme/Util.java", "src/main/java/com/acme/App.java"));
+        assertEquals("src/main/java/com/acme/Util.java",
+                r.resolve("src/main/java/com/acme/App.java", "com/acme/Util/helper"));
+    }
+
+    @Test
+    void jvmWildcardAndLibraryImportsResolveToNull() {
+        ImportResolver r = resolver(List.of("src/main/java/com/acme/App.java", "src/main/java/com/acme/List.java"));
+        assertNull(r.resolve("src/main/java/com/acme/App.java", "com/acme/*"));
+        assertNull(r.resolve("src/main/java/com/acme/App.java", "java/util/List"));
+    }
+
+    @Test
+    void jvmUnknownRootMatchesBySuffixPreferringTheNearestFile() {
+        ImportResolver r = resolver(List.of(
+                "a/com/acme/Foo.java", "b/com/acme/Foo.java", "b/com/acme/App.java"));
+        assertEquals("b/com/acme/Foo.java", r.resolve("b/com/acme/App.java", "com/acme/Foo"));
+    }
+
+    // ─── Go ───────────────────────────────────────────────────────────────────
+
+    @Test
+    void goResolvesPackagesUnderDeclaredModules() {
+        ImportResolver r = resolver(
+                List.of("svc/main.go", "svc/internal/store/store.go", "svc/internal/store/store_test.go",
+                        "svc/pkg/log/logger.go"),
+                Map.of("svc/go.mod", "module github.com/acme/svc\n\ngo 1.22\n"));
+        assertEquals("svc/internal/store/store.go", r.resolve("svc/main.go", "github.com/acme/svc/internal/store"));
+        assertEquals("svc/pkg/log/logger.go", r.resolve("svc/main.go", "github.com/acme/svc/pkg/log"));
+        assertNull(r.resolve("svc/main.go", "github.com/acme/svc/missing"));
+        assertNull(r.resolve("svc/main.go", "github.com/other/lib"));
+        assertNull(r.resolve("svc/main.go", "fmt"));
+    }
+
+    // ─── Other ────────────────────────────────────────────────────────────────
+
+    @Test
+    void blankImportsAndUnknownLanguagesResolveToNull() {
+        ImportResolver r = resolver(List.of("a.ts", "b.rb"));
+        assertNull(r.resolve("a.ts", ""));
+        assertNull(r.resolve("a.ts", null));
+        assertNull(r.resolve("b.rb", "./a"));
+    }
+}
@@ -0,0 +1,187 @@
+package ai.mindvex.backend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Import extraction over a real checkout: the ImportLexers against the
+ * whole-file regexes SourceCodeDependencyExtractor used before them.
+ *
+ * Each invocation scans every supported source file of the repo once, from
+ * bytes already in memory; the regex variant also decodes each file to a
+ * String, as the old extractor did. Point it at one or more checkouts with
+ * -p repo=/path/to/a,/path/to/b (default: the working directory). Files under
+ * .git and node_modules are skipped, and at most maxFiles are loaded.
+ *
+ * Run after mvn test-compile, with the test classpath:
+ * java -cp target/test-classes:target/classes:<test deps>
+ * ai.mindvex.backend.service.ImportScannerBenchmark -p repo=...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportScannerBenchmark {
+
+    private static final Set<String> EXTENSIONS = Set.of(
+            ".ts", ".tsx", ".js", ".jsx", ".mjs", ".cjs", ".py", ".java", ".kt", ".go");
+    private static final Set<String> SKIPPED_DIRS = Set.of(".git", "node_modules");
+
+    @Param({"."})
+    public String repo;
+
+    @Param({"20000"})
+    public int maxFiles;
+
+    private final List<String> paths = new ArrayList<>();
+    private final List<byte[]> contents = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void loadFiles() throws IOException {
+        Path root = Paths.get(repo);
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (paths.size() >= maxFiles)
+                    break;
+                String relative = root.relativize(file).toString().replace('\\', '/');
+                if (!Files.isRegularFile(file) || !EXTENSIONS.contains(extension(relative))
+                        || skipped(relative))
+                    continue;
+                paths.add(relative);
+                contents.add(Files.readAllBytes(file));
+            }
+        }
+        if (paths.isEmpty())
+            throw new IllegalStateException("No source files under " + root.toAbsolutePath());
+    }
+
+    @Benchmark
+    public void lexers(Blackhole bh) {
+        List<String> imports = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            imports.clear();
+            ImportScanner.forFile(paths.get(i)).scan(contents.get(i), imports);
+            bh.consume(imports.size());
+        }
+    }
+
+    @Benchmark
+    public void regexes(Blackhole bh) {
+        for (int i = 0; i < paths.size(); i++) {
+            String content = new String(contents.get(i), StandardCharsets.UTF_8);
+            bh.consume(LegacyRegexes.extractImports(paths.get(i), content).size());
+        }
+    }
+
+    private static boolean skipped(String relative) {
+        for (String segment : relative.split("/")) {
+            if (SKIPPED_DIRS.contains(segment))
+                return true;
+        }
+        return false;
+    }
+
+    private static String extension(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf('/') ? path.substring(dot) : "";
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(List.of(ImportScannerBenchmark.class.getSimpleName()));
+        jmhArgs.addAll(List.of(args));
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(String[]::new));
+    }
+
+    // ─── Baseline ─────────────────────────────────────────────────────────────
+
+    /** The extractor's import extraction before ImportLexers, unchanged. */
+    static final class LegacyRegexes {
+
+        private static final Pattern JS_IMPORT = Pattern.compile(
+                "(?:import\\s+.*?from\\s+['\"]([^'\"]+)['\"])|(?:require\\s*\\(\\s*['\"]([^'\"]+)['\"]\\s*\\))");
+        private static final Pattern PYTHON_IMPORT = Pattern.compile(
+                "(?:from\\s+(\\S+)\\s+import)|(?:import\\s+(\\S+))");
+        private static final Pattern JAVA_IMPORT = Pattern.compile(
+                "import\\s+(?:static\\s+)?(\\S+);");
+        private static final Pattern GO_IMPORT = Pattern.compile(
+                "\"([^\"]+)\"");
+
+        static List<String> extractImports(String filePath, String content) {
+            List<String> imports = new ArrayList<>();
+            String ext = filePath.substring(filePath.lastIndexOf('.'));
+
+            switch (ext) {
+                case ".ts", ".tsx", ".js", ".jsx", ".mjs", ".cjs" -> {
+                    Matcher m = JS_IMPORT.matcher(content);
+                    while (m.find()) {
+                        String match = m.group(1) != null ? m.group(1) : m.group(2);
+                        if (match != null)
+                            imports.add(match);
+                    }
+                }
+                case ".py" -> {
+                    Matcher m = PYTHON_IMPORT.matcher(content);
+                    while (m.find()) {
+                        String match = m.group(1) != null ? m.group(1) : m.group(2);
+                        if (match != null)
+                            imports.add(match.replaceAll(",+$", ""));
+                    }
+                }
+                case ".java", ".kt" -> {
+                    Matcher m = JAVA_IMPORT.matcher(content);
+                    while (m.find()) {
+                        String match = m.group(1);
+                        if (match != null)
+                            imports.add(match.replace(".", "/"));
+                    }
+                }
+                case ".go" -> {
+                    boolean inImportBlock = false;
+                    for (String line : content.split("\n")) {
+                        String trimmed = line.trim();
+                        if (trimmed.startsWith("import (")) {
+                            inImportBlock = true;
+                            continue;
+                        }
+                        if (inImportBlock && trimmed.equals(")")) {
+                            inImportBlock = false;
+                            continue;
+                        }
+                        if (inImportBlock || trimmed.startsWith("import \"")) {
+                            Matcher m = GO_IMPORT.matcher(trimmed);
+                            if (m.find())
+                                imports.add(m.group(1));
+                        }
+                    }
+                }
+            }
+            return imports;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package ai.mindvex.backend.service;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.errors.NoRemoteRepositoryException;
+import org.eclipse.jgit.transport.URIish;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.file.NoSuchFileException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexJobWorkerTest {
+
+    // ─── isTransient ──────────────────────────────────────────────────────────
+
+    @Test
+    void networkAndIoFailuresAreTransient() {
+        assertTrue(IndexJobWorker.isTransient(new IOException("connection reset")));
+        assertTrue(IndexJobWorker.isTransient(new SocketTimeoutException("read timed out")));
+        assertTrue(IndexJobWorker.isTransient(new TransportException("remote hung up")));
+        assertTrue(IndexJobWorker.isTransient(new ResourceAccessException("I/O error on GET")));
+    }
+
+    @Test
+    void retryableDatabaseFailuresAreTransient() {
+        assertTrue(IndexJobWorker.isTransient(new QueryTimeoutException("statement timeout")));
+        assertTrue(IndexJobWorker.isTransient(new RecoverableDataAccessException("connection lost")));
+        assertFalse(IndexJobWorker.isTransient(new DataIntegrityViolationException("duplicate key")));
+    }
+
+    @Test
+    void upstreamServerErrorsAndRateLimitsAreTransient() {
+        assertTrue(IndexJobWorker.isTransient(new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+        assertTrue(IndexJobWorker.isTransient(
+                HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "slow down", null, null, null)));
+        assertFalse(IndexJobWorker.isTransient(
+                HttpClientErrorException.create(HttpStatus.NOT_FOUND, "missing", null, null, null)));
+    }
+
+    @Test
+    void causeChainIsSearched() {
+        assertTrue(IndexJobWorker.isTransient(new RuntimeException("wrapped", new UncheckedIOException(
+                new IOException("broken pipe")))));
+        assertFalse(IndexJobWorker.isTransient(new RuntimeException("wrapped", new IllegalStateException("bug"))));
+    }
+
+    @Test
+    void missingInputFilesAreNotTransient() {
+        assertFalse(IndexJobWorker.isTransient(new FileNotFoundException("index.scip")));
+        assertFalse(IndexJobWorker.isTransient(new NoSuchFileException("index.scip")));
+        assertFalse(IndexJobWorker.isTransient(new RuntimeException(new NoSuchFileException("index.scip"))));
+    }
+
+    @Test
+    void malformedScipUploadIsNotTransient() {
+        assertFalse(IndexJobWorker.isTransient(new InvalidProtocolBufferException("invalid wire type")));
+        assertFalse(IndexJobWorker.isTransient(new IOException("SCIP ingestion failed",
+                new InvalidProtocolBufferException("While parsing a protocol message, the input ended unexpectedly"))));
+    }
+
+    @Test
+    void refusedCredentialsAreNotTransient() {
+        assertFalse(IndexJobWorker.isTransient(new TransportException("https://github.com/a/b: not authorized")));
+        assertFalse(IndexJobWorker.isTransient(new TransportException(
+                "https://github.com/a/b: Authentication is required but no CredentialsProvider has been registered")));
+        // As thrown by GitRepositoryCache for a failed fetch
+        assertFalse(IndexJobWorker.isTransient(new IOException("Fetch failed for https://github.com/a/b: denied",
+                new TransportException("denied",
+                        new org.eclipse.jgit.errors.TransportException("https://github.com/a/b: not authorized")))));
+    }
+
+    @Test
+    void missingRemoteRepositoryIsNotTransient() throws Exception {
+        NoRemoteRepositoryException missing = new NoRemoteRepositoryException(
+                new URIish("https://github.com/a/gone"), "https://github.com/a/gone: not found");
+        assertFalse(IndexJobWorker.isTransient(missing));
+        assertFalse(IndexJobWorker.isTransient(new IOException("Clone failed on attempt 1", missing)));
+    }
+
+    @Test
+    void programmingErrorsAreNotTransient() {
+        assertFalse(IndexJobWorker.isTransient(new IllegalArgumentException("bad payload")));
+        assertFalse(IndexJobWorker.isTransient(new NullPointerException()));
+        assertFalse(IndexJobWorker.isTransient(null));
+    }
+
+    @Test
+    void selfReferencingCauseDoesNotLoop() {
+        Exception odd = new Exception() {
+            @Override
+            public synchronized Throwable getCause() {
+                return this;
+            }
+        };
+        assertFalse(IndexJobWorker.isTransient(odd));
+    }
+
+    // ─── retryDelaySeconds ────────────────────────────────────────────────────
+
+    @Test
+    void retryDelayDoublesPerAttempt() {
+        assertEquals(30L, IndexJobWorker.retryDelaySeconds(1, 30, 3600));
+        assertEquals(60L, IndexJobWorker.retryDelaySeconds(2, 30, 3600));
+        assertEquals(120L, IndexJobWorker.retryDelaySeconds(3, 30, 3600));
+        assertEquals(240L, IndexJobWorker.retryDelaySeconds(4, 30, 3600));
+    }
+
+    @Test
+    void retryDelayIsCappedAtMax() {
+        assertEquals(3600L, IndexJobWorker.retryDelaySeconds(10, 30, 3600));
+        assertEquals(3600L, IndexJobWorker.retryDelaySeconds(Integer.MAX_VALUE, 30, 3600));
+    }
+
+    @Test
+    void retryDelayTreatsUnstartedAttemptsAsFirst() {
+        assertEquals(30L, IndexJobWorker.retryDelaySeconds(0, 30, 3600));
+        assertEquals(30L, IndexJobWorker.retryDelaySeconds(-5, 30, 3600));
+    }
+}
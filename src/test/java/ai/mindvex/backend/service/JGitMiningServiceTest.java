@@ -0,0 +1,132 @@
+package ai.mindvex.backend.service;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JGitMiningServiceTest {
+
+    private static final Instant DAY_1 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    private Git git;
+    /** Commits c0..c4, one day apart, oldest first. */
+    private final List<RevCommit> history = new ArrayList<>();
+
+    @BeforeEach
+    void createRepository() throws Exception {
+        git = Git.init().setDirectory(dir.toFile()).call();
+        for (int i = 0; i < 5; i++)
+            history.add(commit("c" + i, DAY_1.plusSeconds(86_400L * i)));
+    }
+
+    private RevCommit commit(String message, Instant when) throws Exception {
+        PersonIdent ident = new PersonIdent("Dev", "dev@example.com", Date.from(when), TimeZone.getTimeZone("UTC"));
+        return git.commit().setMessage(message).setAuthor(ident).setCommitter(ident).setAllowEmpty(true).call();
+    }
+
+    private String name(int i) {
+        return history.get(i).getName();
+    }
+
+    private ObjectId head() throws Exception {
+        return git.getRepository().resolve("HEAD");
+    }
+
+    /** Runs a selection over its walk the way mineHistory does; returns mined commits, newest first. */
+    private List<String> mined(String checkpoint, Instant since) throws Exception {
+        try (RevWalk walk = new RevWalk(git.getRepository())) {
+            JGitMiningService.CommitSelection selection =
+                    JGitMiningService.CommitSelection.of(walk, head(), checkpoint, since);
+            walk.markStart(walk.parseCommit(selection.start()));
+            List<String> mined = new ArrayList<>();
+            for (RevCommit commit : walk) {
+                if (selection.mine(commit))
+                    mined.add(commit.getName());
+            }
+            return mined;
+        }
+    }
+
+    private String checkpoint(int head, int last) {
+        return new JGitMiningService.Progress(name(head), name(last)).format();
+    }
+
+    @Test
+    void freshRunMinesWholeHistoryFromHead() throws Exception {
+        assertEquals(List.of(name(4), name(3), name(2), name(1), name(0)), mined(null, null));
+    }
+
+    @Test
+    void sinceSkipsOlderCommits() throws Exception {
+        assertEquals(List.of(name(4), name(3), name(2)), mined(null, DAY_1.plusSeconds(86_400L * 2)));
+    }
+
+    @Test
+    void resumeSkipsThroughTheLastMinedCommit() throws Exception {
+        assertEquals(List.of(name(2), name(1), name(0)), mined(checkpoint(4, 3), null));
+        assertEquals(List.of(), mined(checkpoint(4, 0), null));
+    }
+
+    @Test
+    void resumeRepeatsTheCheckpointedWalkEvenAfterNewCommits() throws Exception {
+        commit("c5", DAY_1.plusSeconds(86_400L * 5));
+        try (RevWalk walk = new RevWalk(git.getRepository())) {
+            JGitMiningService.CommitSelection selection =
+                    JGitMiningService.CommitSelection.of(walk, head(), checkpoint(4, 3), null);
+            assertEquals(name(4), selection.start().name());
+            assertEquals(name(3), selection.resumedAfter());
+        }
+        assertEquals(List.of(name(2), name(1), name(0)), mined(checkpoint(4, 3), null));
+    }
+
+    @Test
+    void resumeStillAppliesSince() throws Exception {
+        assertEquals(List.of(name(2), name(1)), mined(checkpoint(4, 3), DAY_1.plusSeconds(86_400L)));
+    }
+
+    @Test
+    void checkpointWithVanishedHeadStartsAfresh() throws Exception {
+        String missing = "0123456789abcdef0123456789abcdef01234567";
+        String state = new JGitMiningService.Progress(missing, name(3)).format();
+        try (RevWalk walk = new RevWalk(git.getRepository())) {
+            JGitMiningService.CommitSelection selection =
+                    JGitMiningService.CommitSelection.of(walk, head(), state, null);
+            assertEquals(name(4), selection.start().name());
+            assertNull(selection.resumedAfter());
+        }
+        assertEquals(5, mined(state, null).size());
+    }
+
+    @Test
+    void malformedCheckpointIsIgnored() throws Exception {
+        assertEquals(5, mined("not-a-sha " + name(3), null).size());
+        assertEquals(5, mined("garbage", null).size());
+        assertEquals(5, mined("", null).size());
+    }
+
+    @Test
+    void progressRoundTrips() {
+        JGitMiningService.Progress progress = new JGitMiningService.Progress(name(4), name(2));
+        assertEquals(progress, JGitMiningService.Progress.parse(progress.format()));
+        assertNull(JGitMiningService.Progress.parse(null));
+        assertNull(JGitMiningService.Progress.parse("one-part"));
+    }
+}
@@ -0,0 +1,55 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.entity.IndexJob;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobQueueServiceTest {
+
+    private static IndexJob job(String type, long userId, String repoUrl, String payload) {
+        return IndexJob.builder().jobType(type).userId(userId).repoUrl(repoUrl).payload(payload).build();
+    }
+
+    @Test
+    void onlyCoalescedTypesGetAKey() {
+        assertNull(JobQueueService.dedupKey(job("scip_index", 1, "https://github.com/a/b", null)));
+        assertNull(JobQueueService.dedupKey(job("embedding_ingest", 1, "https://github.com/a/b", null)));
+        assertNotNull(JobQueueService.dedupKey(job("graph_build", 1, "https://github.com/a/b", null)));
+        assertNotNull(JobQueueService.dedupKey(job("git_mine", 1, "https://github.com/a/b", null)));
+    }
+
+    @Test
+    void keyIsHexSha256() {
+        String key = JobQueueService.dedupKey(job("graph_build", 1, "https://github.com/a/b", null));
+        assertEquals(64, key.length());
+        assertTrue(key.matches("[0-9a-f]{64}"));
+    }
+
+    @Test
+    void equivalentRepoUrlsShareAKey() {
+        String key = JobQueueService.dedupKey(job("git_mine", 7, "https://github.com/Acme/Repo", "{}"));
+        assertEquals(key, JobQueueService.dedupKey(job("git_mine", 7, "https://github.com/acme/repo.git", "{}")));
+        assertEquals(key, JobQueueService.dedupKey(job("git_mine", 7, "https://github.com/acme/repo/", "{}")));
+        assertEquals(key, JobQueueService.dedupKey(job("git_mine", 7, "git@github.com:acme/repo.git", "{}")));
+    }
+
+    @Test
+    void typeUserAndPayloadAreAllPartOfTheKey() {
+        String key = JobQueueService.dedupKey(job("git_mine", 7, "https://github.com/a/b", "{\"days\":30}"));
+        assertNotEquals(key, JobQueueService.dedupKey(job("graph_build", 7, "https://github.com/a/b", "{\"days\":30}")));
+        assertNotEquals(key, JobQueueService.dedupKey(job("git_mine", 8, "https://github.com/a/b", "{\"days\":30}")));
+        assertNotEquals(key, JobQueueService.dedupKey(job("git_mine", 7, "https://github.com/a/b", "{\"days\":90}")));
+        assertNotEquals(key, JobQueueService.dedupKey(job("git_mine", 7, "https://github.com/a/c", "{\"days\":30}")));
+    }
+
+    @Test
+    void missingPayloadMatchesEmptyPayload() {
+        assertEquals(JobQueueService.dedupKey(job("graph_build", 1, "https://github.com/a/b", null)),
+                JobQueueService.dedupKey(job("graph_build", 1, "https://github.com/a/b", "")));
+    }
+}
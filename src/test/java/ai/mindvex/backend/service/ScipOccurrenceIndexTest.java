@@ -0,0 +1,152 @@
+package ai.mindvex.backend.service;
+
+import ai.mindvex.backend.entity.ScipSymbolInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScipOccurrenceIndexTest {
+
+    /*
+     * Line 10: class Foo {            → "Foo" 10:6-10:9, body 10:0-20:1
+     * Line 12:   int bar(int x) {     → "bar" 12:6-12:9, "x" 12:14-12:15, method 12:2-15:3
+     * Line 13:     return x + bar(1); → "x" 13:11-13:12, "bar" 13:15-13:18
+     */
+    private static ScipOccurrenceIndex sample() {
+        return new ScipOccurrenceIndex.Builder(42)
+                .add(3, "x", 13, 11, 13, 12, 0)
+                .add(1, "Foo", 10, 0, 20, 1, 0)
+                .add(2, "bar", 12, 2, 15, 3, 0)
+                .add(1, "Foo", 10, 6, 10, 9, 1)
+                .add(2, "bar", 12, 6, 12, 9, 1)
+                .add(3, "x", 12, 14, 12, 15, 1)
+                .add(2, "bar", 13, 15, 13, 18, 0)
+                .build();
+    }
+
+    private static String symbolAt(ScipOccurrenceIndex index, int line, int character) {
+        int row = index.findInnermost(line, character);
+        return row < 0 ? null : index.symbol(row);
+    }
+
+    @Test
+    void buildSortsRowsByStartPosition() {
+        ScipOccurrenceIndex index = sample();
+        assertEquals(42L, index.documentId());
+        assertEquals(7, index.size());
+        for (int row = 1; row < index.size(); row++) {
+            long previous = ScipOccurrenceIndex.position(index.startLine(row - 1), index.startChar(row - 1));
+            long current = ScipOccurrenceIndex.position(index.startLine(row), index.startChar(row));
+            assertTrue(previous <= current, "row " + row + " starts before row " + (row - 1));
+        }
+    }
+
+    @Test
+    void findInnermostPrefersTheNarrowestEnclosingRange() {
+        ScipOccurrenceIndex index = sample();
+        assertEquals("Foo", symbolAt(index, 10, 7));
+        assertEquals("bar", symbolAt(index, 12, 7));
+        assertEquals("x", symbolAt(index, 12, 14));
+        assertEquals("x", symbolAt(index, 13, 11));
+        assertEquals("bar", symbolAt(index, 13, 16));
+        // Inside the method body but on no identifier
+        int row = index.findInnermost(14, 0);
+        assertEquals("bar", index.symbol(row));
+        assertEquals(12, index.startLine(row));
+        assertEquals(15, index.endLine(row));
+    }
+
+    @Test
+    void findInnermostBoundsAreInclusive() {
+        ScipOccurrenceIndex index = sample();
+        assertEquals("Foo", symbolAt(index, 10, 6));
+        assertEquals("Foo", symbolAt(index, 10, 9));
+        assertEquals("x", symbolAt(index, 13, 12));
+    }
+
+    @Test
+    void findInnermostReturnsMinusOneOutsideEveryRange() {
+        ScipOccurrenceIndex index = sample();
+        assertEquals(-1, index.findInnermost(0, 0));
+        assertEquals(-1, index.findInnermost(9, 100));
+        assertEquals(-1, index.findInnermost(20, 2));
+        assertEquals(-1, index.findInnermost(99, 0));
+    }
+
+    @Test
+    void findInnermostSeesLongRangesStartingFarBack() {
+        ScipOccurrenceIndex.Builder builder = new ScipOccurrenceIndex.Builder(1).add(1, "outer", 0, 0, 1000, 0, 0);
+        for (int line = 1; line < 500; line++)
+            builder.add(2, "inner", line, 0, line, 3, 0);
+        ScipOccurrenceIndex index = builder.build();
+        assertEquals("outer", symbolAt(index, 700, 5));
+        assertEquals("inner", symbolAt(index, 250, 1));
+        assertEquals("outer", symbolAt(index, 250, 10));
+    }
+
+    @Test
+    void emptyIndexFindsNothing() {
+        ScipOccurrenceIndex index = new ScipOccurrenceIndex.Builder(1).build();
+        assertEquals(0, index.size());
+        assertEquals(-1, index.findInnermost(0, 0));
+        assertEquals(0, index.firstOverlapping(0));
+    }
+
+    @Test
+    void firstOverlappingIncludesEarlierRangesSpanningIntoTheLine() {
+        ScipOccurrenceIndex index = sample();
+        // The class body starts on line 10 and is the first row overlapping line 13
+        int first = index.firstOverlapping(13);
+        assertEquals(10, index.startLine(first));
+        assertEquals("Foo", index.symbol(first));
+        // Past every range's end, the scan starts at the end
+        assertEquals(index.size(), index.firstOverlapping(21));
+        assertEquals(0, index.firstOverlapping(0));
+    }
+
+    @Test
+    void firstOverlappingSkipsRangesEndingBeforeTheLine() {
+        ScipOccurrenceIndex index = new ScipOccurrenceIndex.Builder(1)
+                .add(1, "a", 0, 0, 0, 5, 0)
+                .add(2, "b", 1, 0, 1, 5, 0)
+                .add(3, "c", 2, 0, 2, 5, 0)
+                .build();
+        assertEquals(2, index.firstOverlapping(2));
+        assertEquals("c", index.symbol(index.firstOverlapping(2)));
+    }
+
+    @Test
+    void rowsShareSymbolsById() {
+        ScipOccurrenceIndex index = sample();
+        assertEquals(List.of("x", "Foo", "bar"), index.distinctSymbols());
+        int row = index.findInnermost(13, 16);
+        assertEquals(2L, index.symbolId(row));
+        assertEquals(0, index.roleFlags(row));
+        assertEquals(1, index.roleFlags(index.findInnermost(12, 7)));
+    }
+
+    @Test
+    void withSymbolInfoAttachesMetadataBySymbol() {
+        ScipSymbolInfo bar = ScipSymbolInfo.builder().symbol("bar").displayName("bar").signatureDoc("int bar(int x)")
+                .build();
+        ScipOccurrenceIndex plain = sample();
+        ScipOccurrenceIndex index = plain.withSymbolInfo(Map.of("bar", bar));
+
+        assertNull(plain.symbolInfo(plain.findInnermost(13, 16)));
+        assertSame(bar, index.symbolInfo(index.findInnermost(13, 16)));
+        assertNull(index.symbolInfo(index.findInnermost(13, 11)));
+        assertEquals(plain.size(), index.size());
+    }
+
+    @Test
+    void positionPacksLineAboveCharacter() {
+        assertTrue(ScipOccurrenceIndex.position(1, 0) > ScipOccurrenceIndex.position(0, Integer.MAX_VALUE));
+        assertTrue(ScipOccurrenceIndex.position(3, 4) < ScipOccurrenceIndex.position(3, 5));
+    }
+}